@@ -0,0 +1,142 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.event;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@code EventInvoker} strategies. Eight handler types share the invoking call site, as they do
+ * when events are published through {@code DefaultEventBus}, so that the call site is megamorphic.
+ *
+ * @author Andres Almiray
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class EventInvokerBenchmark {
+    private static final int HANDLERS = 8;
+
+    private final Object[] targets = {new Handler0(), new Handler1(), new Handler2(), new Handler3(),
+        new Handler4(), new Handler5(), new Handler6(), new Handler7()};
+    private final EventInvoker[] methodHandleInvokers = new EventInvoker[HANDLERS];
+    private final EventInvoker[] reflectiveInvokers = new EventInvoker[HANDLERS];
+    private final String event = "event";
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        for (int i = 0; i < HANDLERS; i++) {
+            Method method = targets[i].getClass().getDeclaredMethod("onEvent", String.class);
+            method.setAccessible(true);
+            methodHandleInvokers[i] = EventInvoker.of(method, DefaultEventBus.InvocationMode.METHOD_HANDLE);
+            reflectiveInvokers[i] = EventInvoker.of(method, DefaultEventBus.InvocationMode.REFLECTION);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(HANDLERS)
+    public void methodHandle(Blackhole blackhole) throws Throwable {
+        invokeAll(methodHandleInvokers, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(HANDLERS)
+    public void reflection(Blackhole blackhole) throws Throwable {
+        invokeAll(reflectiveInvokers, blackhole);
+    }
+
+    private void invokeAll(EventInvoker[] invokers, Blackhole blackhole) throws Throwable {
+        for (int i = 0; i < HANDLERS; i++) {
+            invokers[i].invoke(targets[i], event);
+        }
+        blackhole.consume(targets);
+    }
+
+    static class Handler0 {
+        int count;
+
+        void onEvent(String event) {
+            count += event.length();
+        }
+    }
+
+    static class Handler1 extends Handler0 {
+        @Override
+        void onEvent(String event) {
+            count += event.length() + 1;
+        }
+    }
+
+    static class Handler2 extends Handler0 {
+        @Override
+        void onEvent(String event) {
+            count += event.length() + 2;
+        }
+    }
+
+    static class Handler3 extends Handler0 {
+        @Override
+        void onEvent(String event) {
+            count += event.length() + 3;
+        }
+    }
+
+    static class Handler4 extends Handler0 {
+        @Override
+        void onEvent(String event) {
+            count += event.length() + 4;
+        }
+    }
+
+    static class Handler5 extends Handler0 {
+        @Override
+        void onEvent(String event) {
+            count += event.length() + 5;
+        }
+    }
+
+    static class Handler6 extends Handler0 {
+        @Override
+        void onEvent(String event) {
+            count += event.length() + 6;
+        }
+    }
+
+    static class Handler7 extends Handler0 {
+        @Override
+        void onEvent(String event) {
+            count += event.length() + 7;
+        }
+    }
+}
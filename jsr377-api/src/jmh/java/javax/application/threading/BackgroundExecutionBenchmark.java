@@ -0,0 +1,117 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.threading;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.application.configuration.DefaultConfiguration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the platform thread pool against virtual threads for a batch of background tasks that either compute
+ * or block briefly. The {@code virtual} executor requires a Java runtime with virtual threads; on older runtimes
+ * its setup fails instead of silently measuring the platform thread fallback.
+ *
+ * @author Andres Almiray
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BackgroundExecutionBenchmark {
+    @Param({"platform", "virtual"})
+    public String executor;
+
+    @Param({"0", "1"})
+    public long blockMillis;
+
+    @Param({"1000"})
+    public int tasks;
+
+    private BenchmarkThreadingHandler handler;
+
+    @Setup
+    public void setup() {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put(AbstractThreadingHandler.KEY_VIRTUAL_THREADS, "virtual".equals(executor));
+        handler = new BenchmarkThreadingHandler(new DefaultConfiguration(settings));
+        if ("virtual".equals(executor) && !handler.isVirtualThreads()) {
+            handler.shutdown();
+            throw new IllegalStateException("Virtual threads are not supported by this Java runtime");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        handler.shutdown();
+    }
+
+    @Benchmark
+    public long executeBatch() throws Exception {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[tasks];
+        for (int i = 0; i < tasks; i++) {
+            futures[i] = handler.executeOutsideUIAsync(this::work).toCompletableFuture();
+        }
+        CompletableFuture.allOf(futures).get();
+        return futures.length;
+    }
+
+    private long work() throws InterruptedException {
+        if (blockMillis > 0) {
+            Thread.sleep(blockMillis);
+            return blockMillis;
+        }
+        long hash = 17L;
+        for (int i = 0; i < 1_000; i++) {
+            hash = hash * 31L + i;
+        }
+        return hash;
+    }
+
+    private static final class BenchmarkThreadingHandler extends AbstractThreadingHandler {
+        private BenchmarkThreadingHandler(DefaultConfiguration configuration) {
+            super(configuration);
+        }
+
+        @Override
+        protected void postToUIThread(Runnable runnable) {
+            runnable.run();
+        }
+
+        @Override
+        public boolean isUIThread() {
+            return false;
+        }
+    }
+}
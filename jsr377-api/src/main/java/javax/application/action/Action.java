@@ -17,6 +17,9 @@
  */
 package javax.application.action;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 /**
  * @author Andres Almiray
  */
@@ -90,4 +93,28 @@ public interface Action {
      * @param args a set of arguments. Mey be {@code null}.
      */
     void execute(Object... args);
+
+    /**
+     * Executes the action with the given arguments without waiting for it to complete.
+     * Implementations should honor the {@code Threading} policy of the action's method. If the method returns a
+     * {@code CompletionStage} then the action completes when that stage completes, without blocking any thread.
+     * <p>
+     * Cancelling the returned stage, by calling {@code toCompletableFuture().cancel()}, cancels the execution if
+     * it has not completed yet; {@code ActionInterceptor}s observe {@link ActionExecutionStatus#CANCELLED}.
+     * The default implementation executes the action synchronously.
+     *
+     * @param args a set of arguments. Mey be {@code null}.
+     *
+     * @return a {@code CompletionStage} with the result of the action. Never returns {@code null}.
+     */
+    default CompletionStage<Object> executeAsync(Object... args) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        try {
+            execute(args);
+            future.complete(null);
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
 }
@@ -0,0 +1,162 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.action;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Supplies the values of contextual action parameters.
+ * <p>
+ * Values are bound by name or by type. Each contextual parameter is bound to an entry of this context when its
+ * action is created: the entry bound to the parameter's name if any, otherwise the entry bound to the parameter's
+ * type if any, otherwise the entry for the parameter's name, which may be bound later.
+ * <p>
+ * The value of an entry is computed by its supplier on first use and cached until the entry is invalidated,
+ * either by its name, the fully qualified name of its type, or any of the state keys given when it was bound. {@link DefaultActionManager#stateChanged(String...)}
+ * invalidates the entries of the context of the manager as well.
+ *
+ * @author Andres Almiray
+ */
+public final class ActionContext {
+    private final Map<String, Entry> entriesByName = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Entry> entriesByType = new ConcurrentHashMap<>();
+    private final Map<String, Set<Entry>> entriesByState = new ConcurrentHashMap<>();
+
+    /**
+     * Binds a value supplier to the given name.
+     *
+     * @param name      the name of the parameters that receive the value. Must not be {@code null}.
+     * @param supplier  computes the value. Must not be {@code null}.
+     * @param dependsOn state keys that invalidate the cached value when they change.
+     */
+    public void bind(String name, Supplier<?> supplier, String... dependsOn) {
+        requireNonNull(name, "name");
+        Entry entry = entriesByName.computeIfAbsent(name, k -> new Entry());
+        entry.bind(requireNonNull(supplier, "supplier"));
+        registerDependencies(entry, name, dependsOn);
+    }
+
+    /**
+     * Binds a value supplier to the given type.
+     *
+     * @param type      the type of the parameters that receive the value. Must not be {@code null}.
+     * @param supplier  computes the value. Must not be {@code null}.
+     * @param dependsOn state keys that invalidate the cached value when they change.
+     */
+    public <T> void bind(Class<T> type, Supplier<? extends T> supplier, String... dependsOn) {
+        requireNonNull(type, "type");
+        Entry entry = entriesByType.computeIfAbsent(type, k -> new Entry());
+        entry.bind(requireNonNull(supplier, "supplier"));
+        registerDependencies(entry, type.getName(), dependsOn);
+    }
+
+    /**
+     * Discards the cached values of the entries bound to the given names or types, or depending on the given state keys.
+     *
+     * @param keys names, fully qualified type names, or state keys. Must not be {@code null}.
+     */
+    public void invalidate(String... keys) {
+        requireNonNull(keys, "keys");
+        for (String key : keys) {
+            Set<Entry> entries = entriesByState.get(key);
+            if (entries != null) {
+                for (Entry entry : entries) {
+                    entry.invalidate();
+                }
+            }
+        }
+    }
+
+    private void registerDependencies(Entry entry, String key, String[] dependsOn) {
+        entriesByState.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(entry);
+        if (dependsOn != null) {
+            for (String stateKey : dependsOn) {
+                entriesByState.computeIfAbsent(stateKey, k -> ConcurrentHashMap.newKeySet()).add(entry);
+            }
+        }
+        entry.invalidate();
+    }
+
+    /**
+     * Returns the entry a parameter is bound to.
+     */
+    Entry resolve(ActionParameter parameter) {
+        Entry entry = entriesByName.get(parameter.getName());
+        if (entry != null && entry.isBound()) {
+            return entry;
+        }
+        Class<?> type = parameter.getType().isPrimitive() ? null : parameter.getType();
+        if (type != null) {
+            entry = entriesByType.get(type);
+            if (entry != null && entry.isBound()) {
+                return entry;
+            }
+        }
+        return entriesByName.computeIfAbsent(parameter.getName(), k -> new Entry());
+    }
+
+    /**
+     * A cached value. Invalidation moves the stamp forward, so that values computed concurrently with an
+     * invalidation are never cached as current.
+     */
+    static final class Entry {
+        private volatile Supplier<?> supplier;
+        private volatile long stamp;
+        private volatile Value value;
+
+        private void bind(Supplier<?> supplier) {
+            this.supplier = supplier;
+        }
+
+        private boolean isBound() {
+            return supplier != null;
+        }
+
+        private synchronized void invalidate() {
+            stamp++;
+        }
+
+        Object get() {
+            long current = stamp;
+            Value cached = value;
+            if (cached != null && cached.stamp == current) {
+                return cached.value;
+            }
+
+            Supplier<?> s = supplier;
+            Object computed = s != null ? s.get() : null;
+            value = new Value(computed, current);
+            return computed;
+        }
+    }
+
+    private static final class Value {
+        private final Object value;
+        private final long stamp;
+
+        private Value(Object value, long stamp) {
+            this.value = value;
+            this.stamp = stamp;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.action;
+
+import javax.application.action.spi.ActionInvocation;
+import javax.application.threading.Threading;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+/**
+ * Everything needed to create and execute actions for a given {@code ActionHandler} method.
+ * Computed once per method and shared by all actions created from it.
+ *
+ * @author Andres Almiray
+ */
+final class ActionDefinition {
+    private final ActionMethod method;
+    private final boolean enabled;
+    private final DefaultActionMetadata metadata;
+    private final ActionInvocation invocation;
+    private final boolean[] nullable;
+    private final Threading.Policy threadingPolicy;
+    private final Threading.Lane threadingLane;
+
+    ActionDefinition(ActionMethod method, boolean enabled, DefaultActionMetadata metadata,
+                     Threading.Policy threadingPolicy, Threading.Lane threadingLane, ActionInvocation invocation) {
+        this.method = method;
+        this.enabled = enabled;
+        this.metadata = metadata;
+        this.threadingPolicy = threadingPolicy;
+        this.threadingLane = threadingLane;
+        this.invocation = invocation;
+
+        ActionParameter[] parameters = metadata.getParameters();
+        this.nullable = new boolean[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            nullable[i] = parameters[i].isNullable();
+        }
+    }
+
+    /**
+     * Returns the method of this definition, looking it up if it was described by an {@code ActionMetadataProvider}.
+     */
+    Method getMethod() {
+        return method.get();
+    }
+
+    /**
+     * Returns the initial enabled state of actions created from this definition.
+     */
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the policy of the {@code Threading} annotation of the method, or else of its declaring class,
+     * {@code null} if none.
+     */
+    Threading.Policy getThreadingPolicy() {
+        return threadingPolicy;
+    }
+
+    Threading.Lane getThreadingLane() {
+        return threadingLane;
+    }
+
+    DefaultActionMetadata getMetadata() {
+        return metadata;
+    }
+
+    Object invoke(Object owner, Object[] args) throws Throwable {
+        if (args.length != nullable.length) {
+            throw new IllegalArgumentException("Action " + metadata.getFullyQualifiedName() + " requires " + nullable.length +
+                " arguments but received " + args.length);
+        }
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] == null && !nullable[i]) {
+                throw new IllegalArgumentException("Argument '" + metadata.getParameters()[i].getName() + "' of action " +
+                    metadata.getFullyQualifiedName() + " must not be null");
+            }
+        }
+        try {
+            return invocation.invoke(owner, args);
+        } catch (ClassCastException e) {
+            throw argumentMismatch(args, e);
+        }
+    }
+
+    /**
+     * Finds the argument that could not be converted to its parameter type, only once an invocation failed so that
+     * successful invocations are not checked twice. The exception is returned as is if it was thrown by the method.
+     */
+    private RuntimeException argumentMismatch(Object[] args, ClassCastException exception) {
+        ActionParameter[] parameters = metadata.getParameters();
+        for (int i = 0; i < args.length; i++) {
+            Class<?> type = parameters[i].getType();
+            if (args[i] != null && !isConvertible(args[i], type)) {
+                return new IllegalArgumentException("Argument '" + parameters[i].getName() + "' of action " +
+                    metadata.getFullyQualifiedName() + " must be of type " + type.getName() + " but was " +
+                    args[i].getClass().getName(), exception);
+            }
+        }
+        return exception;
+    }
+
+    /**
+     * Applies the conversion of an {@code Object} into the given type that the method handle of an invocation
+     * performs, which includes unboxing followed by primitive widening.
+     */
+    private static boolean isConvertible(Object value, Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type.isInstance(value);
+        }
+        try {
+            MethodHandles.identity(type).asType(MethodType.methodType(type, Object.class)).invoke(value);
+            return true;
+        } catch (ClassCastException e) {
+            return false;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+}
@@ -34,5 +34,10 @@ public enum ActionExecutionStatus {
     /**
      * The Action threw an exception during its execution
      */
-    EXCEPTION
+    EXCEPTION,
+
+    /**
+     * The asynchronous execution of the Action was cancelled before it completed
+     */
+    CANCELLED
 }
@@ -46,4 +46,25 @@ public @interface ActionHandler {
      * Defines the action's enabled state.
      */
     boolean enabled() default true;
+
+    /**
+     * Defines how the action reacts to being triggered faster than it can complete.
+     */
+    ExecutionPolicy executionPolicy() default ExecutionPolicy.NONE;
+
+    /**
+     * Defines the quiet period, in milliseconds, required by {@code ExecutionPolicy.DEBOUNCE}.
+     */
+    long interval() default 0L;
+
+    /**
+     * Defines the maximum number of executions per second allowed by {@code ExecutionPolicy.THROTTLE}.
+     */
+    int rate() default 0;
+
+    /**
+     * Defines the application state keys the action's properties depend on. The action is updated only when
+     * any of these keys changes.
+     */
+    String[] dependsOn() default {};
 }
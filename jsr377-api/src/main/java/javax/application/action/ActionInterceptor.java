@@ -42,6 +42,20 @@ public interface ActionInterceptor {
      */
     void configure(Action action, Method method);
 
+    /**
+     * Finds out if this interceptor takes part in the execution of the given action. Called once, right after
+     * {@code configure()}; interceptors that return {@code false} are not called on {@code before()},
+     * {@code after()}, nor {@code exception()} for that action.
+     *
+     * @param action the configured action. Must not be {@code null}.
+     * @param method the method that represents the action itself. Must not be {@code null}.
+     *
+     * @return {@code true} if this interceptor must be called when the action is executed, {@code false} otherwise.
+     */
+    default boolean appliesTo(Action action, Method method) {
+        return true;
+    }
+
     /**
      * Called before an action is executed.
      * <p>
@@ -49,7 +63,8 @@ public interface ActionInterceptor {
      * order to signal that the action should not be invoked. In any case this method
      * returns the arguments to be sent to the action, thus allowing the action interceptor
      * to modify the arguments as it deem necessary. Failure to return an appropriate
-     * value will most likely cause an error during the action's execution.
+     * value will most likely cause an error during the action's execution. Implementors that do not modify
+     * the arguments should return the given array, avoiding a copy.
      *
      * @param action the action to execute. Must not be {@code null}.
      * @param args   the action's arguments. Must not be {@code null}.
@@ -72,6 +87,22 @@ public interface ActionInterceptor {
      */
     Object after(ActionExecutionStatus status, Action action, Object[] args, Object result);
 
+    /**
+     * Like {@link #after(ActionExecutionStatus, Action, Object[], Object)}, also receiving the time the execution
+     * started at, as returned by {@code System.nanoTime()} before any interceptor's {@code before()} was called.
+     * Action managers call this method instead, wherever the execution completes, so that interceptors need no
+     * state of their own to time executions.
+     *
+     * @param status     a flag that indicates the execution status of the action. Must not be {@code null}.
+     * @param action     the action to execute. Must not be {@code null}.
+     * @param args       the arguments sent to the action. Must not be {@code null}.
+     * @param result     the result of executing the action. May be {@code null}.
+     * @param startNanos the time the execution started at.
+     */
+    default Object after(ActionExecutionStatus status, Action action, Object[] args, Object result, long startNanos) {
+        return after(status, action, args, result);
+    }
+
     /**
      * Called after the action has been executed, when an exception occurred
      * during execution.
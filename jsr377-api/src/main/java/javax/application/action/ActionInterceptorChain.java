@@ -0,0 +1,243 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.action;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Future;
+
+/**
+ * The interceptors that take part in the execution of a given action, compiled once when the action is created.
+ * <p>
+ * Actions without interceptors invoke their method directly. Otherwise {@code before()} is called in order and
+ * {@code after()} in reverse order; the arguments array is passed along as returned by each interceptor, thus it
+ * is never copied unless an interceptor chooses to.
+ * <p>
+ * When executed asynchronously, an action whose method returns a {@code CompletionStage} completes when that
+ * stage completes; {@code exception()} and {@code after()} are called from the stage's completion instead of
+ * waiting for it. Cancelling the resulting future cancels the stage, if it is a {@code Future}, and reports
+ * {@link ActionExecutionStatus#CANCELLED} to the interceptors.
+ * <p>
+ * The start time of each execution is kept by the execution itself and handed to every interceptor along with
+ * {@code after()}, wherever the execution completes.
+ *
+ * @author Andres Almiray
+ */
+abstract class ActionInterceptorChain {
+    static final ActionInterceptorChain EMPTY = new DirectChain();
+
+    static ActionInterceptorChain compile(ActionInterceptor[] interceptors) {
+        return interceptors.length == 0 ? EMPTY : new InterceptingChain(interceptors);
+    }
+
+    abstract Object execute(DefaultAction action, Object[] args);
+
+    /**
+     * Executes the action, completing the given future with its result. Never throws.
+     */
+    abstract void executeAsync(DefaultAction action, Object[] args, CompletableFuture<Object> future);
+
+    /**
+     * Invokes the action's method, calling {@code onCompletion} once its result is available; immediately for
+     * regular results, from the completion of the returned stage otherwise.
+     */
+    static void invokeAsync(DefaultAction action, Object[] args, CompletableFuture<Object> future, Completion onCompletion) {
+        Object result;
+        try {
+            result = action.getDefinition().invoke(action.getOwner(), args);
+        } catch (Throwable t) {
+            onCompletion.complete(null, t);
+            return;
+        }
+
+        if (!(result instanceof CompletionStage)) {
+            onCompletion.complete(result, null);
+            return;
+        }
+
+        if (result instanceof Future) {
+            future.whenComplete((value, throwable) -> {
+                if (future.isCancelled()) {
+                    ((Future<?>) result).cancel(true);
+                }
+            });
+        }
+        ((CompletionStage<?>) result).whenComplete(onCompletion::complete);
+    }
+
+    static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+    }
+
+    interface Completion {
+        void complete(Object result, Throwable throwable);
+    }
+
+    static RuntimeException propagate(DefaultAction action, Throwable throwable) {
+        if (throwable instanceof RuntimeException) {
+            return (RuntimeException) throwable;
+        }
+        if (throwable instanceof Error) {
+            throw (Error) throwable;
+        }
+        return new IllegalStateException("An error occurred while executing action " +
+            action.getActionMetadata().getFullyQualifiedName(), throwable);
+    }
+
+    private static final class DirectChain extends ActionInterceptorChain {
+        @Override
+        Object execute(DefaultAction action, Object[] args) {
+            try {
+                return action.getDefinition().invoke(action.getOwner(), args);
+            } catch (Throwable t) {
+                throw propagate(action, t);
+            }
+        }
+
+        @Override
+        void executeAsync(DefaultAction action, Object[] args, CompletableFuture<Object> future) {
+            invokeAsync(action, args, future, (result, throwable) -> {
+                if (throwable != null) {
+                    future.completeExceptionally(unwrap(throwable));
+                } else {
+                    future.complete(result);
+                }
+            });
+        }
+    }
+
+    private static final class InterceptingChain extends ActionInterceptorChain {
+        private final ActionInterceptor[] interceptors;
+
+        private InterceptingChain(ActionInterceptor[] interceptors) {
+            this.interceptors = interceptors;
+        }
+
+        @Override
+        Object execute(DefaultAction action, Object[] args) {
+            long start = System.nanoTime();
+            Object[] arguments = args;
+            ActionExecutionStatus status = ActionExecutionStatus.OK;
+            Object result = null;
+            Exception exception = null;
+
+            try {
+                for (ActionInterceptor interceptor : interceptors) {
+                    arguments = interceptor.before(action, arguments);
+                }
+            } catch (AbortActionExecution e) {
+                status = ActionExecutionStatus.ABORTED;
+            }
+
+            if (status == ActionExecutionStatus.OK) {
+                try {
+                    result = action.getDefinition().invoke(action.getOwner(), arguments);
+                } catch (Exception e) {
+                    status = ActionExecutionStatus.EXCEPTION;
+                    exception = e;
+                } catch (Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    status = ActionExecutionStatus.EXCEPTION;
+                    exception = new IllegalStateException(t);
+                }
+            }
+
+            boolean handled = exception == null;
+            if (exception != null) {
+                for (ActionInterceptor interceptor : interceptors) {
+                    handled |= interceptor.exception(exception, action, arguments);
+                }
+            }
+
+            for (int i = interceptors.length - 1; i >= 0; i--) {
+                result = interceptors[i].after(status, action, arguments, result, start);
+            }
+
+            if (!handled) {
+                throw propagate(action, exception);
+            }
+            return result;
+        }
+
+        @Override
+        void executeAsync(DefaultAction action, Object[] args, CompletableFuture<Object> future) {
+            long start = System.nanoTime();
+            Object[] arguments = args;
+            try {
+                for (ActionInterceptor interceptor : interceptors) {
+                    arguments = interceptor.before(action, arguments);
+                }
+            } catch (AbortActionExecution e) {
+                finish(action, arguments, ActionExecutionStatus.ABORTED, null, null, start, future);
+                return;
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+                return;
+            }
+
+            if (future.isCancelled()) {
+                finish(action, arguments, ActionExecutionStatus.CANCELLED, null, null, start, future);
+                return;
+            }
+
+            Object[] invocationArguments = arguments;
+            invokeAsync(action, arguments, future, (result, throwable) -> {
+                Throwable cause = throwable != null ? unwrap(throwable) : null;
+                if (future.isCancelled() || cause instanceof CancellationException) {
+                    finish(action, invocationArguments, ActionExecutionStatus.CANCELLED, null, null, start, future);
+                } else if (cause instanceof Exception) {
+                    finish(action, invocationArguments, ActionExecutionStatus.EXCEPTION, null, (Exception) cause, start, future);
+                } else if (cause != null) {
+                    future.completeExceptionally(cause);
+                } else {
+                    finish(action, invocationArguments, ActionExecutionStatus.OK, result, null, start, future);
+                }
+            });
+        }
+
+        private void finish(DefaultAction action, Object[] arguments, ActionExecutionStatus status, Object result,
+                            Exception exception, long start, CompletableFuture<Object> future) {
+            try {
+                boolean handled = exception == null;
+                if (exception != null) {
+                    for (ActionInterceptor interceptor : interceptors) {
+                        handled |= interceptor.exception(exception, action, arguments);
+                    }
+                }
+
+                Object value = result;
+                for (int i = interceptors.length - 1; i >= 0; i--) {
+                    value = interceptors[i].after(status, action, arguments, value, start);
+                }
+
+                if (!handled) {
+                    future.completeExceptionally(exception);
+                } else if (status == ActionExecutionStatus.CANCELLED) {
+                    future.cancel(false);
+                } else {
+                    future.complete(value);
+                }
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.action;
+
+import javax.application.action.spi.ActionInvocation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+/**
+ * Invokes an {@code ActionHandler} method on a given owner through a method handle, as {@code EventInvoker} does
+ * for event handlers. Used for owners that have no {@code ActionMetadataProvider}.
+ * <p>
+ * The owner is supplied on every call so that the same invoker can be shared by all actions created from
+ * the same method. The handle is adapted once, thus each call only spreads and unboxes the arguments.
+ *
+ * @author Andres Almiray
+ */
+final class ActionInvoker implements ActionInvocation {
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    private final MethodHandle handle;
+
+    /**
+     * Creates an invoker for the given method. The method must have been made accessible beforehand.
+     */
+    ActionInvoker(Method method) {
+        try {
+            // adapt (Owner, A1..An)R into (Object, Object[])Object once so that invokeExact only has to unbox
+            this.handle = MethodHandles.lookup().unreflect(method)
+                .asSpreader(Object[].class, method.getParameterCount())
+                .asType(INVOKER_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Could not access action handler method " + method, e);
+        }
+    }
+
+    @Override
+    public Object invoke(Object owner, Object[] args) throws Throwable {
+        return (Object) handle.invokeExact(owner, args);
+    }
+}
@@ -121,4 +121,42 @@ public interface ActionMetadata {
      * @return {@code true} if any parameter is annotated with {@code Contextual}, {@code false} otherwise.
      */
     boolean hasContextualArgs();
+
+    /**
+     * Returns the execution policy of the action, as defined by the {@code executionPolicy} attribute of the
+     * {@code &#064;ActionHandler} annotation.
+     *
+     * @return a non-null policy.
+     */
+    default ExecutionPolicy getExecutionPolicy() {
+        return ExecutionPolicy.NONE;
+    }
+
+    /**
+     * Returns the quiet period, in milliseconds, of an action whose policy is {@code ExecutionPolicy.DEBOUNCE}.
+     *
+     * @return a number equal or greater than {@code 0}.
+     */
+    default long getExecutionInterval() {
+        return 0L;
+    }
+
+    /**
+     * Returns the maximum number of executions per second of an action whose policy is {@code ExecutionPolicy.THROTTLE}.
+     *
+     * @return a number equal or greater than {@code 0}.
+     */
+    default int getExecutionRate() {
+        return 0;
+    }
+
+    /**
+     * Returns the application state keys the action's properties depend on, as defined by the {@code dependsOn}
+     * attribute of the {@code &#064;ActionHandler} annotation.
+     *
+     * @return a non-null array of keys.
+     */
+    default String[] getStateDependencies() {
+        return new String[0];
+    }
 }
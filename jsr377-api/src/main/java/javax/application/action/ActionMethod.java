@@ -0,0 +1,76 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.action;
+
+import java.lang.reflect.Method;
+import java.util.StringJoiner;
+
+/**
+ * The action handler method of an action. Methods described by an {@code ActionMetadataProvider} are looked up
+ * with reflection only when first needed, such as when an {@code ActionInterceptor} configures the action or
+ * annotations are read; actions of such methods are otherwise created and executed without reflection.
+ *
+ * @author Andres Almiray
+ */
+final class ActionMethod {
+    private final Class<?> declaringType;
+    private final String name;
+    private final Class<?>[] parameterTypes;
+    // looked up on first use, racing threads find equal methods
+    private volatile Method method;
+
+    ActionMethod(Method method) {
+        this.declaringType = method.getDeclaringClass();
+        this.name = method.getName();
+        this.parameterTypes = method.getParameterTypes();
+        this.method = method;
+    }
+
+    ActionMethod(Class<?> declaringType, String name, Class<?>[] parameterTypes) {
+        this.declaringType = declaringType;
+        this.name = name;
+        this.parameterTypes = parameterTypes;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    Method get() {
+        Method m = method;
+        if (m == null) {
+            try {
+                m = declaringType.getDeclaredMethod(name, parameterTypes);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException("Action metadata of " + declaringType.getName() + " is out of date, method " +
+                    this + " does not exist", e);
+            }
+            method = m;
+        }
+        return m;
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner signature = new StringJoiner(",", declaringType.getName() + "." + name + "(", ")");
+        for (Class<?> parameterType : parameterTypes) {
+            signature.add(parameterType.getTypeName());
+        }
+        return signature.toString();
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.action;
+
+/**
+ * A snapshot of the statistics recorded by {@link TracingActionInterceptor} for an action or an interceptor.
+ * All durations are in nanoseconds.
+ *
+ * @author Andres Almiray
+ */
+public final class ActionStatistics {
+    private final String name;
+    private final long okCount;
+    private final long abortedCount;
+    private final long exceptionCount;
+    private final long cancelledCount;
+    private final long timedCount;
+    private final double meanLatency;
+    private final long p50Latency;
+    private final long p90Latency;
+    private final long p99Latency;
+    private final long maxLatency;
+
+    ActionStatistics(String name, long okCount, long abortedCount, long exceptionCount, long cancelledCount, LatencyHistogram histogram) {
+        this.name = name;
+        this.okCount = okCount;
+        this.abortedCount = abortedCount;
+        this.exceptionCount = exceptionCount;
+        this.cancelledCount = cancelledCount;
+        this.timedCount = histogram.getCount();
+        this.meanLatency = histogram.getMean();
+        this.p50Latency = histogram.getValueAtPercentile(50d);
+        this.p90Latency = histogram.getValueAtPercentile(90d);
+        this.p99Latency = histogram.getValueAtPercentile(99d);
+        this.maxLatency = histogram.getMax();
+    }
+
+    /**
+     * Returns the fully qualified name of the action followed by its parameter types, or the class name of the interceptor.
+     */
+    public String getName() {
+        return name;
+    }
+
+    public long getOkCount() {
+        return okCount;
+    }
+
+    public long getAbortedCount() {
+        return abortedCount;
+    }
+
+    public long getExceptionCount() {
+        return exceptionCount;
+    }
+
+    public long getCancelledCount() {
+        return cancelledCount;
+    }
+
+    /**
+     * Returns the number of executions whose latency was recorded.
+     */
+    public long getTimedCount() {
+        return timedCount;
+    }
+
+    public double getMeanLatency() {
+        return meanLatency;
+    }
+
+    public long getP50Latency() {
+        return p50Latency;
+    }
+
+    public long getP90Latency() {
+        return p90Latency;
+    }
+
+    public long getP99Latency() {
+        return p99Latency;
+    }
+
+    public long getMaxLatency() {
+        return maxLatency;
+    }
+
+    @Override
+    public String toString() {
+        return "ActionStatistics[" + name + ", ok=" + okCount + ", aborted=" + abortedCount + ", exception=" + exceptionCount +
+            ", cancelled=" + cancelledCount + ", p50=" + p50Latency + "ns, p99=" + p99Latency + "ns, max=" + maxLatency + "ns]";
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.action;
+
+import java.util.List;
+
+/**
+ * Management interface of {@link TracingActionInterceptor}.
+ *
+ * @author Andres Almiray
+ */
+public interface ActionTracingMXBean {
+    /**
+     * Returns the statistics of every traced action.
+     *
+     * @return a non-null list.
+     */
+    List<ActionStatistics> getActionStatistics();
+
+    /**
+     * Returns the time spent in every interceptor wrapped by {@link TracingActionInterceptor#wrap(ActionInterceptor)}.
+     *
+     * @return a non-null list.
+     */
+    List<ActionStatistics> getInterceptorStatistics();
+
+    /**
+     * Returns the statistics of the action with the given name.
+     *
+     * @param name the fully qualified name of the action followed by its parameter types, as returned by
+     *             {@link ActionStatistics#getName()}, such as {@code com.acme.Editor.save(java.lang.String)}.
+     *
+     * @return the statistics of the action, {@code null} if the action has not been traced.
+     */
+    ActionStatistics findActionStatistics(String name);
+
+    /**
+     * Discards all recorded statistics.
+     */
+    void reset();
+}
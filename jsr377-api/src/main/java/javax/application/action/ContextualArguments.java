@@ -0,0 +1,95 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.action;
+
+/**
+ * Binds the contextual parameters of an action to entries of an {@code ActionContext}, once per action.
+ * <p>
+ * Callers either supply all arguments, leaving contextual ones as {@code null}, or only the non-contextual ones,
+ * in order. The supplied array is never modified, so callers may reuse it across executions: it is copied when
+ * a contextual value has to be filled in, and passed along as is when every argument was supplied.
+ *
+ * @author Andres Almiray
+ */
+final class ContextualArguments {
+    private final ActionContext.Entry[] entries;
+    private final int[] positions;
+
+    private ContextualArguments(ActionContext.Entry[] entries, int[] positions) {
+        this.entries = entries;
+        this.positions = positions;
+    }
+
+    /**
+     * Returns the bindings for the given metadata, {@code null} if the action has no contextual parameters.
+     */
+    static ContextualArguments of(ActionMetadata metadata, ActionContext context) {
+        if (!metadata.hasContextualArgs()) {
+            return null;
+        }
+
+        ActionParameter[] parameters = metadata.getParameters();
+        ActionContext.Entry[] entries = new ActionContext.Entry[parameters.length];
+        int count = 0;
+        for (ActionParameter parameter : parameters) {
+            if (parameter.isContextual()) {
+                entries[parameter.getIndex()] = context.resolve(parameter);
+            } else {
+                count++;
+            }
+        }
+
+        int[] positions = new int[count];
+        for (int i = 0, j = 0; i < parameters.length; i++) {
+            if (entries[i] == null) {
+                positions[j++] = i;
+            }
+        }
+        return new ContextualArguments(entries, positions);
+    }
+
+    Object[] bind(Object[] args) {
+        if (args.length == entries.length) {
+            Object[] arguments = args;
+            for (int i = 0; i < entries.length; i++) {
+                if (entries[i] != null && args[i] == null) {
+                    if (arguments == args) {
+                        arguments = args.clone();
+                    }
+                    arguments[i] = entries[i].get();
+                }
+            }
+            return arguments;
+        }
+
+        if (args.length != positions.length) {
+            // let the invocation report the mismatch
+            return args;
+        }
+        Object[] arguments = new Object[entries.length];
+        for (int i = 0; i < positions.length; i++) {
+            arguments[positions[i]] = args[i];
+        }
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i] != null) {
+                arguments[i] = entries[i].get();
+            }
+        }
+        return arguments;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.action;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Default implementation of {@code Action}, created by {@link DefaultActionManager}.
+ * <p>
+ * Changes to the {@code id}, {@code name}, and {@code enabled} properties are published to registered
+ * {@link PropertyListener}s, allowing UI toolkits to keep their own controls in sync.
+ *
+ * @author Andres Almiray
+ */
+public final class DefaultAction implements Action {
+    private final List<PropertyListener> propertyListeners = new CopyOnWriteArrayList<>();
+    private final DefaultActionManager actionManager;
+    private final ActionDefinition definition;
+    private final Object owner;
+    private final ExecutionGate executionGate;
+    private final ContextualArguments contextualArguments;
+    private final LongAdder suppressedExecutions = new LongAdder();
+    private volatile ActionInterceptorChain interceptorChain = ActionInterceptorChain.EMPTY;
+    private volatile ActionInterceptor[] interceptors = new ActionInterceptor[0];
+    private volatile String id;
+    private volatile String name;
+    private volatile boolean enabled;
+
+    DefaultAction(DefaultActionManager actionManager, ActionDefinition definition, Object owner, ActionContext actionContext) {
+        this.actionManager = actionManager;
+        this.definition = definition;
+        this.owner = owner;
+        this.id = definition.getMetadata().getActionId();
+        this.name = definition.getMetadata().getActionName();
+        this.enabled = definition.isEnabled();
+        this.executionGate = ExecutionGate.of(definition.getMetadata());
+        this.contextualArguments = ContextualArguments.of(definition.getMetadata(), actionContext);
+    }
+
+    ActionDefinition getDefinition() {
+        return definition;
+    }
+
+    /**
+     * Supplies the values of contextual parameters that were not given.
+     */
+    Object[] bindArguments(Object[] args) {
+        return contextualArguments == null ? args : contextualArguments.bind(args);
+    }
+
+    ExecutionGate getExecutionGate() {
+        return executionGate;
+    }
+
+    void suppressed() {
+        suppressedExecutions.increment();
+    }
+
+    /**
+     * Returns the number of times this action was triggered without starting an execution of its own because of
+     * its {@code ExecutionPolicy}.
+     *
+     * @return a number equal or greater than {@code 0}.
+     */
+    public long getSuppressedExecutionCount() {
+        return suppressedExecutions.sum();
+    }
+
+    ActionInterceptorChain getInterceptorChain() {
+        return interceptorChain;
+    }
+
+    void setInterceptorChain(ActionInterceptorChain interceptorChain) {
+        this.interceptorChain = interceptorChain;
+    }
+
+    /**
+     * Returns all interceptors that configured this action, including those left out of its execution chain.
+     */
+    ActionInterceptor[] getInterceptors() {
+        return interceptors;
+    }
+
+    void setInterceptors(ActionInterceptor[] interceptors) {
+        this.interceptors = interceptors;
+    }
+
+    @Override
+    public ActionMetadata getActionMetadata() {
+        return definition.getMetadata();
+    }
+
+    @Override
+    public Object getOwner() {
+        return owner;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public void setId(String id) {
+        requireNonNull(id, "id");
+        if (id.trim().isEmpty()) {
+            throw new IllegalArgumentException("Argument 'id' must not be blank");
+        }
+        String oldValue = this.id;
+        this.id = id;
+        firePropertyChange(PROPERTY_ID, oldValue, id);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void setName(String name) {
+        requireNonNull(name, "name");
+        String oldValue = this.name;
+        this.name = name;
+        firePropertyChange(PROPERTY_NAME, oldValue, name);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        boolean oldValue = this.enabled;
+        this.enabled = enabled;
+        firePropertyChange(PROPERTY_ENABLED, oldValue, enabled);
+    }
+
+    @Override
+    public void execute(Object... args) {
+        actionManager.execute(this, args);
+    }
+
+    @Override
+    public CompletionStage<Object> executeAsync(Object... args) {
+        return actionManager.executeAsync(this, args);
+    }
+
+    /**
+     * Registers a listener that is notified every time a property of this action changes its value.
+     *
+     * @param listener the listener to be added. Must not be {@code null}.
+     */
+    public void addPropertyListener(PropertyListener listener) {
+        propertyListeners.add(requireNonNull(listener, "listener"));
+    }
+
+    /**
+     * Removes a listener previously registered with {@link #addPropertyListener(PropertyListener)}.
+     *
+     * @param listener the listener to be removed. Must not be {@code null}.
+     */
+    public void removePropertyListener(PropertyListener listener) {
+        propertyListeners.remove(requireNonNull(listener, "listener"));
+    }
+
+    private void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+        if (Objects.equals(oldValue, newValue)) {
+            return;
+        }
+        for (PropertyListener listener : propertyListeners) {
+            listener.propertyChanged(this, propertyName, oldValue, newValue);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Action[" + definition.getMetadata().getFullyQualifiedName() + ", id=" + id + ", enabled=" + enabled + "]";
+    }
+
+    /**
+     * Receives changes to the {@code id}, {@code name}, and {@code enabled} properties of a {@code DefaultAction}.
+     * Listeners are called on the thread that changed the property.
+     */
+    @FunctionalInterface
+    public interface PropertyListener {
+        /**
+         * Invoked after a property changed its value.
+         *
+         * @param action       the action whose property changed. Never {@code null}.
+         * @param propertyName one of {@code Action.PROPERTY_ID}, {@code Action.PROPERTY_NAME}, or {@code Action.PROPERTY_ENABLED}.
+         * @param oldValue     the previous value of the property.
+         * @param newValue     the current value of the property.
+         */
+        void propertyChanged(DefaultAction action, String propertyName, Object oldValue, Object newValue);
+    }
+}
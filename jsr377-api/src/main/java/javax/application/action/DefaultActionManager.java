@@ -0,0 +1,567 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.action;
+
+import javax.application.action.spi.ActionDescriptor;
+import javax.application.action.spi.ActionMetadataProvider;
+import javax.application.threading.Threading;
+import javax.application.threading.ThreadingHandler;
+import java.lang.annotation.Annotation;
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reference implementation for creating and executing actions.
+ * <p>
+ * Methods annotated with {@link ActionHandler}, or with an annotation that is itself annotated with
+ * {@code ActionHandler}, become actions. The {@code ActionMetadata} and the invoker of each method are computed
+ * once per class and shared by all actions and owners of that class; executing an action does not look up
+ * annotations or methods. Parameters are considered contextual or nullable if they are annotated with an annotation
+ * whose simple name is {@code Contextual} or {@code Nullable}, respectively.
+ * <p>
+ * Classes with an {@link ActionMetadataProvider} are not scanned; their actions are created from the provider's
+ * descriptors and invoked through its {@code ActionInvocation}s. Their handler methods are looked up with
+ * reflection only when an interceptor configures an action or annotations are read. Providers are located with
+ * {@link ServiceLoader} once per class loader and indexed by the name of the class they describe. Each class of
+ * the owner's hierarchy without a provider is scanned as usual.
+ * <p>
+ * Actions take a snapshot of the registered {@code ActionInterceptor}s when they are created. Interceptors that
+ * do not apply to an action, as reported by {@link ActionInterceptor#appliesTo(Action, Method)} right after
+ * {@code configure()}, are left out of its execution chain; actions without interceptors invoke their method
+ * directly. On execution, {@code before()} is called in registration order and {@code after()} in reverse order.
+ * <p>
+ * Asynchronous executions honor the {@code Threading} annotation of the action's method, or else of its
+ * owner's class, when the manager was created with a {@code ThreadingHandler}. Actions without such annotation
+ * run on the calling thread.
+ * <p>
+ * The {@link ExecutionPolicy} of each action is enforced for both synchronous and asynchronous executions.
+ * Debounced actions always execute asynchronously, once their quiet period elapses.
+ * <p>
+ * Actions declaring state dependencies with {@link ActionHandler#dependsOn()} are indexed by state key, so that
+ * {@link #stateChanged(String...)} updates only the actions affected by a change. The index references actions
+ * weakly, thus actions that are no longer referenced by the application are not kept alive by it.
+ * <p>
+ * Contextual parameters are bound to entries of the manager's {@link ActionContext} when actions are created;
+ * on execution their values are written into a copy of the arguments array, without any lookups. The array is
+ * copied only if a contextual value is missing from it.
+ *
+ * @author Andres Almiray
+ */
+public class DefaultActionManager {
+    private static final Object[] NO_ARGS = new Object[0];
+    private static final ActionInterceptor[] NO_INTERCEPTORS = new ActionInterceptor[0];
+
+    private static final ClassValue<ActionDefinition[]> DEFINITIONS = new ClassValue<ActionDefinition[]>() {
+        @Override
+        protected ActionDefinition[] computeValue(Class<?> type) {
+            return resolveDefinitions(type);
+        }
+    };
+
+    /**
+     * The provider of each class, {@code null} if it has none. Providers are located through the class loader of
+     * the class they describe, thus providers of classes loaded after this class, for example by plugins, are
+     * found, and they are released together with their class.
+     */
+    // providers by owner type name, indexed once per class loader; indexes are held softly since the providers
+    // they hold would otherwise keep their class loader reachable through its weak key
+    private static final Map<ClassLoader, SoftReference<Map<String, ActionMetadataProvider>>> PROVIDERS = new WeakHashMap<>();
+
+    private final List<ActionInterceptor> interceptors = new CopyOnWriteArrayList<>();
+    private final ThreadingHandler threadingHandler;
+    private final LongAdder suppressedExecutions = new LongAdder();
+    private final ActionContext actionContext = new ActionContext();
+    // both guarded by staleActions; actions are indexed weakly so that the index does not keep their owners alive
+    private final Map<String, Set<DefaultAction>> actionsByState = new HashMap<>();
+    private final Set<DefaultAction> staleActions = new LinkedHashSet<>();
+    private boolean updateScheduled;
+
+    /**
+     * Creates a manager whose asynchronous executions run on the calling thread. Executions deferred by an
+     * {@code ExecutionPolicy} run on the common {@code ForkJoinPool}.
+     */
+    public DefaultActionManager() {
+        this.threadingHandler = null;
+    }
+
+    /**
+     * Creates a manager whose asynchronous executions honor the {@code Threading} policy of each action.
+     *
+     * @param threadingHandler the handler used to dispatch asynchronous executions. Must not be {@code null}.
+     */
+    public DefaultActionManager(ThreadingHandler threadingHandler) {
+        this.threadingHandler = requireNonNull(threadingHandler, "threadingHandler");
+    }
+
+    /**
+     * Returns the context that supplies the values of contextual parameters of the actions created by this manager.
+     * Values should be bound before the actions that use them are created.
+     *
+     * @return a non-null context.
+     */
+    public ActionContext getActionContext() {
+        return actionContext;
+    }
+
+    /**
+     * Registers an interceptor. Only actions created afterwards are affected.
+     *
+     * @param interceptor the interceptor to be added. Must not be {@code null}.
+     */
+    public void addActionInterceptor(ActionInterceptor interceptor) {
+        interceptors.add(requireNonNull(interceptor, "interceptor"));
+    }
+
+    /**
+     * Unregisters an interceptor. Only actions created afterwards are affected.
+     *
+     * @param interceptor the interceptor to be removed. Must not be {@code null}.
+     */
+    public void removeActionInterceptor(ActionInterceptor interceptor) {
+        interceptors.remove(requireNonNull(interceptor, "interceptor"));
+    }
+
+    /**
+     * Returns the registered interceptors, in registration order.
+     *
+     * @return a non-null, unmodifiable list.
+     */
+    public List<ActionInterceptor> getActionInterceptors() {
+        return Collections.unmodifiableList(interceptors);
+    }
+
+    /**
+     * Creates an action for every action handler method of the given owner.
+     * Every registered interceptor configures and then updates each action, even if it does not apply to its execution.
+     *
+     * @param owner the instance that defines the action handler methods. Must not be {@code null}.
+     *
+     * @return the created actions, keyed by action id. Never returns {@code null}.
+     *
+     * @throws IllegalArgumentException if an action handler method is invalid.
+     */
+    public Map<String, Action> createActions(Object owner) {
+        requireNonNull(owner, "owner");
+
+        ActionDefinition[] definitions = DEFINITIONS.get(owner.getClass());
+        ActionInterceptor[] registered = interceptors.toArray(NO_INTERCEPTORS);
+        Map<String, Action> actions = new LinkedHashMap<>();
+        for (ActionDefinition definition : definitions) {
+            DefaultAction action = new DefaultAction(this, definition, owner, actionContext);
+            List<ActionInterceptor> applicable = new ArrayList<>(registered.length);
+            for (ActionInterceptor interceptor : registered) {
+                interceptor.configure(action, definition.getMethod());
+                if (interceptor.appliesTo(action, definition.getMethod())) {
+                    applicable.add(interceptor);
+                }
+            }
+            action.setInterceptorChain(ActionInterceptorChain.compile(applicable.toArray(NO_INTERCEPTORS)));
+            action.setInterceptors(registered);
+            for (ActionInterceptor interceptor : registered) {
+                interceptor.update(action);
+            }
+            actions.put(action.getId(), action);
+
+            String[] stateKeys = definition.getMetadata().getStateDependencies();
+            if (stateKeys.length > 0) {
+                synchronized (staleActions) {
+                    for (String stateKey : stateKeys) {
+                        actionsByState.computeIfAbsent(stateKey, k -> Collections.newSetFromMap(new WeakHashMap<>())).add(action);
+                    }
+                }
+            }
+        }
+        return actions;
+    }
+
+    /**
+     * Stops tracking the state dependencies of all actions of the given owner. Actions that are no longer
+     * referenced stop being tracked on their own once they are garbage collected; this method releases them
+     * right away.
+     *
+     * @param owner the instance whose actions are no longer needed. Must not be {@code null}.
+     */
+    public void removeActions(Object owner) {
+        requireNonNull(owner, "owner");
+        synchronized (staleActions) {
+            for (Iterator<Set<DefaultAction>> it = actionsByState.values().iterator(); it.hasNext(); ) {
+                Set<DefaultAction> actions = it.next();
+                actions.removeIf(action -> action.getOwner() == owner);
+                if (actions.isEmpty()) {
+                    it.remove();
+                }
+            }
+            staleActions.removeIf(action -> action.getOwner() == owner);
+        }
+    }
+
+    /**
+     * Signals that the given application state keys have changed. Cached context values depending on any of the
+     * keys are invalidated, and every action that depends on any of the keys is updated by its interceptors, once,
+     * in a single batch. The batch runs on the UI thread if the manager
+     * was created with a {@code ThreadingHandler}, otherwise on the calling thread. Changes signalled before a
+     * pending batch runs are folded into it.
+     *
+     * @param stateKeys the keys that have changed. Must not be {@code null}.
+     */
+    public void stateChanged(String... stateKeys) {
+        requireNonNull(stateKeys, "stateKeys");
+        actionContext.invalidate(stateKeys);
+        synchronized (staleActions) {
+            for (String stateKey : stateKeys) {
+                Set<DefaultAction> actions = actionsByState.get(stateKey);
+                if (actions != null) {
+                    staleActions.addAll(actions);
+                }
+            }
+            if (staleActions.isEmpty() || updateScheduled) {
+                return;
+            }
+            updateScheduled = true;
+        }
+
+        if (threadingHandler == null || threadingHandler.isUIThread()) {
+            updateStaleActions();
+        } else {
+            threadingHandler.executeInsideUIAsync(this::updateStaleActions);
+        }
+    }
+
+    private void updateStaleActions() {
+        DefaultAction[] actions;
+        synchronized (staleActions) {
+            actions = staleActions.toArray(new DefaultAction[0]);
+            staleActions.clear();
+            updateScheduled = false;
+        }
+
+        for (DefaultAction action : actions) {
+            try {
+                for (ActionInterceptor interceptor : action.getInterceptors()) {
+                    interceptor.update(action);
+                }
+            } catch (RuntimeException e) {
+                // a failing update must not prevent the rest of the batch from being updated
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+        }
+    }
+
+    /**
+     * Executes an action through its compiled interceptor chain.
+     *
+     * @return the result of the action, as returned by the last interceptor's {@code after()}.
+     */
+    Object execute(DefaultAction action, Object[] args) {
+        Object[] arguments = action.bindArguments(args != null ? args : NO_ARGS);
+        ExecutionGate gate = action.getExecutionGate();
+        return gate == null ? invoke(action, arguments) : gate.execute(this, action, arguments);
+    }
+
+    /**
+     * Executes an action on the calling thread, bypassing its execution policy.
+     */
+    Object invoke(DefaultAction action, Object[] args) {
+        return action.getInterceptorChain().execute(action, args);
+    }
+
+    /**
+     * Records a trigger that did not start an execution of its own.
+     */
+    void suppressed(DefaultAction action) {
+        suppressedExecutions.increment();
+        action.suppressed();
+    }
+
+    /**
+     * Returns the number of times an action was triggered without starting an execution of its own because of its
+     * {@code ExecutionPolicy}, across all actions created by this manager.
+     *
+     * @return a number equal or greater than {@code 0}.
+     */
+    public long getSuppressedExecutionCount() {
+        return suppressedExecutions.sum();
+    }
+
+    CompletionStage<Object> executeAsync(DefaultAction action, Object[] args) {
+        Object[] arguments = action.bindArguments(args != null ? args : NO_ARGS);
+        ExecutionGate gate = action.getExecutionGate();
+        return gate == null ? dispatch(action, arguments) : gate.executeAsync(this, action, arguments);
+    }
+
+    /**
+     * Executes an action asynchronously, dispatching it according to its {@code Threading} policy and bypassing
+     * its execution policy. Synchronous policies are treated as their asynchronous counterparts so that the
+     * caller never blocks.
+     */
+    CompletableFuture<Object> dispatch(DefaultAction action, Object[] arguments) {
+        return dispatch(action, arguments, false);
+    }
+
+    /**
+     * Like {@link #dispatch(DefaultAction, Object[])}, for an execution whose trigger was deferred by its execution
+     * policy. The thread that fires it is not the one that triggered it, so actions that would run on the calling
+     * thread are handed to the background executor of the {@code ThreadingHandler} instead. Without a
+     * {@code ThreadingHandler} the action runs on the common {@code ForkJoinPool}.
+     */
+    CompletableFuture<Object> dispatchDeferred(DefaultAction action, Object[] arguments) {
+        return dispatch(action, arguments, true);
+    }
+
+    private CompletableFuture<Object> dispatch(DefaultAction action, Object[] arguments, boolean deferred) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        Runnable execution = () -> {
+            if (!future.isDone()) {
+                action.getInterceptorChain().executeAsync(action, arguments, future);
+            }
+        };
+
+        ActionDefinition definition = action.getDefinition();
+        Threading.Policy threading = definition.getThreadingPolicy();
+        if (threadingHandler == null && deferred) {
+            try {
+                ForkJoinPool.commonPool().execute(execution);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+            return future;
+        }
+        if (threadingHandler == null || (threading == null && !deferred)) {
+            execution.run();
+            return future;
+        }
+
+        // a deferred execution without a Threading policy follows the default policy of the annotation
+        Threading.Policy policy = threading != null ? threading : Threading.Policy.OUTSIDE_UITHREAD;
+        Threading.Lane lane = definition.getThreadingLane();
+        try {
+            switch (policy) {
+                case OUTSIDE_UITHREAD:
+                    if (deferred) {
+                        threadingHandler.executeOutsideUIAsync(lane, execution);
+                    } else {
+                        threadingHandler.executeOutsideUI(execution);
+                    }
+                    break;
+                case OUTSIDE_UITHREAD_ASYNC:
+                    threadingHandler.executeOutsideUIAsync(lane, execution);
+                    break;
+                case INSIDE_UITHREAD_SYNC:
+                case INSIDE_UITHREAD_ASYNC:
+                    if (threadingHandler.isUIThread()) {
+                        execution.run();
+                    } else {
+                        threadingHandler.executeInsideUIAsync(execution);
+                    }
+                    break;
+                case SKIP:
+                default:
+                    if (deferred) {
+                        threadingHandler.executeOutsideUIAsync(lane, execution);
+                    } else {
+                        execution.run();
+                    }
+            }
+        } catch (RuntimeException e) {
+            // the execution could not be dispatched, for example because the handler was shut down
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private static ActionDefinition[] resolveDefinitions(Class<?> ownerType) {
+        List<ActionDefinition> definitions = new ArrayList<>();
+        Set<String> signatures = new HashSet<>();
+        Set<String> actionIds = new HashSet<>();
+
+        for (Class<?> type = ownerType; type != null && type != Object.class; type = type.getSuperclass()) {
+            ActionMetadataProvider provider = findProvider(type);
+            if (provider != null) {
+                for (ActionDescriptor descriptor : provider.getActionDescriptors()) {
+                    // an overriding method takes precedence over the method it overrides
+                    if (!signatures.add(descriptor.getMethodName() + Arrays.toString(descriptor.getParameterTypes()))) {
+                        continue;
+                    }
+
+                    checkActionId(ownerType, actionIds, descriptor.getActionId());
+                    definitions.add(createDefinition(ownerType, type, descriptor));
+                }
+                continue;
+            }
+
+            for (Method method : type.getDeclaredMethods()) {
+                ActionHandler handler = findActionHandler(method);
+                if (handler == null || method.isBridge() || method.isSynthetic()) {
+                    continue;
+                }
+
+                if (!signatures.add(method.getName() + Arrays.toString(method.getParameterTypes()))) {
+                    continue;
+                }
+
+                if (Modifier.isStatic(method.getModifiers())) {
+                    throw new IllegalArgumentException("Action handler method " + method + " must not be static");
+                }
+
+                String actionId = handler.value().isEmpty() ? method.getName() : handler.value();
+                checkActionId(ownerType, actionIds, actionId);
+
+                method.setAccessible(true);
+                definitions.add(createDefinition(ownerType, method, handler, actionId));
+            }
+        }
+
+        return definitions.toArray(new ActionDefinition[0]);
+    }
+
+    private static ActionMetadataProvider findProvider(Class<?> type) {
+        ActionMetadataProvider provider = providersOf(type.getClassLoader()).get(type.getName());
+        // the class loader may see a provider for another class of the same name
+        return provider != null && provider.getOwnerType() == type ? provider : null;
+    }
+
+    private static Map<String, ActionMetadataProvider> providersOf(ClassLoader classLoader) {
+        synchronized (PROVIDERS) {
+            SoftReference<Map<String, ActionMetadataProvider>> reference = PROVIDERS.get(classLoader);
+            Map<String, ActionMetadataProvider> providers = reference != null ? reference.get() : null;
+            if (providers != null) {
+                return providers;
+            }
+        }
+
+        // loading providers may load further classes, do not hold the lock meanwhile
+        Map<String, ActionMetadataProvider> providers = new HashMap<>();
+        Iterator<ActionMetadataProvider> iterator = ServiceLoader.load(ActionMetadataProvider.class, classLoader).iterator();
+        while (true) {
+            try {
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                ActionMetadataProvider provider = iterator.next();
+                providers.putIfAbsent(provider.getOwnerType().getName(), provider);
+            } catch (ServiceConfigurationError | LinkageError e) {
+                // stale or broken entries are skipped, their owners are resolved with reflection
+            }
+        }
+
+        synchronized (PROVIDERS) {
+            PROVIDERS.put(classLoader, new SoftReference<>(providers));
+        }
+        return providers;
+    }
+
+    private static void checkActionId(Class<?> ownerType, Set<String> actionIds, String actionId) {
+        if (!actionIds.add(actionId)) {
+            throw new IllegalArgumentException("Class " + ownerType.getName() + " defines more than one action with id '" + actionId + "'");
+        }
+    }
+
+    private static ActionHandler findActionHandler(Method method) {
+        ActionHandler handler = method.getAnnotation(ActionHandler.class);
+        if (handler != null) {
+            return handler;
+        }
+        for (Annotation annotation : method.getAnnotations()) {
+            handler = annotation.annotationType().getAnnotation(ActionHandler.class);
+            if (handler != null) {
+                return handler;
+            }
+        }
+        return null;
+    }
+
+    private static ActionDefinition createDefinition(Class<?> ownerType, Method method, ActionHandler handler, String actionId) {
+        ActionMethod actionMethod = new ActionMethod(method);
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+        Parameter[] methodParameters = method.getParameters();
+        ActionParameter[] parameters = new ActionParameter[parameterTypes.length];
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] = new DefaultActionParameter(i, parameterAnnotations[i], parameterTypes[i], methodParameters[i].getName());
+        }
+
+        Threading threading = method.getAnnotation(Threading.class);
+        if (threading == null) {
+            threading = method.getDeclaringClass().getAnnotation(Threading.class);
+        }
+
+        DefaultActionMetadata metadata = createMetadata(ownerType, actionMethod, method.getReturnType(), parameters, actionId,
+            handler.name().isEmpty() ? method.getName() : handler.name(), handler.executionPolicy(), handler.interval(),
+            handler.rate(), handler.dependsOn());
+        return new ActionDefinition(actionMethod, handler.enabled(), metadata, threading != null ? threading.value() : null,
+            threading != null ? threading.lane() : Threading.Lane.DEFAULT, new ActionInvoker(method));
+    }
+
+    /**
+     * Creates the definition of a method described by a provider, without looking up the method.
+     */
+    private static ActionDefinition createDefinition(Class<?> ownerType, Class<?> declaringType, ActionDescriptor descriptor) {
+        ActionMethod method = new ActionMethod(declaringType, descriptor.getMethodName(), descriptor.getParameterTypes());
+        ActionDescriptor.Parameter[] described = descriptor.getParameters();
+        ActionParameter[] parameters = new ActionParameter[described.length];
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] = new DefaultActionParameter(i, method, described[i].getType(), described[i].getName(),
+                described[i].isContextual(), described[i].isNullable());
+        }
+
+        DefaultActionMetadata metadata = createMetadata(ownerType, method, descriptor.getReturnType(), parameters,
+            descriptor.getActionId(), descriptor.getActionName(), descriptor.getExecutionPolicy(),
+            descriptor.getExecutionInterval(), descriptor.getExecutionRate(), descriptor.getStateDependencies());
+        return new ActionDefinition(method, descriptor.isEnabled(), metadata, descriptor.getThreadingPolicy(),
+            descriptor.getThreadingLane(), descriptor.getInvocation());
+    }
+
+    private static DefaultActionMetadata createMetadata(Class<?> ownerType, ActionMethod method, Class<?> returnType,
+                                                        ActionParameter[] parameters, String actionId, String actionName,
+                                                        ExecutionPolicy executionPolicy, long executionInterval,
+                                                        int executionRate, String[] stateDependencies) {
+        if (executionPolicy == ExecutionPolicy.DEBOUNCE && executionInterval <= 0L) {
+            throw new IllegalArgumentException("Action handler method " + method + " must define a positive interval to be debounced");
+        }
+        if (executionPolicy == ExecutionPolicy.THROTTLE && executionRate <= 0) {
+            throw new IllegalArgumentException("Action handler method " + method + " must define a positive rate to be throttled");
+        }
+
+        return new DefaultActionMetadata(method, returnType, parameters, actionId, actionName,
+            ownerType.getName() + "." + method.getName(), executionPolicy, executionInterval, executionRate, stateDependencies);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.action;
+
+import java.lang.annotation.Annotation;
+
+/**
+ * Default implementation of {@code ActionMetadata}.
+ * <p>
+ * Instances are created once per action handler method and shared by all actions created from it; the
+ * arrays are returned as is and must not be modified. Annotations are read only when asked for.
+ *
+ * @author Andres Almiray
+ */
+final class DefaultActionMetadata implements ActionMetadata {
+    private final ActionMethod method;
+    private final Class<?> returnType;
+    private final ActionParameter[] parameters;
+    private final String actionId;
+    private final String actionName;
+    private final String fullyQualifiedName;
+    private final boolean contextualArgs;
+    private final ExecutionPolicy executionPolicy;
+    private final long executionInterval;
+    private final int executionRate;
+    private final String[] stateDependencies;
+    // computed on first use, racing threads compute equal values
+    private volatile Annotation[] annotations;
+    private String signature;
+
+    DefaultActionMetadata(ActionMethod method, Class<?> returnType, ActionParameter[] parameters,
+                          String actionId, String actionName, String fullyQualifiedName,
+                          ExecutionPolicy executionPolicy, long executionInterval, int executionRate, String[] stateDependencies) {
+        this.method = method;
+        this.returnType = returnType;
+        this.parameters = parameters;
+        this.actionId = actionId;
+        this.actionName = actionName;
+        this.fullyQualifiedName = fullyQualifiedName;
+        this.executionPolicy = executionPolicy;
+        this.executionInterval = executionInterval;
+        this.executionRate = executionRate;
+        this.stateDependencies = stateDependencies;
+
+        boolean contextual = false;
+        for (ActionParameter parameter : parameters) {
+            contextual |= parameter.isContextual();
+        }
+        this.contextualArgs = contextual;
+    }
+
+    @Override
+    public Annotation[] getAnnotations() {
+        Annotation[] a = annotations;
+        if (a == null) {
+            a = method.get().getAnnotations();
+            annotations = a;
+        }
+        return a;
+    }
+
+    @Override
+    public Class<?> getReturnType() {
+        return returnType;
+    }
+
+    @Override
+    public ActionParameter[] getParameters() {
+        return parameters;
+    }
+
+    @Override
+    public String getActionId() {
+        return actionId;
+    }
+
+    @Override
+    public String getActionName() {
+        return actionName;
+    }
+
+    @Override
+    public String getFullyQualifiedName() {
+        return fullyQualifiedName;
+    }
+
+    @Override
+    public boolean hasContextualArgs() {
+        return contextualArgs;
+    }
+
+    @Override
+    public ExecutionPolicy getExecutionPolicy() {
+        return executionPolicy;
+    }
+
+    @Override
+    public long getExecutionInterval() {
+        return executionInterval;
+    }
+
+    @Override
+    public int getExecutionRate() {
+        return executionRate;
+    }
+
+    @Override
+    public String[] getStateDependencies() {
+        return stateDependencies;
+    }
+
+    /**
+     * Returns the fully qualified name of the action followed by its parameter types, such as
+     * {@code com.acme.Editor.save(java.lang.String)}, which tells overloaded action handler methods apart.
+     */
+    String getSignature() {
+        String s = signature;
+        if (s == null) {
+            s = signatureOf(this);
+            signature = s;
+        }
+        return s;
+    }
+
+    /**
+     * Computes the signature of the given metadata, see {@link #getSignature()}.
+     */
+    static String signatureOf(ActionMetadata metadata) {
+        StringBuilder signature = new StringBuilder(metadata.getFullyQualifiedName()).append('(');
+        ActionParameter[] parameters = metadata.getParameters();
+        for (int i = 0; i < parameters.length; i++) {
+            if (i > 0) {
+                signature.append(',');
+            }
+            signature.append(parameters[i].getType().getTypeName());
+        }
+        return signature.append(')').toString();
+    }
+
+    @Override
+    public String toString() {
+        return "ActionMetadata[" + fullyQualifiedName + "]";
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.action;
+
+import java.lang.annotation.Annotation;
+
+/**
+ * Default implementation of {@code ActionParameter}.
+ * <p>
+ * Instances are created once per action handler method and shared by all actions created from it; the
+ * annotations array is returned as is and must not be modified. Parameters described by an
+ * {@code ActionMetadataProvider} read their annotations only when asked for them.
+ *
+ * @author Andres Almiray
+ */
+final class DefaultActionParameter implements ActionParameter {
+    private final int index;
+    private final ActionMethod method;
+    private final Class<?> type;
+    private final String name;
+    private final boolean contextual;
+    private final boolean nullable;
+    // read on first use, racing threads read equal values
+    private volatile Annotation[] annotations;
+
+    DefaultActionParameter(int index, Annotation[] annotations, Class<?> type, String name) {
+        this(index, null, type, name, isAnnotatedWith(annotations, "Contextual"), isAnnotatedWith(annotations, "Nullable"));
+        this.annotations = annotations;
+    }
+
+    DefaultActionParameter(int index, ActionMethod method, Class<?> type, String name, boolean contextual, boolean nullable) {
+        this.index = index;
+        this.method = method;
+        this.type = type;
+        this.name = name;
+        this.contextual = contextual;
+        this.nullable = !type.isPrimitive() && nullable;
+    }
+
+    /**
+     * Matches annotations by simple name so that any {@code Contextual} or {@code Nullable} qualifier is honored,
+     * regardless of the library that defines it.
+     */
+    private static boolean isAnnotatedWith(Annotation[] annotations, String simpleName) {
+        for (Annotation annotation : annotations) {
+            if (simpleName.equals(annotation.annotationType().getSimpleName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public Annotation[] getAnnotations() {
+        Annotation[] a = annotations;
+        if (a == null) {
+            a = method.get().getParameterAnnotations()[index];
+            annotations = a;
+        }
+        return a;
+    }
+
+    @Override
+    public Class<?> getType() {
+        return type;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean isContextual() {
+        return contextual;
+    }
+
+    @Override
+    public boolean isNullable() {
+        return nullable;
+    }
+
+    @Override
+    public String toString() {
+        return "ActionParameter[index=" + index + ", type=" + type.getName() + ", name=" + name + "]";
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.action;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Enforces the {@link ExecutionPolicy} of a single action.
+ * <p>
+ * Gates hold the state of one action, thus every action gets its own instance. Actions whose policy is
+ * {@code NONE} have no gate at all.
+ * <p>
+ * Callers that share an execution each receive their own future. Cancelling it detaches that caller only; the
+ * shared execution keeps running for everyone else.
+ *
+ * @author Andres Almiray
+ */
+abstract class ExecutionGate {
+    /**
+     * Creates the gate for the given metadata, {@code null} if the policy is {@code NONE}.
+     */
+    static ExecutionGate of(ActionMetadata metadata) {
+        switch (metadata.getExecutionPolicy()) {
+            case DEBOUNCE:
+                return new Debounce(metadata.getExecutionInterval());
+            case THROTTLE:
+                return new Throttle(metadata.getExecutionRate());
+            case SINGLE_FLIGHT:
+                return new SingleFlight();
+            case NONE:
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Executes the action on the calling thread if the policy allows it.
+     *
+     * @return the result of the action, {@code null} if the execution was suppressed or deferred.
+     */
+    abstract Object execute(DefaultActionManager actionManager, DefaultAction action, Object[] args);
+
+    abstract CompletionStage<Object> executeAsync(DefaultActionManager actionManager, DefaultAction action, Object[] args);
+
+    /**
+     * Creates a future of its own for a caller of the given shared execution.
+     */
+    static CompletableFuture<Object> join(CompletableFuture<Object> shared) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        pipe(shared, future);
+        return future;
+    }
+
+    /**
+     * Completes {@code target} with the outcome of {@code source}. Cancelling {@code target} has no effect on
+     * {@code source}.
+     */
+    static void pipe(CompletableFuture<Object> source, CompletableFuture<Object> target) {
+        pipe(source, target, null);
+    }
+
+    /**
+     * Like {@link #pipe(CompletableFuture, CompletableFuture)}, running {@code beforeCompletion} once
+     * {@code source} completes and before {@code target} is completed.
+     */
+    static void pipe(CompletableFuture<Object> source, CompletableFuture<Object> target, Runnable beforeCompletion) {
+        source.whenComplete((value, throwable) -> {
+            if (beforeCompletion != null) {
+                beforeCompletion.run();
+            }
+            if (source.isCancelled()) {
+                target.cancel(false);
+            } else if (throwable != null) {
+                target.completeExceptionally(ActionInterceptorChain.unwrap(throwable));
+            } else {
+                target.complete(value);
+            }
+        });
+    }
+
+    /**
+     * A token bucket holding up to {@code rate} permits, refilled at {@code rate} permits per second. Bursts of up
+     * to {@code rate} triggers execute at once rather than being spread evenly over the second.
+     * <p>
+     * The bucket is tracked as the time at which it would be full again, so that acquiring a permit is a single
+     * compare-and-set.
+     */
+    private static final class Throttle extends ExecutionGate {
+        private final long spacingNanos;
+        private final long capacityNanos;
+        private final AtomicLong fullAt;
+
+        private Throttle(int rate) {
+            this.spacingNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+            this.capacityNanos = spacingNanos * rate;
+            this.fullAt = new AtomicLong(System.nanoTime());
+        }
+
+        private boolean tryAcquire() {
+            long now = System.nanoTime();
+            while (true) {
+                long current = fullAt.get();
+                // a bucket that filled up in the past holds no more than its capacity
+                long next = (current - now < 0 ? now : current) + spacingNanos;
+                if (next - now > capacityNanos) {
+                    return false;
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        Object execute(DefaultActionManager actionManager, DefaultAction action, Object[] args) {
+            if (tryAcquire()) {
+                return actionManager.invoke(action, args);
+            }
+            actionManager.suppressed(action);
+            return null;
+        }
+
+        @Override
+        CompletionStage<Object> executeAsync(DefaultActionManager actionManager, DefaultAction action, Object[] args) {
+            if (tryAcquire()) {
+                return actionManager.dispatch(action, args);
+            }
+            actionManager.suppressed(action);
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            future.cancel(false);
+            return future;
+        }
+    }
+
+    /**
+     * Asynchronous triggers that overlap a running execution join it. Synchronous triggers never wait for it, since
+     * the running execution may be the caller itself; they return right away without executing.
+     */
+    private static final class SingleFlight extends ExecutionGate {
+        private final AtomicReference<CompletableFuture<Object>> inFlight = new AtomicReference<>();
+
+        @Override
+        Object execute(DefaultActionManager actionManager, DefaultAction action, Object[] args) {
+            CompletableFuture<Object> flight = new CompletableFuture<>();
+            if (!inFlight.compareAndSet(null, flight)) {
+                actionManager.suppressed(action);
+                return null;
+            }
+
+            Object result = null;
+            Throwable failure = null;
+            try {
+                result = actionManager.invoke(action, args);
+                return result;
+            } catch (RuntimeException | Error e) {
+                failure = e;
+                throw e;
+            } finally {
+                inFlight.compareAndSet(flight, null);
+                if (failure != null) {
+                    flight.completeExceptionally(failure);
+                } else {
+                    flight.complete(result);
+                }
+            }
+        }
+
+        @Override
+        CompletionStage<Object> executeAsync(DefaultActionManager actionManager, DefaultAction action, Object[] args) {
+            while (true) {
+                CompletableFuture<Object> current = inFlight.get();
+                if (current != null) {
+                    actionManager.suppressed(action);
+                    return join(current);
+                }
+
+                CompletableFuture<Object> flight = new CompletableFuture<>();
+                if (inFlight.compareAndSet(null, flight)) {
+                    // clear the flight before completing it, so that triggers reacting to its completion start a new one
+                    pipe(actionManager.dispatch(action, args), flight, () -> inFlight.compareAndSet(flight, null));
+                    return join(flight);
+                }
+            }
+        }
+    }
+
+    private static final class Debounce extends ExecutionGate {
+        private final long intervalMillis;
+        private ScheduledFuture<?> timer;
+        private CompletableFuture<Object> pending;
+        private Object[] pendingArgs;
+        private long generation;
+
+        private Debounce(long intervalMillis) {
+            this.intervalMillis = intervalMillis;
+        }
+
+        @Override
+        Object execute(DefaultActionManager actionManager, DefaultAction action, Object[] args) {
+            executeAsync(actionManager, action, args).whenComplete((value, throwable) -> {
+                // nobody is waiting for a deferred synchronous execution, report failures as uncaught
+                Throwable cause = throwable != null ? ActionInterceptorChain.unwrap(throwable) : null;
+                if (cause != null && !(cause instanceof CancellationException)) {
+                    Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, cause);
+                }
+            });
+            return null;
+        }
+
+        @Override
+        synchronized CompletionStage<Object> executeAsync(DefaultActionManager actionManager, DefaultAction action, Object[] args) {
+            if (pending != null && !pending.isDone()) {
+                actionManager.suppressed(action);
+                timer.cancel(false);
+            } else {
+                pending = new CompletableFuture<>();
+            }
+            pendingArgs = args;
+            long current = ++generation;
+            timer = Scheduler.INSTANCE.schedule(() -> fire(actionManager, action, current), intervalMillis, TimeUnit.MILLISECONDS);
+            return join(pending);
+        }
+
+        private void fire(DefaultActionManager actionManager, DefaultAction action, long expectedGeneration) {
+            CompletableFuture<Object> future;
+            Object[] args;
+            synchronized (this) {
+                if (generation != expectedGeneration) {
+                    // a later trigger rescheduled the execution while this timer was about to run
+                    return;
+                }
+                future = pending;
+                args = pendingArgs;
+                pending = null;
+                pendingArgs = null;
+                timer = null;
+            }
+            if (future != null) {
+                // the timer thread is shared by all managers, it only hands the execution over and never runs it
+                pipe(actionManager.dispatchDeferred(action, args), future);
+            }
+        }
+    }
+
+    /**
+     * Fires debounced executions. Actions never run on its thread, see
+     * {@link DefaultActionManager#dispatchDeferred(DefaultAction, Object[])}.
+     */
+    private static final class Scheduler {
+        private static final ScheduledThreadPoolExecutor INSTANCE = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "action-execution-policy");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        static {
+            // triggers arriving in quick succession cancel many timers, do not let them pile up
+            INSTANCE.setRemoveOnCancelPolicy(true);
+        }
+    }
+}
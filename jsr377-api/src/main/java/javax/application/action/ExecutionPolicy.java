@@ -0,0 +1,55 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.action;
+
+/**
+ * Indicates how an action reacts to being triggered faster than it can complete.</p>
+ * The following values apply
+ * <ul>
+ * <li>{@code NONE} - every trigger executes the action.</li>
+ * <li>{@code DEBOUNCE} - the action executes once triggers stop arriving for the configured interval, with the
+ * arguments of the last trigger. The execution follows the {@code Threading} policy of the action; an action that
+ * would run on the triggering thread runs in the background instead.</li>
+ * <li>{@code THROTTLE} - the action executes at most the configured number of times per second; extra triggers
+ * are dropped. A burst of up to that many triggers executes at once.</li>
+ * <li>{@code SINGLE_FLIGHT} - triggers that arrive while the action is executing join the running execution
+ * instead of starting a new one. Synchronous triggers do not wait for the running execution to complete.</li>
+ * </ul>
+ * Triggers that do not start an execution of their own are counted as suppressed.
+ *
+ * @author Andres Almiray
+ * @see ActionHandler#executionPolicy()
+ */
+public enum ExecutionPolicy {
+    /**
+     * Execute on every trigger
+     */
+    NONE,
+    /**
+     * Execute after triggers stop arriving for a given interval
+     */
+    DEBOUNCE,
+    /**
+     * Execute at most a given number of times per second
+     */
+    THROTTLE,
+    /**
+     * Join the running execution, if any
+     */
+    SINGLE_FLIGHT
+}
@@ -0,0 +1,130 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.action;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free log-linear histogram of durations, in nanoseconds.
+ * <p>
+ * Each power of two is divided into {@value #SUB_BUCKET_COUNT} linear buckets, bounding the relative error of
+ * any reported value to about 3%. Recording is a single atomic increment, thus it never blocks.
+ * <p>
+ * The buckets take about 15 KB, and they are only allocated when the first value is recorded, so that histograms
+ * of actions that never execute cost a few counters only.
+ *
+ * @author Andres Almiray
+ */
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (63 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT + 2 * SUB_BUCKET_COUNT;
+
+    private volatile AtomicLongArray counts;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long nanos) {
+        long value = Math.max(0L, nanos);
+        buckets().incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+        for (long current = max.get(); value > current && !max.compareAndSet(current, value); current = max.get()) {
+            // retry
+        }
+    }
+
+    private AtomicLongArray buckets() {
+        AtomicLongArray buckets = counts;
+        if (buckets == null) {
+            synchronized (this) {
+                buckets = counts;
+                if (buckets == null) {
+                    buckets = new AtomicLongArray(BUCKET_COUNT);
+                    counts = buckets;
+                }
+            }
+        }
+        return buckets;
+    }
+
+    long getCount() {
+        return count.sum();
+    }
+
+    long getMax() {
+        return max.get();
+    }
+
+    double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0d : sum.sum() / (double) n;
+    }
+
+    /**
+     * Returns the value below which the given percentage of recorded values fall.
+     *
+     * @param percentile a number between {@code 0} and {@code 100}.
+     */
+    long getValueAtPercentile(double percentile) {
+        AtomicLongArray buckets = counts;
+        if (buckets == null) {
+            return 0L;
+        }
+
+        long total = 0L;
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0L) {
+            return 0L;
+        }
+
+        long rank = Math.max(1L, (long) Math.ceil(Math.min(100d, Math.max(0d, percentile)) / 100d * total));
+        long seen = 0L;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    static int indexOf(long value) {
+        if (value < 2 * SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    static long highestValueOf(int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long mantissa = index - ((long) shift << SUB_BUCKET_BITS);
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,350 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.action;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Records execution counts by {@link ActionExecutionStatus} and latency histograms for every action, keyed by
+ * {@link ActionMetadata#getFullyQualifiedName()} followed by the parameter types of the action, so that
+ * overloaded action handler methods are traced separately.
+ * <p>
+ * Latency is measured from the start of an execution, before any interceptor's {@code before()}, to this
+ * interceptor's {@code after()}, including executions that complete on a different thread, such as asynchronous
+ * actions whose method returns a {@code CompletionStage}. The start time is kept by the execution itself and
+ * received through {@link ActionInterceptor#after(ActionExecutionStatus, Action, Object[], Object, long)}, so no
+ * state is held per thread. Executions reported through the variant without a start time are counted but not
+ * timed. The time spent in other interceptors is recorded if they are registered
+ * through {@link #wrap(ActionInterceptor)}.
+ * <p>
+ * Recording never blocks: counters are {@code LongAdder}s and histograms use atomic buckets. Statistics are
+ * exposed through JMX once {@link #register()} is called, under {@value #OBJECT_NAME} with a {@code name} key
+ * that tells tracers apart, thus every action manager may register a tracer of its own.
+ *
+ * @author Andres Almiray
+ */
+public class TracingActionInterceptor implements ActionInterceptor, ActionTracingMXBean {
+    public static final String OBJECT_NAME = "javax.application:type=ActionTracing";
+
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    private final ObjectName objectName;
+    private final ConcurrentMap<String, Statistics> actionStatistics = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Statistics> interceptorStatistics = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a tracer whose {@code name} key is a number unique to this class loader.
+     */
+    public TracingActionInterceptor() {
+        this(String.valueOf(INSTANCES.incrementAndGet()));
+    }
+
+    /**
+     * Creates a tracer with the given value for the {@code name} key of its {@code ObjectName}.
+     *
+     * @param name the name of this tracer. Must not be blank.
+     */
+    public TracingActionInterceptor(String name) {
+        requireNonNull(name, "name");
+        if (name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Argument 'name' must not be blank");
+        }
+        try {
+            this.objectName = new ObjectName(OBJECT_NAME + ",name=" + quoteIfNeeded(name));
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException("Invalid tracer name '" + name + "'", e);
+        }
+    }
+
+    /**
+     * Returns the name this tracer is registered under.
+     *
+     * @return {@value #OBJECT_NAME} with the {@code name} key of this tracer.
+     */
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+
+    /**
+     * Decorates an interceptor so that the time spent in its {@code before()}, {@code after()}, and
+     * {@code exception()} methods is recorded under its class name. Calls to {@code before()} are counted as
+     * {@code OK} or {@code ABORTED}.
+     *
+     * @param interceptor the interceptor to be timed. Must not be {@code null}.
+     *
+     * @return a timed interceptor. Never returns {@code null}.
+     */
+    public ActionInterceptor wrap(ActionInterceptor interceptor) {
+        return new TimedActionInterceptor(requireNonNull(interceptor, "interceptor"), interceptor.getClass().getName());
+    }
+
+    /**
+     * Registers this interceptor with the platform {@code MBeanServer} under {@link #getObjectName()}.
+     *
+     * @return the name of the registered MBean.
+     */
+    public ObjectName register() {
+        return register(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    /**
+     * Registers this interceptor with the given {@code MBeanServer} under {@link #getObjectName()}.
+     *
+     * @param server the server to register with. Must not be {@code null}.
+     *
+     * @return the name of the registered MBean.
+     */
+    public ObjectName register(MBeanServer server) {
+        requireNonNull(server, "server");
+        try {
+            server.registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register " + objectName, e);
+        }
+    }
+
+    /**
+     * Unregisters this interceptor from the given {@code MBeanServer}.
+     *
+     * @param server the server to unregister from. Must not be {@code null}.
+     */
+    public void unregister(MBeanServer server) {
+        requireNonNull(server, "server");
+        try {
+            server.unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not unregister " + objectName, e);
+        }
+    }
+
+    @Override
+    public void update(Action action) {
+        // nothing to update
+    }
+
+    @Override
+    public void configure(Action action, Method method) {
+        statisticsOf(action.getActionMetadata());
+    }
+
+    @Override
+    public Object[] before(Action action, Object[] args) {
+        return args;
+    }
+
+    @Override
+    public Object after(ActionExecutionStatus status, Action action, Object[] args, Object result) {
+        statisticsOf(action.getActionMetadata()).count(status);
+        return result;
+    }
+
+    @Override
+    public Object after(ActionExecutionStatus status, Action action, Object[] args, Object result, long startNanos) {
+        Statistics statistics = statisticsOf(action.getActionMetadata());
+        statistics.count(status);
+        statistics.histogram.record(System.nanoTime() - startNanos);
+        return result;
+    }
+
+    @Override
+    public boolean exception(Exception exception, Action action, Object[] args) {
+        return false;
+    }
+
+    @Override
+    public List<ActionStatistics> getActionStatistics() {
+        return snapshot(actionStatistics);
+    }
+
+    @Override
+    public List<ActionStatistics> getInterceptorStatistics() {
+        return snapshot(interceptorStatistics);
+    }
+
+    @Override
+    public ActionStatistics findActionStatistics(String name) {
+        Statistics statistics = actionStatistics.get(requireNonNull(name, "name"));
+        return statistics != null ? statistics.snapshot(name) : null;
+    }
+
+    /**
+     * Returns the statistics of the action described by the given metadata.
+     *
+     * @param metadata the metadata of the action. Must not be {@code null}.
+     *
+     * @return the statistics of the action, {@code null} if the action has not been traced.
+     */
+    public ActionStatistics findActionStatistics(ActionMetadata metadata) {
+        return findActionStatistics(nameOf(requireNonNull(metadata, "metadata")));
+    }
+
+    @Override
+    public void reset() {
+        actionStatistics.clear();
+        interceptorStatistics.clear();
+    }
+
+    /**
+     * Returns the name statistics of the given action are kept under, such as {@code com.acme.Editor.save(java.lang.String)}.
+     * Metadata created by the action manager computes its name once per method; statistics are not keyed by
+     * metadata, so that tracing does not keep action handler classes reachable.
+     */
+    static String nameOf(ActionMetadata metadata) {
+        return metadata instanceof DefaultActionMetadata ? ((DefaultActionMetadata) metadata).getSignature() :
+            DefaultActionMetadata.signatureOf(metadata);
+    }
+
+    private static String quoteIfNeeded(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (",=:\"*?\n".indexOf(value.charAt(i)) >= 0) {
+                return ObjectName.quote(value);
+            }
+        }
+        return value;
+    }
+
+    private Statistics statisticsOf(ActionMetadata metadata) {
+        return statisticsOf(actionStatistics, nameOf(metadata));
+    }
+
+    private static Statistics statisticsOf(ConcurrentMap<String, Statistics> statistics, String name) {
+        Statistics s = statistics.get(name);
+        return s != null ? s : statistics.computeIfAbsent(name, k -> new Statistics());
+    }
+
+    private static List<ActionStatistics> snapshot(ConcurrentMap<String, Statistics> statistics) {
+        List<ActionStatistics> snapshot = new ArrayList<>(statistics.size());
+        statistics.forEach((name, s) -> snapshot.add(s.snapshot(name)));
+        return snapshot;
+    }
+
+    private static final class Statistics {
+        private final LongAdder[] counts = new LongAdder[ActionExecutionStatus.values().length];
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private Statistics() {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = new LongAdder();
+            }
+        }
+
+        private void count(ActionExecutionStatus status) {
+            counts[status.ordinal()].increment();
+        }
+
+        private ActionStatistics snapshot(String name) {
+            return new ActionStatistics(name,
+                counts[ActionExecutionStatus.OK.ordinal()].sum(),
+                counts[ActionExecutionStatus.ABORTED.ordinal()].sum(),
+                counts[ActionExecutionStatus.EXCEPTION.ordinal()].sum(),
+                counts[ActionExecutionStatus.CANCELLED.ordinal()].sum(),
+                histogram);
+        }
+    }
+
+    private final class TimedActionInterceptor implements ActionInterceptor {
+        private final ActionInterceptor delegate;
+        private final String name;
+
+        private TimedActionInterceptor(ActionInterceptor delegate, String name) {
+            this.delegate = delegate;
+            this.name = name;
+        }
+
+        @Override
+        public void update(Action action) {
+            delegate.update(action);
+        }
+
+        @Override
+        public void configure(Action action, Method method) {
+            delegate.configure(action, method);
+        }
+
+        @Override
+        public boolean appliesTo(Action action, Method method) {
+            return delegate.appliesTo(action, method);
+        }
+
+        @Override
+        public Object[] before(Action action, Object[] args) {
+            long start = System.nanoTime();
+            ActionExecutionStatus status = ActionExecutionStatus.OK;
+            try {
+                return delegate.before(action, args);
+            } catch (AbortActionExecution e) {
+                status = ActionExecutionStatus.ABORTED;
+                throw e;
+            } finally {
+                record(status, start);
+            }
+        }
+
+        @Override
+        public Object after(ActionExecutionStatus status, Action action, Object[] args, Object result) {
+            long start = System.nanoTime();
+            try {
+                return delegate.after(status, action, args, result);
+            } finally {
+                record(null, start);
+            }
+        }
+
+        @Override
+        public Object after(ActionExecutionStatus status, Action action, Object[] args, Object result, long startNanos) {
+            long start = System.nanoTime();
+            try {
+                return delegate.after(status, action, args, result, startNanos);
+            } finally {
+                record(null, start);
+            }
+        }
+
+        @Override
+        public boolean exception(Exception exception, Action action, Object[] args) {
+            long start = System.nanoTime();
+            try {
+                return delegate.exception(exception, action, args);
+            } finally {
+                record(null, start);
+            }
+        }
+
+        private void record(ActionExecutionStatus status, long start) {
+            Statistics statistics = statisticsOf(interceptorStatistics, name);
+            statistics.histogram.record(System.nanoTime() - start);
+            if (status != null) {
+                statistics.count(status);
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.action.spi;
+
+import javax.application.action.ExecutionPolicy;
+import javax.application.threading.Threading;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Describes an action handler method as resolved from its {@code ActionHandler} annotation at compile time.
+ * <p>
+ * Descriptors are complete, thus actions can be created and executed without looking up the described method
+ * with reflection. The method is looked up only if an {@code ActionInterceptor} or a reader of annotations asks
+ * for it. Arrays are returned as is and must not be modified.
+ *
+ * @author Andres Almiray
+ */
+public final class ActionDescriptor {
+    private final String methodName;
+    private final Class<?> returnType;
+    private final Parameter[] parameters;
+    private final Class<?>[] parameterTypes;
+    private final String actionId;
+    private final String actionName;
+    private final boolean enabled;
+    private final ExecutionPolicy executionPolicy;
+    private final long executionInterval;
+    private final int executionRate;
+    private final String[] stateDependencies;
+    private final Threading.Policy threadingPolicy;
+    private final Threading.Lane threadingLane;
+    private final ActionInvocation invocation;
+
+    /**
+     * @param threadingPolicy the policy of the {@code Threading} annotation of the method, or else of its class,
+     *                        {@code null} if neither is annotated.
+     * @param threadingLane   the lane of that annotation, {@code Threading.Lane.DEFAULT} if there is none.
+     */
+    public ActionDescriptor(String methodName, Class<?> returnType, Parameter[] parameters,
+                            String actionId, String actionName, boolean enabled,
+                            ExecutionPolicy executionPolicy, long executionInterval, int executionRate,
+                            String[] stateDependencies, Threading.Policy threadingPolicy, Threading.Lane threadingLane,
+                            ActionInvocation invocation) {
+        this.methodName = requireNonNull(methodName, "methodName");
+        this.returnType = requireNonNull(returnType, "returnType");
+        this.parameters = requireNonNull(parameters, "parameters");
+        this.actionId = requireNonNull(actionId, "actionId");
+        this.actionName = requireNonNull(actionName, "actionName");
+        this.enabled = enabled;
+        this.executionPolicy = requireNonNull(executionPolicy, "executionPolicy");
+        this.executionInterval = executionInterval;
+        this.executionRate = executionRate;
+        this.stateDependencies = requireNonNull(stateDependencies, "stateDependencies");
+        this.threadingPolicy = threadingPolicy;
+        this.threadingLane = requireNonNull(threadingLane, "threadingLane");
+        this.invocation = requireNonNull(invocation, "invocation");
+
+        this.parameterTypes = new Class<?>[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            parameterTypes[i] = requireNonNull(parameters[i], "parameters[" + i + "]").getType();
+        }
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public Class<?> getReturnType() {
+        return returnType;
+    }
+
+    public Parameter[] getParameters() {
+        return parameters;
+    }
+
+    public Class<?>[] getParameterTypes() {
+        return parameterTypes;
+    }
+
+    public String getActionId() {
+        return actionId;
+    }
+
+    public String getActionName() {
+        return actionName;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public ExecutionPolicy getExecutionPolicy() {
+        return executionPolicy;
+    }
+
+    public long getExecutionInterval() {
+        return executionInterval;
+    }
+
+    public int getExecutionRate() {
+        return executionRate;
+    }
+
+    public String[] getStateDependencies() {
+        return stateDependencies;
+    }
+
+    public Threading.Policy getThreadingPolicy() {
+        return threadingPolicy;
+    }
+
+    public Threading.Lane getThreadingLane() {
+        return threadingLane;
+    }
+
+    public ActionInvocation getInvocation() {
+        return invocation;
+    }
+
+    @Override
+    public String toString() {
+        return "ActionDescriptor[" + actionId + "]";
+    }
+
+    /**
+     * Describes a parameter of an action handler method.
+     */
+    public static final class Parameter {
+        private final Class<?> type;
+        private final String name;
+        private final boolean contextual;
+        private final boolean nullable;
+
+        /**
+         * @param contextual whether the parameter has a runtime annotation whose simple name is {@code Contextual}.
+         * @param nullable   whether the parameter has a runtime annotation whose simple name is {@code Nullable}.
+         */
+        public Parameter(Class<?> type, String name, boolean contextual, boolean nullable) {
+            this.type = requireNonNull(type, "type");
+            this.name = requireNonNull(name, "name");
+            this.contextual = contextual;
+            this.nullable = nullable;
+        }
+
+        public Class<?> getType() {
+            return type;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isContextual() {
+            return contextual;
+        }
+
+        public boolean isNullable() {
+            return nullable;
+        }
+
+        @Override
+        public String toString() {
+            return "Parameter[" + name + "]";
+        }
+    }
+}
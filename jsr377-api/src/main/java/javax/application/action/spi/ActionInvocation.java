@@ -0,0 +1,36 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.action.spi;
+
+/**
+ * Invokes an action handler method on a given owner without reflection.
+ *
+ * @author Andres Almiray
+ */
+@FunctionalInterface
+public interface ActionInvocation {
+    /**
+     * Invokes the action handler method.
+     *
+     * @param owner the instance that declares the method.
+     * @param args  the method's arguments, one per parameter.
+     *
+     * @return the method's result, {@code null} if it returns {@code void}.
+     */
+    Object invoke(Object owner, Object[] args) throws Throwable;
+}
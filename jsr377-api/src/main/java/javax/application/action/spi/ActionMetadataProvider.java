@@ -0,0 +1,41 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.action.spi;
+
+import java.util.List;
+
+/**
+ * Supplies precomputed action metadata for the action handler methods declared by a given class.
+ * <p>
+ * Providers are located with {@link java.util.ServiceLoader} and are usually generated at compile time, thus
+ * the methods of the owner type need not be scanned at runtime. A provider describes only the methods declared
+ * by its owner type; superclasses have providers of their own.
+ *
+ * @author Andres Almiray
+ */
+public interface ActionMetadataProvider {
+    /**
+     * Returns the class that declares the described methods.
+     */
+    Class<?> getOwnerType();
+
+    /**
+     * Returns a descriptor per action handler method declared by the owner type.
+     */
+    List<ActionDescriptor> getActionDescriptors();
+}
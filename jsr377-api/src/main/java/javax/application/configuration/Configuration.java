@@ -18,6 +18,16 @@
 package javax.application.configuration;
 
 /**
+ * Provides read-only access to configuration values by key.
+ * <p>
+ * Typed lookups, such as {@code getAsInt()} or {@code getConverted()}, return their default value only when
+ * the key is absent. A key whose value cannot be converted to the requested type is a configuration error: the
+ * lookup fails with a {@code ConversionException} even if a default value was given. {@code getAsString()}
+ * never fails for keys that are present.
+ * <p>
+ * Which textual forms convert to each type, and whether the {@code format} given to {@code getConverted()} is
+ * honored, is up to implementations; see {@code DefaultConfiguration} for the reference implementation.
+ *
  * @author Andres Almiray
  */
 public interface Configuration {
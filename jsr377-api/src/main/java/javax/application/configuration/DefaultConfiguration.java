@@ -0,0 +1,383 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.configuration;
+
+import javax.application.converter.ConversionException;
+import javax.application.converter.Converter;
+import javax.application.converter.ConverterRegistry;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reference implementation of {@code Configuration} backed by an immutable snapshot of its sources.
+ * <p>
+ * Sources are read once when the configuration is created. Nested maps are flattened, their keys joined with
+ * {@code '.'}; when several sources define the same key the first one wins. Keys mapped to {@code null} are
+ * ignored. Every value is parsed once into its {@code boolean}, {@code int}, {@code long}, {@code float} and
+ * {@code double} forms, as far as they apply, and stored in primitive arrays. Keys are located with an
+ * open-addressing table, thus typed lookups neither parse nor allocate.
+ * <p>
+ * Typed lookups follow the contract of {@link Configuration}: values that have no such form fail with a
+ * {@code ConversionException}, whatever the default value. Booleans must read {@code true} or {@code false},
+ * ignoring case. Whole numbers written in floating point form, such as {@code 1.0} or {@code 1e3}, also have an
+ * {@code int} form if they fit its range, and a {@code long} form up to 2<sup>53</sup> in magnitude, beyond
+ * which a {@code double} no longer denotes a single {@code long}; values with a fractional part have neither.
+ * {@code getConverted()} handles the types above, their wrappers, {@code String} and instances of the requested
+ * type directly; other types are converted with the {@code ConverterRegistry} given at creation. The
+ * {@code format} given to {@code getConverted()} is ignored, as {@code Converter}s do not support formats.
+ *
+ * @author Andres Almiray
+ */
+public final class DefaultConfiguration implements Configuration {
+    private static final byte BOOLEAN = 1;
+    private static final byte INT = 1 << 1;
+    private static final byte LONG = 1 << 2;
+    private static final byte FLOAT = 1 << 3;
+    private static final byte DOUBLE = 1 << 4;
+    // largest magnitude up to which every whole double denotes a single long
+    private static final double MAX_EXACT_LONG = 1L << 53;
+
+    private final ConverterRegistry converterRegistry;
+
+    // open-addressing table, slots hold the index of the key's entry plus one, 0 when empty
+    private final String[] slotKeys;
+    private final int[] slotEntries;
+    private final int mask;
+
+    private final Object[] values;
+    private final String[] strings;
+    private final byte[] forms;
+    private final boolean[] booleans;
+    private final int[] ints;
+    private final long[] longs;
+    private final float[] floats;
+    private final double[] doubles;
+
+    /**
+     * Creates a configuration from a single source.
+     *
+     * @param source the configuration values. Must not be {@code null}.
+     */
+    public DefaultConfiguration(Map<String, ?> source) {
+        this(null, Collections.singletonList(requireNonNull(source, "source")));
+    }
+
+    /**
+     * Creates a configuration from the given sources, in order of precedence.
+     *
+     * @param sources the configuration values. Must not be {@code null}.
+     */
+    public DefaultConfiguration(List<? extends Map<String, ?>> sources) {
+        this(null, sources);
+    }
+
+    /**
+     * Creates a configuration from the given sources, in order of precedence.
+     *
+     * @param converterRegistry the registry used by {@code getConverted()} for other types. May be {@code null}.
+     * @param sources           the configuration values. Must not be {@code null}.
+     */
+    public DefaultConfiguration(ConverterRegistry converterRegistry, List<? extends Map<String, ?>> sources) {
+        requireNonNull(sources, "sources");
+        this.converterRegistry = converterRegistry;
+
+        Map<String, Object> flattened = new LinkedHashMap<>();
+        for (Map<String, ?> source : sources) {
+            flatten(flattened, "", requireNonNull(source, "source"));
+        }
+
+        int size = flattened.size();
+        int capacity = 2;
+        while (capacity < size * 2) {
+            capacity <<= 1;
+        }
+        this.slotKeys = new String[capacity];
+        this.slotEntries = new int[capacity];
+        this.mask = capacity - 1;
+
+        this.values = new Object[size];
+        this.strings = new String[size];
+        this.forms = new byte[size];
+        this.booleans = new boolean[size];
+        this.ints = new int[size];
+        this.longs = new long[size];
+        this.floats = new float[size];
+        this.doubles = new double[size];
+
+        int index = 0;
+        for (Map.Entry<String, Object> entry : flattened.entrySet()) {
+            String key = entry.getKey().intern();
+            int slot = hash(key) & mask;
+            while (slotKeys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            slotKeys[slot] = key;
+            slotEntries[slot] = index + 1;
+            store(index++, entry.getValue());
+        }
+    }
+
+    private static void flatten(Map<String, Object> flattened, String prefix, Map<?, ?> source) {
+        for (Map.Entry<?, ?> entry : source.entrySet()) {
+            String key = prefix + entry.getKey();
+            Object value = entry.getValue();
+            if (value instanceof Map) {
+                flatten(flattened, key + ".", (Map<?, ?>) value);
+            } else if (value != null && !flattened.containsKey(key)) {
+                flattened.put(key, value);
+            }
+        }
+    }
+
+    private void store(int index, Object value) {
+        String string = String.valueOf(value);
+        values[index] = value;
+        strings[index] = string;
+
+        String literal = string.trim();
+        byte form = 0;
+        if ("true".equalsIgnoreCase(literal) || "false".equalsIgnoreCase(literal)) {
+            booleans[index] = Boolean.parseBoolean(literal);
+            form |= BOOLEAN;
+        }
+        try {
+            ints[index] = Integer.parseInt(literal);
+            form |= INT;
+        } catch (NumberFormatException e) {
+            // not an int
+        }
+        try {
+            longs[index] = Long.parseLong(literal);
+            form |= LONG;
+        } catch (NumberFormatException e) {
+            // not a long
+        }
+        try {
+            double d = Double.parseDouble(literal);
+            doubles[index] = d;
+            floats[index] = Float.parseFloat(literal);
+            form |= DOUBLE | FLOAT;
+            // whole numbers written in floating point form, such as 1.0, are integral too
+            if ((form & INT) == 0 && d == Math.rint(d) && d >= Integer.MIN_VALUE && d <= Integer.MAX_VALUE) {
+                ints[index] = (int) d;
+                form |= INT;
+            }
+            if ((form & LONG) == 0 && d == Math.rint(d) && Math.abs(d) <= MAX_EXACT_LONG) {
+                longs[index] = (long) d;
+                form |= LONG;
+            }
+        } catch (NumberFormatException e) {
+            // not a floating point number
+        }
+        forms[index] = form;
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the index of the key's entry, {@code -1} if not found.
+     */
+    private int indexOf(String key) {
+        requireNonNull(key, "key");
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            String candidate = slotKeys[slot];
+            if (candidate == null) {
+                return -1;
+            }
+            if (candidate == key || candidate.equals(key)) {
+                return slotEntries[slot] - 1;
+            }
+        }
+    }
+
+    private int indexOf(String key, byte form, Class<?> type) {
+        int index = indexOf(key);
+        if (index >= 0 && (forms[index] & form) == 0) {
+            throw new ConversionException(values[index], type);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the number of keys in this configuration.
+     */
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public <T> T get(String key) {
+        return get(key, null);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, T defaultValue) {
+        int index = indexOf(key);
+        return index < 0 ? defaultValue : (T) values[index];
+    }
+
+    @Override
+    public boolean getAsBoolean(String key) {
+        return getAsBoolean(key, false);
+    }
+
+    @Override
+    public boolean getAsBoolean(String key, boolean defaultValue) {
+        int index = indexOf(key, BOOLEAN, Boolean.class);
+        return index < 0 ? defaultValue : booleans[index];
+    }
+
+    @Override
+    public int getAsInt(String key) {
+        return getAsInt(key, 0);
+    }
+
+    @Override
+    public int getAsInt(String key, int defaultValue) {
+        int index = indexOf(key, INT, Integer.class);
+        return index < 0 ? defaultValue : ints[index];
+    }
+
+    @Override
+    public long getAsLong(String key) {
+        return getAsLong(key, 0L);
+    }
+
+    @Override
+    public long getAsLong(String key, long defaultValue) {
+        int index = indexOf(key, LONG, Long.class);
+        return index < 0 ? defaultValue : longs[index];
+    }
+
+    @Override
+    public float getAsFloat(String key) {
+        return getAsFloat(key, 0.0f);
+    }
+
+    @Override
+    public float getAsFloat(String key, float defaultValue) {
+        int index = indexOf(key, FLOAT, Float.class);
+        return index < 0 ? defaultValue : floats[index];
+    }
+
+    @Override
+    public double getAsDouble(String key) {
+        return getAsDouble(key, 0.0d);
+    }
+
+    @Override
+    public double getAsDouble(String key, double defaultValue) {
+        int index = indexOf(key, DOUBLE, Double.class);
+        return index < 0 ? defaultValue : doubles[index];
+    }
+
+    @Override
+    public String getAsString(String key) {
+        return getAsString(key, null);
+    }
+
+    @Override
+    public String getAsString(String key, String defaultValue) {
+        int index = indexOf(key);
+        return index < 0 ? defaultValue : strings[index];
+    }
+
+    @Override
+    public <T> T getConverted(String key, Class<T> type) {
+        return getConverted(key, type, (T) null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The {@code format} is ignored, the value is converted as by {@link #getConverted(String, Class)}.
+     */
+    @Override
+    public <T> T getConverted(String key, Class<T> type, String format) {
+        requireNonNull(format, "format");
+        return getConverted(key, type, (T) null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The {@code format} is ignored, the value is converted as by {@link #getConverted(String, Class, Object)}.
+     */
+    @Override
+    public <T> T getConverted(String key, Class<T> type, String format, T defaultValue) {
+        requireNonNull(format, "format");
+        return getConverted(key, type, defaultValue);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getConverted(String key, Class<T> type, T defaultValue) {
+        requireNonNull(type, "type");
+        int index = indexOf(key);
+        if (index < 0) {
+            return defaultValue;
+        }
+
+        Object value = values[index];
+        if (type.isInstance(value)) {
+            return type.cast(value);
+        }
+        if (type == String.class) {
+            return type.cast(strings[index]);
+        }
+        if (type == Boolean.class || type == boolean.class) {
+            return (T) Boolean.valueOf(booleans[indexOf(key, BOOLEAN, type)]);
+        }
+        if (type == Integer.class || type == int.class) {
+            return (T) Integer.valueOf(ints[indexOf(key, INT, type)]);
+        }
+        if (type == Long.class || type == long.class) {
+            return (T) Long.valueOf(longs[indexOf(key, LONG, type)]);
+        }
+        if (type == Float.class || type == float.class) {
+            return (T) Float.valueOf(floats[indexOf(key, FLOAT, type)]);
+        }
+        if (type == Double.class || type == double.class) {
+            return (T) Double.valueOf(doubles[indexOf(key, DOUBLE, type)]);
+        }
+
+        Converter<T> converter = converterRegistry != null ? converterRegistry.findConverter(type) : null;
+        if (converter == null) {
+            throw new ConversionException(value, type);
+        }
+        return converter.fromObject(value);
+    }
+
+    @Override
+    public String toString() {
+        return "Configuration[size=" + values.length + "]";
+    }
+}
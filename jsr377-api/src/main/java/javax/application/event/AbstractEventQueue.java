@@ -0,0 +1,199 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.event;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded queue of events drained by at most one task of an executor at a time.
+ * <p>
+ * Each task delivers a limited number of events before yielding the executor thread, so that a busy queue cannot
+ * monopolize it. When the queue is full the {@link DefaultEventBus.OverflowPolicy} decides whether the publisher
+ * waits, or which event is discarded.
+ *
+ * @author Andres Almiray
+ */
+abstract class AbstractEventQueue {
+    private static final int MAX_EVENTS_PER_DRAIN = 64;
+
+    private final Executor executor;
+    private final int capacity;
+    private final DefaultEventBus.OverflowPolicy overflowPolicy;
+    private final LongAdder pendingEvents;
+    private final LongAdder droppedEvents;
+
+    private final ArrayDeque<Object> events = new ArrayDeque<>();
+    private long dropped;
+    private boolean scheduled;
+    private Thread drainingThread;
+
+    AbstractEventQueue(Executor executor, int capacity, DefaultEventBus.OverflowPolicy overflowPolicy,
+                       LongAdder pendingEvents, LongAdder droppedEvents) {
+        this.executor = executor;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.pendingEvents = pendingEvents;
+        this.droppedEvents = droppedEvents;
+    }
+
+    synchronized int size() {
+        return events.size();
+    }
+
+    /**
+     * Returns the number of events this queue discarded because it was full.
+     */
+    synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    /**
+     * Queues an element for delivery.
+     *
+     * @param element  the event, or a value that {@link #eventOf(Object)} resolves to the event.
+     * @param mayBlock whether the calling thread may wait for room under the {@code BLOCK} policy. If not, the
+     *                 element is queued beyond capacity.
+     */
+    final void offer(Object element, boolean mayBlock) {
+        synchronized (this) {
+            if (events.size() >= capacity && !makeRoomFor(eventOf(element), mayBlock)) {
+                dropped++;
+                droppedEvents.increment();
+                return;
+            }
+
+            events.addLast(element);
+            pendingEvents.increment();
+            if (scheduled) {
+                return;
+            }
+            scheduled = true;
+        }
+        schedule();
+    }
+
+    /**
+     * Delivers a batch of drained elements, in the order they were queued.
+     */
+    abstract void deliver(List<Object> batch);
+
+    /**
+     * Returns the event held by a queued element.
+     */
+    Object eventOf(Object element) {
+        return element;
+    }
+
+    /**
+     * Applies the overflow policy, returns {@code false} if the given event must be discarded.
+     */
+    private boolean makeRoomFor(Object event, boolean mayBlock) {
+        switch (overflowPolicy) {
+            case BLOCK:
+                // a handler publishing to itself would wait forever
+                if (!mayBlock || drainingThread == Thread.currentThread()) {
+                    return true;
+                }
+                boolean interrupted = false;
+                while (events.size() >= capacity) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            case DROP_OLDEST:
+                events.pollFirst();
+                discardPending();
+                return true;
+            case COALESCE:
+                for (Iterator<Object> it = events.descendingIterator(); it.hasNext(); ) {
+                    if (eventOf(it.next()).getClass() == event.getClass()) {
+                        it.remove();
+                        discardPending();
+                        return true;
+                    }
+                }
+                return false;
+            case DROP_NEWEST:
+            default:
+                return false;
+        }
+    }
+
+    private void discardPending() {
+        dropped++;
+        pendingEvents.decrement();
+        droppedEvents.increment();
+    }
+
+    /**
+     * Submits the drain task. The queue is left unscheduled if the executor rejects the task, so that the next
+     * offer tries again instead of queueing events that nothing would ever drain.
+     */
+    private void schedule() {
+        try {
+            executor.execute(this::drain);
+        } catch (RuntimeException | Error e) {
+            synchronized (this) {
+                scheduled = false;
+            }
+            throw e;
+        }
+    }
+
+    private void drain() {
+        List<Object> batch = new ArrayList<>();
+        synchronized (this) {
+            for (int i = 0; i < MAX_EVENTS_PER_DRAIN && !events.isEmpty(); i++) {
+                batch.add(events.pollFirst());
+            }
+            pendingEvents.add(-batch.size());
+            drainingThread = Thread.currentThread();
+            notifyAll();
+        }
+
+        try {
+            deliver(batch);
+        } finally {
+            boolean reschedule;
+            synchronized (this) {
+                drainingThread = null;
+                reschedule = scheduled = !events.isEmpty();
+            }
+            if (reschedule) {
+                schedule();
+            }
+        }
+    }
+
+    static void handleException(Throwable t) {
+        // there is no publisher to report to, a failing handler must not stall this queue
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+    }
+}
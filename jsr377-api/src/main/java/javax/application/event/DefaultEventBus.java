@@ -0,0 +1,622 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.event;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reference implementation of {@code EventBus}.
+ * <p>
+ * Handlers are inspected exactly once, when they are subscribed. Every method annotated with {@code EventHandler}
+ * is resolved, together with its filters, into an immutable subscriber. Subscribers are kept in a dispatch table
+ * keyed by event type where each entry is already sorted by {@link EventHandler#priority()}. The table is replaced
+ * as a whole (copy-on-write) when handlers are subscribed or unsubscribed, which means that publishing an event
+ * requires a single lookup and no locking nor annotation processing.
+ * <p>
+ * Events are delivered polymorphically: a handler whose argument is a supertype or an interface of the event's
+ * class receives the event too.
+ * <p>
+ * Publishing an event synchronously allocates nothing unless a matching subscriber defines filters, in which
+ * case a single {@code EventMetadata} is created for the event and shared by all of its filtered subscribers.
+ * Metadata is not reused across events since filters may retain it.
+ * <p>
+ * Handler methods may also accept a parameterized {@code java.util.List} of events, for example
+ * {@code List<SelectionChangedEvent>}, in which case all matching events published together with
+ * {@link #publishEvents(Collection)} are delivered in a single call.
+ * <p>
+ * Asynchronous events are queued per subscriber. Each queue may be bounded, in which case an {@link OverflowPolicy}
+ * determines what happens when a slow subscriber falls behind. Each queue is drained by at most one task at a time,
+ * which means that a subscriber receives asynchronous events in the order they were published.
+ * <p>
+ * Events published with {@link #publishEventAsyncOrdered(Object, Object)} are delivered to all of their
+ * subscribers by a task that is serialized with the tasks of every other event sharing the same key. Keys are
+ * spread over a fixed set of independent stripes, so unrelated keys do not contend on a single lock. Each stripe
+ * is bounded by the same capacity and {@code OverflowPolicy} as subscriber queues. Events waiting in a stripe are
+ * included in {@link #getPendingEventCount()} and {@link #getDroppedEventCount()}, but not in the counts of a
+ * {@link Subscription}, since they are not yet assigned to a subscriber.
+ *
+ * @author Andres Almiray
+ */
+public class DefaultEventBus implements EventBus {
+    /**
+     * Defines how {@code EventHandler} methods are invoked.
+     */
+    public enum InvocationMode {
+        /**
+         * Handler methods are invoked through a {@code MethodHandle} adapted once per method. This is the default.
+         */
+        METHOD_HANDLE,
+        /**
+         * Handler methods are invoked with {@code Method.invoke()}.
+         */
+        REFLECTION
+    }
+
+    /**
+     * Defines what happens when an event is published asynchronously and the queue of a subscriber is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * The publisher waits until the subscriber has room for the event.
+         */
+        BLOCK,
+        /**
+         * The oldest pending event of the subscriber is discarded.
+         */
+        DROP_OLDEST,
+        /**
+         * The published event is discarded.
+         */
+        DROP_NEWEST,
+        /**
+         * The most recent pending event of the same type is replaced by the published event. The published event
+         * is discarded if there is no pending event of the same type.
+         */
+        COALESCE
+    }
+
+    /**
+     * Filter instances shared by all handler methods, {@code null} for filter types that hold state. Entries are
+     * attached to the filter class, thus they do not keep its {@code ClassLoader} reachable.
+     */
+    private static final ClassValue<EventFilter<Object>> SHARED_FILTERS = new ClassValue<EventFilter<Object>>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected EventFilter<Object> computeValue(Class<?> type) {
+            return EventFilterChain.isStateless(type) ? createFilter((Class<? extends EventFilter<?>>) type) : null;
+        }
+    };
+
+    private final Object lock = new Object();
+    private final Executor executor;
+    private final InvocationMode invocationMode;
+    private final int queueCapacity;
+    private final OverflowPolicy overflowPolicy;
+    private final LongAdder pendingEvents = new LongAdder();
+    private final LongAdder droppedEvents = new LongAdder();
+    private final StripedEventQueue orderedEvents;
+    private final Map<Object, EventRegistration> strongRegistrations = new IdentityHashMap<>();
+    // weak registrations keyed by the identity hash code of their handler, which may collide
+    private final Map<Integer, List<EventRegistration>> weakRegistrations = new HashMap<>();
+    private final ReferenceQueue<Object> reclaimedHandlers = new ReferenceQueue<>();
+    private volatile EventDispatchTable dispatchTable = EventDispatchTable.EMPTY;
+
+    private final Map<CoalescingKey, Object> coalescedEvents = new LinkedHashMap<>();
+    private boolean coalescedEventsScheduled;
+
+    /**
+     * Creates a new {@code DefaultEventBus} that delivers asynchronous events using the common {@code ForkJoinPool}.
+     */
+    public DefaultEventBus() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a new {@code DefaultEventBus}.
+     *
+     * @param executor the executor used to deliver asynchronous events. Must not be {@code null}.
+     */
+    public DefaultEventBus(Executor executor) {
+        this(executor, InvocationMode.METHOD_HANDLE);
+    }
+
+    /**
+     * Creates a new {@code DefaultEventBus} with unbounded subscriber queues.
+     *
+     * @param executor       the executor used to deliver asynchronous events. Must not be {@code null}.
+     * @param invocationMode the strategy used to invoke event handler methods. Must not be {@code null}.
+     */
+    public DefaultEventBus(Executor executor, InvocationMode invocationMode) {
+        this(executor, invocationMode, Integer.MAX_VALUE, OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * Creates a new {@code DefaultEventBus}.
+     *
+     * @param executor       the executor used to deliver asynchronous events. Must not be {@code null}.
+     * @param invocationMode the strategy used to invoke event handler methods. Must not be {@code null}.
+     * @param queueCapacity  the maximum number of asynchronous events pending per subscriber, and per stripe of
+     *                       ordered events. Must be greater than {@code 0}.
+     * @param overflowPolicy what to do when the queue of a subscriber, or a stripe of ordered events, is full.
+     *                       Must not be {@code null}.
+     */
+    public DefaultEventBus(Executor executor, InvocationMode invocationMode, int queueCapacity, OverflowPolicy overflowPolicy) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Argument 'queueCapacity' must be greater than 0");
+        }
+        this.executor = requireNonNull(executor, "executor");
+        this.invocationMode = requireNonNull(invocationMode, "invocationMode");
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = requireNonNull(overflowPolicy, "overflowPolicy");
+        this.orderedEvents = new StripedEventQueue(executor, Runtime.getRuntime().availableProcessors() * 4, queueCapacity, overflowPolicy,
+            pendingEvents, droppedEvents, this::publishEvent);
+    }
+
+    /**
+     * Returns the number of asynchronous events that are waiting to be delivered, across all subscribers.
+     * The count of a single handler is reported by its {@link Subscription}.
+     *
+     * @return a number equal or greater than {@code 0}.
+     */
+    public long getPendingEventCount() {
+        return Math.max(0L, pendingEvents.sum());
+    }
+
+    /**
+     * Returns the number of asynchronous events that were discarded because a subscriber queue was full.
+     * The count of a single handler is reported by its {@link Subscription}.
+     *
+     * @return a number equal or greater than {@code 0}.
+     */
+    public long getDroppedEventCount() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * Returns the current dispatch table.
+     */
+    EventDispatchTable getDispatchTable() {
+        return dispatchTable;
+    }
+
+    @Override
+    public void subscribe(Object handler) {
+        register(handler, false);
+    }
+
+    @Override
+    public Subscription subscribeFor(Object handler) {
+        return register(handler, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Registrations of reclaimed handlers are removed while publishing events; there is no background thread
+     * involved and the dispatch table is not scanned for stale entries.
+     */
+    @Override
+    public Subscription subscribeWeakly(Object handler) {
+        return register(handler, true);
+    }
+
+    @Override
+    public void unsubscribe(Object handler) {
+        requireNonNull(handler, "handler");
+
+        synchronized (lock) {
+            EventRegistration registration = findRegistration(handler);
+            if (registration != null) {
+                remove(Collections.singletonList(registration));
+            }
+        }
+    }
+
+    private Subscription register(Object handler, boolean weak) {
+        requireNonNull(handler, "handler");
+
+        synchronized (lock) {
+            expungeReclaimedHandlers();
+
+            EventRegistration registration = findRegistration(handler);
+            if (registration != null) {
+                return registration;
+            }
+
+            registration = weak ?
+                EventRegistration.weak(handler, reclaimedHandlers, this::release) :
+                EventRegistration.strong(handler, this::release);
+            EventSubscriber[] subscribers = resolveSubscribers(handler, registration);
+            registration.setSubscribers(subscribers);
+            if (weak) {
+                weakRegistrations.computeIfAbsent(registration.getTargetHash(), k -> new ArrayList<>(1)).add(registration);
+            } else {
+                strongRegistrations.put(handler, registration);
+            }
+
+            Map<Class<?>, EventSubscriber[]> table = new HashMap<>(dispatchTable.getSubscribersByType());
+            for (EventSubscriber subscriber : subscribers) {
+                EventSubscriber[] current = table.getOrDefault(subscriber.getEventType(), EventDispatchTable.NO_SUBSCRIBERS);
+                EventSubscriber[] updated = Arrays.copyOf(current, current.length + 1);
+                updated[current.length] = subscriber;
+                // stable sort, subscribers with the same priority keep their subscription order
+                Arrays.sort(updated, EventSubscriber.BY_PRIORITY);
+                table.put(subscriber.getEventType(), updated);
+            }
+            dispatchTable = dispatchTable.withSubscribers(table);
+            return registration;
+        }
+    }
+
+    private void release(EventRegistration registration) {
+        synchronized (lock) {
+            remove(Collections.singletonList(registration));
+        }
+    }
+
+    /**
+     * Must be called while holding {@code lock}.
+     */
+    private EventRegistration findRegistration(Object handler) {
+        EventRegistration registration = strongRegistrations.get(handler);
+        if (registration != null) {
+            return registration;
+        }
+
+        List<EventRegistration> candidates = weakRegistrations.get(System.identityHashCode(handler));
+        if (candidates != null) {
+            for (EventRegistration candidate : candidates) {
+                if (candidate.getTarget() == handler) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes the given registrations from the dispatch table. Must be called while holding {@code lock}.
+     */
+    private void remove(Collection<EventRegistration> registrations) {
+        Set<Class<?>> eventTypes = new HashSet<>();
+        for (EventRegistration registration : registrations) {
+            if (!registration.deactivate()) {
+                continue;
+            }
+            if (registration.isWeak()) {
+                List<EventRegistration> candidates = weakRegistrations.get(registration.getTargetHash());
+                candidates.remove(registration);
+                if (candidates.isEmpty()) {
+                    weakRegistrations.remove(registration.getTargetHash());
+                }
+            } else {
+                strongRegistrations.remove(registration.getTarget());
+            }
+            for (EventSubscriber subscriber : registration.getSubscribers()) {
+                eventTypes.add(subscriber.getEventType());
+            }
+        }
+        if (eventTypes.isEmpty()) {
+            return;
+        }
+
+        Map<Class<?>, EventSubscriber[]> table = new HashMap<>(dispatchTable.getSubscribersByType());
+        for (Class<?> eventType : eventTypes) {
+            EventSubscriber[] updated = Arrays.stream(table.get(eventType))
+                .filter(subscriber -> subscriber.getRegistration().isActive())
+                .toArray(EventSubscriber[]::new);
+            if (updated.length == 0) {
+                table.remove(eventType);
+            } else {
+                table.put(eventType, updated);
+            }
+        }
+        dispatchTable = dispatchTable.withSubscribers(table);
+    }
+
+    /**
+     * Removes the registrations of weakly held handlers that have been reclaimed, if any.
+     * This is a single, non blocking, check when there is nothing to remove.
+     */
+    private void expungeReclaimedHandlers() {
+        Reference<?> reference = reclaimedHandlers.poll();
+        if (reference == null) {
+            return;
+        }
+
+        synchronized (lock) {
+            List<EventRegistration> registrations = new ArrayList<>();
+            for (; reference != null; reference = reclaimedHandlers.poll()) {
+                EventRegistration registration = EventRegistration.of(reference);
+                if (registration != null) {
+                    registrations.add(registration);
+                }
+            }
+            remove(registrations);
+        }
+    }
+
+    @Override
+    public <E> void publishEvent(E event) {
+        requireNonNull(event, "event");
+        expungeReclaimedHandlers();
+
+        EventSubscriber[] subscribers = dispatchTable.getSubscribers(event.getClass());
+        EventMetadata<Object> metadata = null;
+        for (EventSubscriber subscriber : subscribers) {
+            if (subscriber.hasFilters()) {
+                if (metadata == null) {
+                    metadata = new DefaultEventMetadata<>(event);
+                }
+                if (!subscriber.accept(metadata)) {
+                    continue;
+                }
+            }
+            subscriber.invoke(event);
+        }
+    }
+
+    @Override
+    public <E> void publishEventAsync(E event) {
+        requireNonNull(event, "event");
+        expungeReclaimedHandlers();
+        enqueue(dispatchTable, event, true);
+    }
+
+    @Override
+    public <E> void publishEvents(Collection<E> events) {
+        requireNonNull(events, "events");
+        expungeReclaimedHandlers();
+
+        EventDispatchTable table = dispatchTable;
+        Map<EventSubscriber, List<Object>> deliveries = new LinkedHashMap<>();
+        for (E event : events) {
+            requireNonNull(event, "event");
+            EventMetadata<Object> metadata = null;
+            for (EventSubscriber subscriber : table.getSubscribers(event.getClass())) {
+                if (subscriber.hasFilters()) {
+                    if (metadata == null) {
+                        metadata = new DefaultEventMetadata<>(event);
+                    }
+                    if (!subscriber.accept(metadata)) {
+                        continue;
+                    }
+                }
+                deliveries.computeIfAbsent(subscriber, k -> new ArrayList<>()).add(event);
+            }
+        }
+
+        List<EventSubscriber> subscribers = new ArrayList<>(deliveries.keySet());
+        subscribers.sort(EventSubscriber.BY_PRIORITY);
+        for (EventSubscriber subscriber : subscribers) {
+            subscriber.invoke(deliveries.get(subscriber));
+        }
+    }
+
+    @Override
+    public <E> void publishEventsAsync(Collection<E> events) {
+        requireNonNull(events, "events");
+        expungeReclaimedHandlers();
+
+        EventDispatchTable table = dispatchTable;
+        for (E event : events) {
+            enqueue(table, requireNonNull(event, "event"), true);
+        }
+    }
+
+    /**
+     * Queues an event for every matching subscriber.
+     *
+     * @param mayBlock whether the calling thread may wait for room when the {@code OverflowPolicy} is {@code BLOCK}.
+     */
+    private void enqueue(EventDispatchTable table, Object event, boolean mayBlock) {
+        EventMetadata<Object> metadata = null;
+        for (EventSubscriber subscriber : table.getSubscribers(event.getClass())) {
+            if (subscriber.hasFilters() && metadata == null) {
+                metadata = new DefaultEventMetadata<>(event);
+            }
+            subscriber.getMailbox().offer(event, metadata, mayBlock);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Pending events are kept until a single flush task runs; all events that are still pending at that point
+     * are queued as with {@link #publishEventsAsync(Collection)}, thus they are subject to the capacity and
+     * {@code OverflowPolicy} of each subscriber queue. Under {@code BLOCK} the flush task does not wait for room,
+     * as it runs on the executor that drains the queues; the coalesced events are queued beyond capacity instead.
+     */
+    @Override
+    public <E> void publishEventAsync(E event, Function<? super E, ?> coalescingKey) {
+        requireNonNull(event, "event");
+        Object key = requireNonNull(requireNonNull(coalescingKey, "coalescingKey").apply(event), "key");
+
+        synchronized (coalescedEvents) {
+            coalescedEvents.put(new CoalescingKey(event.getClass(), key), event);
+            if (!coalescedEventsScheduled) {
+                coalescedEventsScheduled = true;
+                executor.execute(this::publishCoalescedEvents);
+            }
+        }
+    }
+
+    @Override
+    public <E> void publishEventAsyncOrdered(Object key, E event) {
+        requireNonNull(key, "key");
+        requireNonNull(event, "event");
+        orderedEvents.offer(key, event);
+    }
+
+    private void publishCoalescedEvents() {
+        List<Object> events;
+        synchronized (coalescedEvents) {
+            events = new ArrayList<>(coalescedEvents.values());
+            coalescedEvents.clear();
+            coalescedEventsScheduled = false;
+        }
+        expungeReclaimedHandlers();
+        EventDispatchTable table = dispatchTable;
+        for (Object event : events) {
+            enqueue(table, event, false);
+        }
+    }
+
+    private EventSubscriber[] resolveSubscribers(Object handler, EventRegistration registration) {
+        List<EventSubscriber> subscribers = new ArrayList<>();
+        Set<String> signatures = new HashSet<>();
+
+        for (Class<?> type = handler.getClass(); type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Method method : type.getDeclaredMethods()) {
+                EventHandler annotation = method.getAnnotation(EventHandler.class);
+                if (annotation == null || method.isBridge() || method.isSynthetic()) {
+                    continue;
+                }
+
+                // an overriding method takes precedence over the method it overrides
+                if (!signatures.add(method.getName() + Arrays.toString(method.getParameterTypes()))) {
+                    continue;
+                }
+
+                if (Modifier.isStatic(method.getModifiers())) {
+                    throw new IllegalArgumentException("Event handler method " + method + " must not be static");
+                }
+                if (method.getParameterCount() != 1 || method.getParameterTypes()[0].isPrimitive()) {
+                    throw new IllegalArgumentException("Event handler method " + method + " must define a single, non primitive argument");
+                }
+
+                Class<?> eventType = method.getParameterTypes()[0];
+                Class<?> batchType = resolveBatchType(method.getGenericParameterTypes()[0]);
+                boolean batch = batchType != null;
+                if (batch) {
+                    eventType = batchType;
+                }
+
+                method.setAccessible(true);
+                EventInvoker invoker = EventInvoker.of(method, invocationMode);
+                EventSubscriber subscriber = new EventSubscriber(registration, method, invoker, eventType, batch, annotation.priority(), EventFilterChain.compile(createFilters(annotation)));
+                subscriber.setMailbox(new EventMailbox(subscriber, executor, queueCapacity, overflowPolicy, pendingEvents, droppedEvents));
+                subscribers.add(subscriber);
+            }
+        }
+
+        if (subscribers.isEmpty()) {
+            throw new IllegalArgumentException("Class " + handler.getClass().getName() + " does not define any methods annotated with @EventHandler");
+        }
+
+        return subscribers.toArray(EventDispatchTable.NO_SUBSCRIBERS);
+    }
+
+    /**
+     * Returns the element type if the given type is a parameterized {@code List}, {@code null} otherwise.
+     */
+    private static Class<?> resolveBatchType(Type type) {
+        if (!(type instanceof ParameterizedType) || ((ParameterizedType) type).getRawType() != List.class) {
+            return null;
+        }
+
+        Type elementType = ((ParameterizedType) type).getActualTypeArguments()[0];
+        if (elementType instanceof WildcardType) {
+            elementType = ((WildcardType) elementType).getUpperBounds()[0];
+        }
+        if (elementType instanceof ParameterizedType) {
+            elementType = ((ParameterizedType) elementType).getRawType();
+        }
+        return elementType instanceof Class ? (Class<?>) elementType : null;
+    }
+
+    /**
+     * Instantiates the filters of a handler method. Filters that hold no state are instantiated once and shared
+     * by all handler methods.
+     */
+    @SuppressWarnings("unchecked")
+    private static EventFilter<Object>[] createFilters(EventHandler annotation) {
+        Class<? extends EventFilter<?>>[] filterTypes = annotation.filters();
+        EventFilter<Object>[] filters = (EventFilter<Object>[]) new EventFilter<?>[filterTypes.length];
+        for (int i = 0; i < filterTypes.length; i++) {
+            EventFilter<Object> filter = SHARED_FILTERS.get(filterTypes[i]);
+            filters[i] = filter != null ? filter : createFilter(filterTypes[i]);
+        }
+        return filters;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static EventFilter<Object> createFilter(Class<? extends EventFilter<?>> filterType) {
+        try {
+            Constructor<? extends EventFilter<?>> constructor = filterType.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return (EventFilter<Object>) constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Could not instantiate event filter " + filterType.getName(), e);
+        }
+    }
+
+    /**
+     * Identifies equivalent events: events of the same class whose coalescing keys are equal.
+     */
+    private static final class CoalescingKey {
+        private final Class<?> eventType;
+        private final Object key;
+
+        private CoalescingKey(Class<?> eventType, Object key) {
+            this.eventType = eventType;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CoalescingKey)) {
+                return false;
+            }
+            CoalescingKey that = (CoalescingKey) o;
+            return eventType == that.eventType && key.equals(that.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * eventType.hashCode() + key.hashCode();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.event;
+
+import java.time.Instant;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Default implementation of {@code EventMetadata}.
+ * <p>
+ * The timestamp is taken from {@code System.nanoTime()}, anchored to the wall clock once, and stored as a
+ * {@code long}; the {@code Instant} is only created when requested.
+ *
+ * @param <E> type of the event
+ *
+ * @author Andres Almiray
+ */
+final class DefaultEventMetadata<E> implements EventMetadata<E> {
+    private static final long EPOCH_NANOS_ORIGIN;
+    private static final long NANO_TIME_ORIGIN;
+
+    static {
+        Instant now = Instant.now();
+        NANO_TIME_ORIGIN = System.nanoTime();
+        EPOCH_NANOS_ORIGIN = now.getEpochSecond() * 1_000_000_000L + now.getNano();
+    }
+
+    private final E event;
+    private final long timestampNanos;
+    private Instant timestamp;
+
+    DefaultEventMetadata(E event) {
+        this.event = requireNonNull(event, "event");
+        this.timestampNanos = EPOCH_NANOS_ORIGIN + (System.nanoTime() - NANO_TIME_ORIGIN);
+    }
+
+    @Override
+    public Instant getTimestamp() {
+        // racy but benign, Instant is immutable
+        Instant t = timestamp;
+        if (t == null) {
+            t = Instant.ofEpochSecond(0L, timestampNanos);
+            timestamp = t;
+        }
+        return t;
+    }
+
+    @Override
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    @Override
+    public E getEvent() {
+        return event;
+    }
+
+    @Override
+    public String toString() {
+        return "EventMetadata[event=" + event + ", timestamp=" + getTimestamp() + "]";
+    }
+}
@@ -17,6 +17,12 @@
  */
 package javax.application.event;
 
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
 /**
  * Base contract for classes that can publish events.
  * <p>
@@ -51,8 +57,57 @@ public interface EventBus {
      */
     void subscribe(Object handler);
 
+    /**
+     * Adds an event handler and returns a handle to its subscription.<p>
+     * The default implementation delegates to {@link #subscribe(Object)} and returns a {@code Subscription} that
+     * calls {@link #unsubscribe(Object)}. Such a subscription only reports itself as inactive once it has been
+     * unsubscribed through the returned handle. Implementations should override this method in order to track
+     * the subscription themselves.
+     *
+     * @param handler an event handler. Must not be {@code null}.
+     *
+     * @return a {@code Subscription} that can be used to remove the handler. Never returns {@code null}.
+     */
+    default Subscription subscribeFor(Object handler) {
+        requireNonNull(handler, "handler");
+        subscribe(handler);
+        AtomicBoolean active = new AtomicBoolean(true);
+        return new Subscription() {
+            @Override
+            public void unsubscribe() {
+                if (active.compareAndSet(true, false)) {
+                    EventBus.this.unsubscribe(handler);
+                }
+            }
+
+            @Override
+            public boolean isActive() {
+                return active.get();
+            }
+        };
+    }
+
+    /**
+     * Adds an event handler that is weakly referenced.<p>
+     * The handler is removed automatically once it is no longer strongly reachable and has been reclaimed by the
+     * garbage collector, which means that the caller must keep a reference to the handler for as long as
+     * it should receive events.
+     * <p>
+     * The default implementation holds the handler strongly, as {@link #subscribeFor(Object)} does, thus the
+     * handler is only removed when unsubscribed. Implementations that can reference handlers weakly should override it.
+     *
+     * @param handler an event handler. Must not be {@code null}.
+     *
+     * @return a {@code Subscription} that can be used to remove the handler. Never returns {@code null}.
+     */
+    default Subscription subscribeWeakly(Object handler) {
+        return subscribeFor(handler);
+    }
+
     /**
      * Removes an event handler.<p>
+     * Prefer {@link Subscription#unsubscribe()} when the subscription is available, as it does not need to look
+     * up the handler.
      *
      * @param handler an event handler. Must not be {@code null}.
      */
@@ -73,4 +128,61 @@ public interface EventBus {
      * @param event the event to be published. Must not be {@code null}.
      */
     <E> void publishEventAsync(E event);
+
+    /**
+     * Publishes a group of events.<p>
+     * Handlers will be notified in the same thread as the publisher. Handlers that accept a {@code List} of events
+     * should receive all matching events in a single call.
+     *
+     * @param events the events to be published. Must not be {@code null}.
+     */
+    default <E> void publishEvents(Collection<E> events) {
+        requireNonNull(events, "events");
+        for (E event : events) {
+            publishEvent(event);
+        }
+    }
+
+    /**
+     * Publishes a group of events.<p>
+     * Handlers will be notified in a background thread. Handlers that accept a {@code List} of events
+     * should receive all matching events in a single call.
+     *
+     * @param events the events to be published. Must not be {@code null}.
+     */
+    default <E> void publishEventsAsync(Collection<E> events) {
+        requireNonNull(events, "events");
+        for (E event : events) {
+            publishEventAsync(event);
+        }
+    }
+
+    /**
+     * Publishes an event, coalescing it with pending events of the same class that share the same key.<p>
+     * Handlers will be notified in a background thread. If an event of the same class with the same key was published
+     * and has not been delivered yet then it is replaced by the given event, thus a burst of equivalent events
+     * results in a single delivery per handler.
+     *
+     * @param event         the event to be published. Must not be {@code null}.
+     * @param coalescingKey computes the key that identifies equivalent events. Must not be {@code null} nor
+     *                      return {@code null}.
+     */
+    default <E> void publishEventAsync(E event, Function<? super E, ?> coalescingKey) {
+        requireNonNull(coalescingKey, "coalescingKey");
+        publishEventAsync(event);
+    }
+
+    /**
+     * Publishes an event associated with the given key.<p>
+     * Handlers will be notified in a background thread. Events published with the same key, for example the id
+     * of the entity they refer to, must be delivered in the order they were published; events published with
+     * different keys may be delivered in parallel.
+     *
+     * @param key   the key that defines the ordering of the event. Must not be {@code null}.
+     * @param event the event to be published. Must not be {@code null}.
+     */
+    default <E> void publishEventAsyncOrdered(Object key, E event) {
+        requireNonNull(key, "key");
+        publishEventAsync(event);
+    }
 }
@@ -0,0 +1,161 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.event;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Immutable snapshot of all subscribers registered with an {@code EventBus}, keyed by event type.
+ * <p>
+ * An event is delivered to every subscriber whose event type is the event's class or any of its supertypes.
+ * The supertypes of a class (its dispatch keys) are computed once per class. The subscribers matching a
+ * concrete event class are merged and sorted once per snapshot; a new snapshot is created whenever handlers
+ * are subscribed or unsubscribed, which invalidates all previously merged results.
+ * <p>
+ * Dispatch keys are cached with a {@code ClassValue}, attached to the event class itself so that they do not
+ * prevent its {@code ClassLoader} from being collected. Merged subscribers are cached with a second
+ * {@code ClassValue} shared by all snapshots of the same bus, which only keeps a weak reference to the most
+ * recent resolution and is ignored when that resolution belongs to an older snapshot. Snapshots hold their
+ * resolutions strongly but never the event classes they were resolved for, so neither side pins the other.
+ *
+ * @author Andres Almiray
+ */
+final class EventDispatchTable {
+    static final EventSubscriber[] NO_SUBSCRIBERS = new EventSubscriber[0];
+    static final EventDispatchTable EMPTY = new EventDispatchTable(Collections.emptyMap(), null);
+
+    private static final ClassValue<Class<?>[]> DISPATCH_KEYS = new ClassValue<Class<?>[]>() {
+        @Override
+        protected Class<?>[] computeValue(Class<?> type) {
+            Set<Class<?>> keys = new LinkedHashSet<>();
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                keys.add(c);
+                addInterfaces(c, keys);
+            }
+            return keys.toArray(new Class<?>[0]);
+        }
+
+        private void addInterfaces(Class<?> type, Set<Class<?>> keys) {
+            for (Class<?> i : type.getInterfaces()) {
+                if (keys.add(i)) {
+                    addInterfaces(i, keys);
+                }
+            }
+        }
+    };
+
+    private final Map<Class<?>, EventSubscriber[]> subscribersByType;
+    private final ResolutionCache resolutionCache;
+    private final Collection<Resolution> resolutions = new ConcurrentLinkedQueue<>();
+
+    private EventDispatchTable(Map<Class<?>, EventSubscriber[]> subscribersByType, ResolutionCache resolutionCache) {
+        this.subscribersByType = subscribersByType;
+        this.resolutionCache = resolutionCache;
+    }
+
+    /**
+     * Creates a new snapshot with the given subscribers. The new snapshot shares its resolution cache with
+     * this one, unless this is the {@link #EMPTY} snapshot shared by all buses.
+     */
+    EventDispatchTable withSubscribers(Map<Class<?>, EventSubscriber[]> subscribersByType) {
+        return new EventDispatchTable(subscribersByType, this == EMPTY ? new ResolutionCache() : resolutionCache);
+    }
+
+    /**
+     * Returns the subscribers registered for the given type only, without considering supertypes.
+     */
+    Map<Class<?>, EventSubscriber[]> getSubscribersByType() {
+        return subscribersByType;
+    }
+
+    /**
+     * Returns all subscribers that can handle an event of the given type, sorted by priority.
+     */
+    EventSubscriber[] getSubscribers(Class<?> eventType) {
+        if (subscribersByType.isEmpty()) {
+            return NO_SUBSCRIBERS;
+        }
+
+        ResolutionSlot slot = resolutionCache.get(eventType);
+        Resolution resolution = slot.get();
+        if (resolution == null || resolution.table != this) {
+            resolution = new Resolution(this, resolve(eventType));
+            // the snapshot keeps its resolutions alive, the slot on the event class only refers to them weakly
+            resolutions.add(resolution);
+            slot.set(resolution);
+        }
+        return resolution.subscribers;
+    }
+
+    private EventSubscriber[] resolve(Class<?> eventType) {
+        List<EventSubscriber> subscribers = new ArrayList<>();
+        for (Class<?> key : DISPATCH_KEYS.get(eventType)) {
+            EventSubscriber[] candidates = subscribersByType.get(key);
+            if (candidates != null) {
+                Collections.addAll(subscribers, candidates);
+            }
+        }
+        if (subscribers.isEmpty()) {
+            return NO_SUBSCRIBERS;
+        }
+
+        EventSubscriber[] resolved = subscribers.toArray(NO_SUBSCRIBERS);
+        // stable sort, subscribers to more specific types come first when priorities are equal
+        Arrays.sort(resolved, EventSubscriber.BY_PRIORITY);
+        return resolved;
+    }
+
+    private static final class ResolutionCache extends ClassValue<ResolutionSlot> {
+        @Override
+        protected ResolutionSlot computeValue(Class<?> type) {
+            return new ResolutionSlot();
+        }
+    }
+
+    private static final class ResolutionSlot {
+        private volatile WeakReference<Resolution> resolution;
+
+        private Resolution get() {
+            WeakReference<Resolution> reference = resolution;
+            return reference != null ? reference.get() : null;
+        }
+
+        private void set(Resolution resolution) {
+            this.resolution = new WeakReference<>(resolution);
+        }
+    }
+
+    private static final class Resolution {
+        private final EventDispatchTable table;
+        private final EventSubscriber[] subscribers;
+
+        private Resolution(EventDispatchTable table, EventSubscriber[] subscribers) {
+            this.table = table;
+            this.subscribers = subscribers;
+        }
+    }
+}
@@ -21,9 +21,28 @@ import java.util.function.Function;
 
 /**
  * Annotation to define a filter for an {@link EventHandler}.
+ * <p>
+ * Implementations of {@code EventBus} evaluate filters through {@link #test(EventMetadata)}, which by default
+ * delegates to {@link #apply(Object)}. Filters that are evaluated frequently should override {@code test()}
+ * in order to avoid the {@code Boolean} result.
  *
  * @author Andres Almiray
  * @author Hendrik Ebbers
  */
-public interface EventFilter<E> extends Function<EventMetadata<E>, Boolean> {
+public interface EventFilter<E> extends Function<EventMetadata<E>, Boolean>, EventPredicate<E> {
+    @Override
+    default boolean test(EventMetadata<E> metadata) {
+        return Boolean.TRUE.equals(apply(metadata));
+    }
+
+    /**
+     * Returns the relative cost of evaluating this filter. Filters defined on the same {@code EventHandler} are
+     * evaluated in ascending order of cost, thus cheap filters get a chance to reject an event before expensive
+     * ones are evaluated. Filters with the same cost are evaluated in declaration order.
+     *
+     * @return the relative cost of this filter, {@code 0} by default.
+     */
+    default int getCost() {
+        return 0;
+    }
 }
@@ -0,0 +1,86 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.event;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Compiles the filters of an {@code EventHandler} into a single predicate.
+ *
+ * @author Andres Almiray
+ */
+final class EventFilterChain {
+    private EventFilterChain() {
+        // prevent instantiation
+    }
+
+    /**
+     * Combines the given filters into a predicate that evaluates them in ascending order of cost,
+     * stopping at the first filter that rejects the event.
+     *
+     * @param filters the filters to combine. Must not be {@code null}.
+     *
+     * @return a predicate, or {@code null} if there are no filters.
+     */
+    static EventPredicate<Object> compile(EventFilter<Object>[] filters) {
+        // stable sort, filters with the same cost keep their declaration order
+        EventFilter<Object>[] sorted = filters.clone();
+        Arrays.sort(sorted, Comparator.comparingInt(EventFilter::getCost));
+
+        switch (sorted.length) {
+            case 0:
+                return null;
+            case 1:
+                return sorted[0];
+            case 2:
+                EventFilter<Object> first = sorted[0];
+                EventFilter<Object> second = sorted[1];
+                return metadata -> first.test(metadata) && second.test(metadata);
+            default:
+                return metadata -> {
+                    for (EventFilter<Object> filter : sorted) {
+                        if (!filter.test(metadata)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                };
+        }
+    }
+
+    /**
+     * Finds out if instances of the given filter type hold no state, in which case a single instance may be shared.
+     *
+     * @param filterType the type to inspect. Must not be {@code null}.
+     *
+     * @return {@code true} if neither the type nor its superclasses declare instance fields, {@code false} otherwise.
+     */
+    static boolean isStateless(Class<?> filterType) {
+        for (Class<?> type = filterType; type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
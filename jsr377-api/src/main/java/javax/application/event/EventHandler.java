@@ -25,6 +25,10 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 /**
+ * Marks a method as an event handler. The method must define a single argument that determines the type of
+ * events it can handle. The argument may also be a parameterized {@code java.util.List}, for example
+ * {@code List<CustomEvent>}, in which case events published as a group are delivered in a single call.
+ *
  * @author Andres Almiray
  */
 @Documented
@@ -35,6 +39,11 @@ public @interface EventHandler {
     /**
      * Defines filters for this event handler. All filters are evaluated before the handler is invoked, which
      * can only happen if all filters return {@code true}.
+     * <p>
+     * Filters are instantiated when the handler is subscribed, not when events are delivered. Filter types
+     * that declare no instance fields may be instantiated only once and shared among handlers.
+     *
+     * @see EventFilter#getCost()
      */
     Class<? extends EventFilter<?>>[] filters() default {};
 
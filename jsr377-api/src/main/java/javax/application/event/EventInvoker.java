@@ -0,0 +1,95 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.event;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Invokes an {@code EventHandler} method on a given target.
+ * <p>
+ * The target is supplied on every call instead of being bound to the invoker so that the same
+ * invoker can be used regardless of how the handler instance is referenced.
+ *
+ * @author Andres Almiray
+ */
+interface EventInvoker {
+    void invoke(Object target, Object event) throws Throwable;
+
+    /**
+     * Creates an invoker for the given method. The method must have been made accessible beforehand.
+     *
+     * @param method the method to be invoked. Must not be {@code null}.
+     * @param mode   the invocation strategy. Must not be {@code null}.
+     *
+     * @return a non-null invoker.
+     */
+    static EventInvoker of(Method method, DefaultEventBus.InvocationMode mode) {
+        switch (mode) {
+            case REFLECTION:
+                return new ReflectiveEventInvoker(method);
+            case METHOD_HANDLE:
+            default:
+                return new MethodHandleEventInvoker(method);
+        }
+    }
+
+    final class ReflectiveEventInvoker implements EventInvoker {
+        private final Method method;
+
+        private ReflectiveEventInvoker(Method method) {
+            this.method = method;
+        }
+
+        @Override
+        public void invoke(Object target, Object event) throws Throwable {
+            try {
+                method.invoke(target, event);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * The handle is not a constant, thus calls are not inlined into the publishing code; they still avoid the
+     * argument array and access checks of {@code Method.invoke()}. See {@code EventInvokerBenchmark}.
+     */
+    final class MethodHandleEventInvoker implements EventInvoker {
+        private static final MethodType INVOKER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+        private final MethodHandle handle;
+
+        private MethodHandleEventInvoker(Method method) {
+            try {
+                // adapt (Handler, Event)R into (Object, Object)void once so that invokeExact neither boxes nor spreads
+                this.handle = MethodHandles.lookup().unreflect(method).asType(INVOKER_TYPE);
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Could not access event handler method " + method, e);
+            }
+        }
+
+        @Override
+        public void invoke(Object target, Object event) throws Throwable {
+            handle.invokeExact(target, event);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.event;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded queue of events waiting to be delivered asynchronously to a single subscriber.
+ *
+ * @author Andres Almiray
+ */
+final class EventMailbox extends AbstractEventQueue {
+    private final EventSubscriber subscriber;
+
+    EventMailbox(EventSubscriber subscriber, Executor executor, int capacity, DefaultEventBus.OverflowPolicy overflowPolicy,
+                 LongAdder pendingEvents, LongAdder droppedEvents) {
+        super(executor, capacity, overflowPolicy, pendingEvents, droppedEvents);
+        this.subscriber = subscriber;
+    }
+
+    /**
+     * Queues an event for delivery. The event's metadata is kept instead of the event itself when the subscriber
+     * defines filters, so that filters observe the time at which the event was published.
+     *
+     * @param event    the event to be delivered.
+     * @param metadata the event's metadata. May be {@code null} if the subscriber does not define filters.
+     * @param mayBlock whether the calling thread may wait for room under the {@code BLOCK} policy. If not, the
+     *                 event is queued beyond capacity.
+     */
+    void offer(Object event, EventMetadata<Object> metadata, boolean mayBlock) {
+        offer(subscriber.hasFilters() ? metadata : event, mayBlock);
+    }
+
+    @Override
+    Object eventOf(Object element) {
+        return element instanceof DefaultEventMetadata ? ((DefaultEventMetadata<?>) element).getEvent() : element;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void deliver(List<Object> batch) {
+        if (subscriber.hasFilters()) {
+            batch.removeIf(element -> !subscriber.accept((EventMetadata<Object>) element));
+            batch.replaceAll(this::eventOf);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        if (subscriber.isBatch()) {
+            try {
+                subscriber.invoke(batch);
+            } catch (RuntimeException | Error e) {
+                handleException(e);
+            }
+        } else {
+            for (Object event : batch) {
+                try {
+                    subscriber.invoke(event);
+                } catch (RuntimeException | Error e) {
+                    handleException(e);
+                }
+            }
+        }
+    }
+}
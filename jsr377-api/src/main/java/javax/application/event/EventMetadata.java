@@ -35,6 +35,17 @@ public interface EventMetadata<E> {
      */
     Instant getTimestamp();
 
+    /**
+     * The point in time when this event was published, as the number of nanoseconds since the epoch.
+     * Implementations should override this method when they can supply the value without creating an {@code Instant}.
+     *
+     * @return the timestamp in nanoseconds.
+     */
+    default long getTimestampNanos() {
+        Instant timestamp = getTimestamp();
+        return timestamp.getEpochSecond() * 1_000_000_000L + timestamp.getNano();
+    }
+
     /**
      * The event that was published.
      *
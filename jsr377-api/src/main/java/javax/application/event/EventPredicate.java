@@ -0,0 +1,38 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.event;
+
+/**
+ * Decides if an event should be delivered to an {@link EventHandler}, returning a primitive value.
+ *
+ * @param <E> type of the event
+ *
+ * @author Andres Almiray
+ * @see EventFilter
+ */
+@FunctionalInterface
+public interface EventPredicate<E> {
+    /**
+     * Evaluates this predicate on the given metadata.
+     *
+     * @param metadata the metadata of the event to be delivered. Never {@code null}.
+     *
+     * @return {@code true} if the event should be delivered, {@code false} otherwise.
+     */
+    boolean test(EventMetadata<E> metadata);
+}
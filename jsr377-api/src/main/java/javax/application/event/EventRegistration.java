@@ -0,0 +1,142 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.event;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.function.Consumer;
+
+/**
+ * A handler instance subscribed to a {@code DefaultEventBus}, together with all of its subscribers.
+ * <p>
+ * The handler may be held weakly, in which case the registration is enqueued on a {@code ReferenceQueue}
+ * once the handler has been reclaimed.
+ *
+ * @author Andres Almiray
+ */
+final class EventRegistration implements Subscription {
+    private final Object strongTarget;
+    private final TargetReference weakTarget;
+    private final int targetHash;
+    private final Consumer<EventRegistration> onUnsubscribe;
+    private EventSubscriber[] subscribers = EventDispatchTable.NO_SUBSCRIBERS;
+    private volatile boolean active = true;
+
+    private EventRegistration(Object strongTarget, Object weakTarget, ReferenceQueue<Object> queue, Consumer<EventRegistration> onUnsubscribe) {
+        this.strongTarget = strongTarget;
+        this.weakTarget = weakTarget != null ? new TargetReference(weakTarget, queue, this) : null;
+        this.targetHash = System.identityHashCode(strongTarget != null ? strongTarget : weakTarget);
+        this.onUnsubscribe = onUnsubscribe;
+    }
+
+    static EventRegistration strong(Object target, Consumer<EventRegistration> onUnsubscribe) {
+        return new EventRegistration(target, null, null, onUnsubscribe);
+    }
+
+    static EventRegistration weak(Object target, ReferenceQueue<Object> queue, Consumer<EventRegistration> onUnsubscribe) {
+        return new EventRegistration(null, target, queue, onUnsubscribe);
+    }
+
+    /**
+     * Returns the registration owning the given reference, if the reference was created by a weak registration.
+     */
+    static EventRegistration of(Object reference) {
+        return reference instanceof TargetReference ? ((TargetReference) reference).registration : null;
+    }
+
+    /**
+     * Returns the handler instance, or {@code null} if it has been reclaimed.
+     */
+    Object getTarget() {
+        return strongTarget != null ? strongTarget : weakTarget.get();
+    }
+
+    /**
+     * Returns the handler instance, or {@code null} if it has been reclaimed or unsubscribed.
+     */
+    Object getActiveTarget() {
+        return active ? getTarget() : null;
+    }
+
+    /**
+     * Returns the identity hash code of the handler instance, which remains available after it has been reclaimed.
+     */
+    int getTargetHash() {
+        return targetHash;
+    }
+
+    boolean isWeak() {
+        return weakTarget != null;
+    }
+
+    EventSubscriber[] getSubscribers() {
+        return subscribers;
+    }
+
+    void setSubscribers(EventSubscriber[] subscribers) {
+        this.subscribers = subscribers;
+    }
+
+    /**
+     * Marks this registration as inactive, returns {@code true} if it was active.
+     */
+    boolean deactivate() {
+        boolean wasActive = active;
+        active = false;
+        return wasActive;
+    }
+
+    @Override
+    public void unsubscribe() {
+        if (active) {
+            onUnsubscribe.accept(this);
+        }
+    }
+
+    @Override
+    public boolean isActive() {
+        return getActiveTarget() != null;
+    }
+
+    @Override
+    public long getPendingEventCount() {
+        long count = 0L;
+        for (EventSubscriber subscriber : subscribers) {
+            count += subscriber.getMailbox().size();
+        }
+        return count;
+    }
+
+    @Override
+    public long getDroppedEventCount() {
+        long count = 0L;
+        for (EventSubscriber subscriber : subscribers) {
+            count += subscriber.getMailbox().getDroppedCount();
+        }
+        return count;
+    }
+
+    private static final class TargetReference extends WeakReference<Object> {
+        private final EventRegistration registration;
+
+        private TargetReference(Object target, ReferenceQueue<Object> queue, EventRegistration registration) {
+            super(target, queue);
+            this.registration = registration;
+        }
+    }
+}
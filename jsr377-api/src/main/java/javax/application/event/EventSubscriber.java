@@ -0,0 +1,126 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.event;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A single {@code EventHandler} method bound to the registration of its handler instance.
+ * <p>
+ * Instances are created once, when the handler is subscribed, and are immutable afterwards, with the
+ * exception of the mailbox used for asynchronous delivery which is attached before the subscriber is published.
+ *
+ * @author Andres Almiray
+ */
+final class EventSubscriber {
+    /**
+     * Sorts subscribers in descending order of priority.
+     */
+    static final Comparator<EventSubscriber> BY_PRIORITY = (a, b) -> Integer.compare(b.priority, a.priority);
+
+    private final EventRegistration registration;
+    private final Method method;
+    private final EventInvoker invoker;
+    private final Class<?> eventType;
+    private final boolean batch;
+    private final int priority;
+    private final EventPredicate<Object> filter;
+    private EventMailbox mailbox;
+
+    EventSubscriber(EventRegistration registration, Method method, EventInvoker invoker, Class<?> eventType, boolean batch, int priority, EventPredicate<Object> filter) {
+        this.registration = registration;
+        this.method = method;
+        this.invoker = invoker;
+        this.eventType = eventType;
+        this.batch = batch;
+        this.priority = priority;
+        this.filter = filter;
+    }
+
+    EventRegistration getRegistration() {
+        return registration;
+    }
+
+    Class<?> getEventType() {
+        return eventType;
+    }
+
+    /**
+     * Whether the handler method accepts a {@code List} of events instead of a single event.
+     */
+    boolean isBatch() {
+        return batch;
+    }
+
+    int getPriority() {
+        return priority;
+    }
+
+    EventMailbox getMailbox() {
+        return mailbox;
+    }
+
+    void setMailbox(EventMailbox mailbox) {
+        this.mailbox = mailbox;
+    }
+
+    boolean hasFilters() {
+        return filter != null;
+    }
+
+    boolean accept(EventMetadata<Object> metadata) {
+        return filter.test(metadata);
+    }
+
+    void invoke(Object event) {
+        invokeHandler(batch ? Collections.singletonList(event) : event);
+    }
+
+    void invoke(List<Object> events) {
+        if (batch) {
+            invokeHandler(events);
+        } else {
+            for (Object event : events) {
+                invokeHandler(event);
+            }
+        }
+    }
+
+    private void invokeHandler(Object argument) {
+        Object target = registration.getActiveTarget();
+        if (target == null) {
+            return;
+        }
+
+        try {
+            invoker.invoke(target, argument);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("An error occurred while invoking event handler " + this, t);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return method.getDeclaringClass().getName() + "." + method.getName() + "(" + (batch ? "List<" + eventType.getName() + ">" : eventType.getName()) + ")";
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.event;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Delivers events sharing the same key one after the other, in publication order, on top of a shared executor.
+ * <p>
+ * Keys are hashed into a fixed number of stripes. Each stripe is a bounded serial queue with its own lock that
+ * occupies at most one thread of the underlying executor at a time, thus events for different keys are delivered
+ * in parallel unless their keys fall into the same stripe. Stripes are subject to the same capacity and
+ * {@link DefaultEventBus.OverflowPolicy} as subscriber queues.
+ *
+ * @author Andres Almiray
+ */
+final class StripedEventQueue {
+    private final Stripe[] stripes;
+    private final int mask;
+
+    StripedEventQueue(Executor executor, int concurrency, int capacity, DefaultEventBus.OverflowPolicy overflowPolicy,
+                      LongAdder pendingEvents, LongAdder droppedEvents, Consumer<Object> delivery) {
+        int size = Integer.highestOneBit(Math.max(1, concurrency - 1)) << 1;
+        this.stripes = new Stripe[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe(executor, capacity, overflowPolicy, pendingEvents, droppedEvents, delivery);
+        }
+    }
+
+    void offer(Object key, Object event) {
+        int h = key.hashCode();
+        stripes[(h ^ (h >>> 16)) & mask].offer(event, true);
+    }
+
+    private static final class Stripe extends AbstractEventQueue {
+        private final Consumer<Object> delivery;
+
+        private Stripe(Executor executor, int capacity, DefaultEventBus.OverflowPolicy overflowPolicy,
+                       LongAdder pendingEvents, LongAdder droppedEvents, Consumer<Object> delivery) {
+            super(executor, capacity, overflowPolicy, pendingEvents, droppedEvents);
+            this.delivery = delivery;
+        }
+
+        @Override
+        void deliver(List<Object> batch) {
+            for (Object event : batch) {
+                try {
+                    delivery.accept(event);
+                } catch (RuntimeException | Error e) {
+                    handleException(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.event;
+
+/**
+ * Handle to an event handler subscribed to an {@link EventBus}.
+ *
+ * @author Andres Almiray
+ */
+public interface Subscription {
+    /**
+     * Removes the event handler from the {@code EventBus} it was subscribed to.
+     * Handlers receive no further events once this method returns. Invoking this method more than once has no effect.
+     */
+    void unsubscribe();
+
+    /**
+     * Finds out if the event handler may still receive events.
+     *
+     * @return {@code false} if the handler was unsubscribed or, in the case of weak subscriptions, if the handler
+     * was reclaimed by the garbage collector; {@code true} otherwise.
+     */
+    boolean isActive();
+
+    /**
+     * Returns the number of asynchronous events waiting to be delivered to the event handler.
+     *
+     * @return a number equal or greater than {@code 0}. Implementations that do not queue events return {@code 0}.
+     */
+    default long getPendingEventCount() {
+        return 0L;
+    }
+
+    /**
+     * Returns the number of asynchronous events that were discarded because the event handler's queue was full.
+     *
+     * @return a number equal or greater than {@code 0}. Implementations that do not queue events return {@code 0}.
+     */
+    default long getDroppedEventCount() {
+        return 0L;
+    }
+}
@@ -0,0 +1,498 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.threading;
+
+import javax.application.configuration.Configuration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleConsumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Base implementation of {@code ThreadingHandler} that is independent of any UI toolkit.
+ * <p>
+ * Subclasses must determine which thread is the UI thread and how to post code to it; everything else,
+ * including the executor used for background work, is provided by this class.
+ * <p>
+ * Code sent to the UI thread is not posted to the UI toolkit one block at a time. Blocks are queued and drained
+ * in batches, each batch running for at most {@value #KEY_UI_FRAME_BUDGET} milliseconds (defaults to
+ * {@code 8}); blocks that did not fit are deferred to the next batch. Blocks submitted with
+ * {@link #executeInsideUIAsync(Object, Runnable)} replace pending blocks with the same key.
+ * <p>
+ * Background work runs on the executor selected by the following {@code Configuration} keys:
+ * <ul>
+ * <li>{@value #KEY_VIRTUAL_THREADS} - if {@code true} every task runs on its own virtual thread, provided the
+ * Java runtime supports them. Tasks then start right away instead of waiting in a queue, thus their
+ * {@link Threading.Lane} has no effect. Defaults to {@code false}.</li>
+ * <li>{@value #KEY_POOL_SIZE} - number of platform threads used when virtual threads are not in use.
+ * Defaults to twice the number of available processors.</li>
+ * <li>{@code javax.application.threading.category.<name>.concurrency} - maximum number of tasks of the given
+ * category that may run at the same time. Tasks exceeding the limit wait in a queue without holding a thread.
+ * Categories without a limit are unbounded.</li>
+ * </ul>
+ * When platform threads are in use, pending background work is ordered by {@link Threading.Lane}: interactive
+ * work overtakes default and bulk work, and pending work gains priority as it waits. The time spent waiting is
+ * recorded per lane.
+ * <p>
+ * CPU bound computations submitted with {@link #executeParallelAsync(SplittableTask, DoubleConsumer)} run on a
+ * separate work stealing pool whose parallelism is set by {@value #KEY_PARALLELISM} (defaults to the number of
+ * available processors). The pool is created on first use.
+ * <p>
+ * Calls to {@code executeInsideUISync} can be diagnosed by setting {@value #KEY_UI_SYNC_DIAGNOSTICS} to
+ * {@code true}. Callers waiting longer than {@value #KEY_UI_SYNC_STALL_THRESHOLD} milliseconds (defaults to
+ * {@code 500}) are logged together with the chain of nested calls, including calls made by background tasks
+ * submitted from inside a synchronous call, the locks held by the caller and the stack of
+ * the UI thread; lock cycles between the UI thread and waiting callers are logged as deadlocks. Diagnostics are
+ * disabled by default and cost a single field check when disabled.
+ *
+ * @author Andres Almiray
+ */
+public abstract class AbstractThreadingHandler implements ThreadingHandler {
+    public static final String KEY_VIRTUAL_THREADS = "javax.application.threading.virtual";
+    public static final String KEY_POOL_SIZE = "javax.application.threading.pool.size";
+    public static final String KEY_UI_FRAME_BUDGET = "javax.application.threading.ui.frame.budget";
+    public static final String KEY_PARALLELISM = "javax.application.threading.parallelism";
+    public static final String KEY_PROGRESS_INTERVAL = "javax.application.threading.progress.interval";
+    public static final String KEY_UI_SYNC_DIAGNOSTICS = "javax.application.threading.ui.sync.diagnostics";
+    public static final String KEY_UI_SYNC_STALL_THRESHOLD = "javax.application.threading.ui.sync.stall.threshold";
+
+    static final String VIRTUAL_THREAD_FACTORY_METHOD = "newVirtualThreadPerTaskExecutor";
+
+    private static final String KEY_CATEGORY_PREFIX = "javax.application.threading.category.";
+    private static final String KEY_CATEGORY_CONCURRENCY_SUFFIX = ".concurrency";
+
+    private final Configuration configuration;
+    private final LaneScheduler laneScheduler;
+    private final boolean virtualThreads;
+    private final Map<String, Executor> categoryExecutors = new ConcurrentHashMap<>();
+    private final UITaskScheduler uiTaskScheduler;
+    private final ScheduledExecutorService scheduler;
+    private final SyncCallMonitor syncCallMonitor;
+    private volatile ForkJoinPool forkJoinPool;
+
+    /**
+     * Creates a new {@code AbstractThreadingHandler}.
+     *
+     * @param configuration the configuration used to select and size the background executor. Must not be {@code null}.
+     */
+    protected AbstractThreadingHandler(Configuration configuration) {
+        this(configuration, VIRTUAL_THREAD_FACTORY_METHOD);
+    }
+
+    /**
+     * Creates a new {@code AbstractThreadingHandler} that looks up virtual thread support through the given
+     * {@code Executors} factory method, so that tests can force the platform thread fallback.
+     */
+    AbstractThreadingHandler(Configuration configuration, String virtualThreadFactoryMethod) {
+        this.configuration = requireNonNull(configuration, "configuration");
+
+        ExecutorService virtualThreadExecutor = null;
+        if (configuration.getAsBoolean(KEY_VIRTUAL_THREADS, false)) {
+            virtualThreadExecutor = createVirtualThreadExecutor(virtualThreadFactoryMethod);
+        }
+        this.virtualThreads = virtualThreadExecutor != null;
+        this.syncCallMonitor = configuration.getAsBoolean(KEY_UI_SYNC_DIAGNOSTICS, false) ? new SyncCallMonitor(
+            TimeUnit.MILLISECONDS.toNanos(configuration.getAsLong(KEY_UI_SYNC_STALL_THRESHOLD, 500L))) : null;
+        this.laneScheduler = new LaneScheduler(virtualThreads ? virtualThreadExecutor : createPlatformThreadExecutor(
+            configuration.getAsInt(KEY_POOL_SIZE, Runtime.getRuntime().availableProcessors() * 2)), syncCallMonitor);
+        this.uiTaskScheduler = new UITaskScheduler(this::postToUIThread,
+            TimeUnit.MILLISECONDS.toNanos(configuration.getAsLong(KEY_UI_FRAME_BUDGET, 8L)));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "threading-handler-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Posts a code block to the UI toolkit, to be executed asynchronously on the UI thread.
+     *
+     * @param runnable block of code that must be executed. Never {@code null}.
+     */
+    protected abstract void postToUIThread(Runnable runnable);
+
+    protected Configuration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Finds out if background work runs on virtual threads.
+     *
+     * @return {@code true} if virtual threads were requested and are supported by the Java runtime, {@code false} otherwise.
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Returns the number of times a code block that was queued for the UI thread had to wait for a later batch
+     * because the time budget of the current batch was exhausted.
+     *
+     * @return a number equal or greater than {@code 0}.
+     */
+    public long getDeferredUITaskCount() {
+        return uiTaskScheduler.getDeferredTaskCount();
+    }
+
+    /**
+     * Returns the number of calls to {@code executeInsideUISync} that waited longer than the stall threshold.
+     *
+     * @return a number equal or greater than {@code 0}. Always {@code 0} if diagnostics are disabled.
+     */
+    public long getStalledUISyncCallCount() {
+        return syncCallMonitor != null ? syncCallMonitor.getStalledCallCount() : 0L;
+    }
+
+    /**
+     * Stops accepting background work. Tasks that were already submitted are allowed to finish.
+     */
+    public void shutdown() {
+        laneScheduler.getExecutorService().shutdown();
+        scheduler.shutdown();
+        synchronized (this) {
+            if (forkJoinPool != null) {
+                forkJoinPool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Creates a group of background tasks without a deadline.
+     *
+     * @return a new {@code TaskGroup}. Never returns {@code null}.
+     */
+    public <T> TaskGroup<T> newTaskGroup() {
+        return newTaskGroup(0L, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a group of background tasks. All tasks of the group are cancelled if the group does not complete
+     * before the given timeout elapses.
+     *
+     * @param timeout the maximum time to wait for the group to complete, counted from now. A value equal or
+     *                less than {@code 0} means no deadline.
+     * @param unit    the unit of {@code timeout}. Must not be {@code null}.
+     *
+     * @return a new {@code TaskGroup}. Never returns {@code null}.
+     */
+    public <T> TaskGroup<T> newTaskGroup(long timeout, TimeUnit unit) {
+        requireNonNull(unit, "unit");
+        return new TaskGroup<>(this, laneScheduler, scheduler, timeout, unit);
+    }
+
+    /**
+     * Executes a CPU bound computation in parallel, without progress reports.
+     *
+     * @param task the computation to be executed. Must not be {@code null}.
+     *
+     * @return a {@code CompletionStage} that is completed on the UI thread with the result of the computation.
+     * Cancelling it stops the computation. Never returns {@code null}.
+     */
+    public <R> CompletionStage<R> executeParallelAsync(SplittableTask<R> task) {
+        return executeParallelAsync(task, null);
+    }
+
+    /**
+     * Executes a CPU bound computation in parallel on a work stealing pool. The fraction of work completed so far
+     * is reported to the UI thread at most once every {@value #KEY_PROGRESS_INTERVAL} milliseconds.
+     *
+     * @param task             the computation to be executed. Must not be {@code null}.
+     * @param progressListener receives the fraction of work completed so far, between {@code 0} and {@code 1},
+     *                         on the UI thread. May be {@code null}.
+     *
+     * @return a {@code CompletionStage} that is completed on the UI thread with the result of the computation.
+     * Cancelling it stops the computation. Never returns {@code null}.
+     */
+    public <R> CompletionStage<R> executeParallelAsync(SplittableTask<R> task, DoubleConsumer progressListener) {
+        requireNonNull(task, "task");
+
+        CompletableFuture<R> result = new CompletableFuture<>();
+        ParallelComputation<R> computation = ParallelComputation.of(task, result, this, progressListener,
+            TimeUnit.MILLISECONDS.toNanos(configuration.getAsLong(KEY_PROGRESS_INTERVAL, 100L)));
+        getForkJoinPool().execute(() -> {
+            R value;
+            try {
+                value = computation.invoke();
+            } catch (Throwable t) {
+                executeInsideUIAsync(() -> result.completeExceptionally(t));
+                return;
+            }
+            executeInsideUIAsync(() -> {
+                if (progressListener != null && !result.isDone()) {
+                    progressListener.accept(1d);
+                }
+                result.complete(value);
+            });
+        });
+        return result;
+    }
+
+    private ForkJoinPool getForkJoinPool() {
+        ForkJoinPool pool = forkJoinPool;
+        if (pool == null) {
+            synchronized (this) {
+                pool = forkJoinPool;
+                if (pool == null) {
+                    pool = createForkJoinPool(configuration.getAsInt(KEY_PARALLELISM, Runtime.getRuntime().availableProcessors()));
+                    forkJoinPool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    @Override
+    public void executeInsideUIAsync(Runnable runnable) {
+        uiTaskScheduler.execute(requireNonNull(runnable, "runnable"));
+    }
+
+    /**
+     * Executes a code block asynchronously on the UI thread, replacing any pending code block that was submitted
+     * with the same key. The code block keeps the position of the one it replaces, if any.
+     *
+     * @param coalescingKey identifies equivalent code blocks. Must not be {@code null}.
+     * @param runnable      block of code that must be executed. Must not be {@code null}.
+     */
+    public void executeInsideUIAsync(Object coalescingKey, Runnable runnable) {
+        uiTaskScheduler.execute(requireNonNull(coalescingKey, "coalescingKey"), requireNonNull(runnable, "runnable"));
+    }
+
+    @Override
+    public void executeInsideUISync(Runnable runnable) {
+        requireNonNull(runnable, "runnable");
+        executeInsideUISync(() -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    @Override
+    public <R> R executeInsideUISync(Callable<R> callable) {
+        requireNonNull(callable, "callable");
+        if (syncCallMonitor != null) {
+            return executeInsideUISync(syncCallMonitor, callable);
+        }
+
+        FutureTask<R> task = new FutureTask<>(callable);
+        if (isUIThread()) {
+            task.run();
+        } else {
+            executeInsideUIAsync(task);
+        }
+        return await(task);
+    }
+
+    private <R> R executeInsideUISync(SyncCallMonitor monitor, Callable<R> callable) {
+        boolean insideUIThread = isUIThread();
+        SyncCallMonitor.SyncCall<R> call = monitor.newCall(callable, insideUIThread);
+        if (insideUIThread) {
+            call.run();
+            return await(call);
+        }
+
+        executeInsideUIAsync(call);
+        try {
+            return monitor.await(call);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    @Override
+    public void executeOutsideUI(Runnable runnable) {
+        requireNonNull(runnable, "runnable");
+        if (isUIThread()) {
+            executeOutsideUIAsync(runnable);
+        } else {
+            runnable.run();
+        }
+    }
+
+    @Override
+    public void executeOutsideUIAsync(Runnable runnable) {
+        laneScheduler.execute(requireNonNull(runnable, "runnable"));
+    }
+
+    @Override
+    public <R> CompletionStage<R> executeOutsideUIAsync(Callable<R> callable) {
+        return submit(laneScheduler, requireNonNull(callable, "callable"));
+    }
+
+    @Override
+    public <R> CompletionStage<R> executeInsideUIAsync(Callable<R> callable) {
+        requireNonNull(callable, "callable");
+        CompletableFuture<R> future = new CompletableFuture<>();
+        executeInsideUIAsync(() -> complete(future, callable));
+        return future;
+    }
+
+    @Override
+    public void executeOutsideUIAsync(Threading.Lane lane, Runnable runnable) {
+        laneScheduler.execute(requireNonNull(lane, "lane"), requireNonNull(runnable, "runnable"));
+    }
+
+    @Override
+    public <R> CompletionStage<R> executeOutsideUIAsync(Threading.Lane lane, Callable<R> callable) {
+        requireNonNull(lane, "lane");
+        return submit(runnable -> laneScheduler.execute(lane, runnable), requireNonNull(callable, "callable"));
+    }
+
+    /**
+     * Returns the average time background work of the given lane waited before it started.
+     *
+     * @param lane the lane to query. Must not be {@code null}.
+     * @param unit the unit of the returned value. Must not be {@code null}.
+     *
+     * @return the average queue latency, {@code 0} if no work was executed in the lane.
+     */
+    public long getAverageQueueLatency(Threading.Lane lane, TimeUnit unit) {
+        return laneScheduler.getAverageLatency(requireNonNull(lane, "lane"), requireNonNull(unit, "unit"));
+    }
+
+    /**
+     * Returns the longest time background work of the given lane waited before it started.
+     *
+     * @param lane the lane to query. Must not be {@code null}.
+     * @param unit the unit of the returned value. Must not be {@code null}.
+     *
+     * @return the maximum queue latency, {@code 0} if no work was executed in the lane.
+     */
+    public long getMaxQueueLatency(Threading.Lane lane, TimeUnit unit) {
+        return laneScheduler.getMaxLatency(requireNonNull(lane, "lane"), requireNonNull(unit, "unit"));
+    }
+
+    /**
+     * Executes a code block on a background thread, always, honoring the concurrency limit of the given category.
+     *
+     * @param category the category of the task, for example {@code "disk"}. Must not be {@code null}.
+     * @param runnable block of code that must be executed. Must not be {@code null}.
+     */
+    public void executeOutsideUIAsync(String category, Runnable runnable) {
+        getCategoryExecutor(category).execute(requireNonNull(runnable, "runnable"));
+    }
+
+    /**
+     * Executes a code block on a background thread, always, honoring the concurrency limit of the given category.
+     *
+     * @param category the category of the task, for example {@code "disk"}. Must not be {@code null}.
+     * @param callable block of code that must be executed. Must not be {@code null}.
+     *
+     * @return a {@code CompletionStage} that can be used to signal the resolution or rejection of the code block. Never returns {@code null}.
+     */
+    public <R> CompletionStage<R> executeOutsideUIAsync(String category, Callable<R> callable) {
+        return submit(getCategoryExecutor(category), requireNonNull(callable, "callable"));
+    }
+
+    private Executor getCategoryExecutor(String category) {
+        requireNonNull(category, "category");
+        return categoryExecutors.computeIfAbsent(category, c -> {
+            int concurrency = configuration.getAsInt(KEY_CATEGORY_PREFIX + c + KEY_CATEGORY_CONCURRENCY_SUFFIX, 0);
+            return concurrency > 0 ? new BoundedExecutor(laneScheduler, concurrency) : laneScheduler;
+        });
+    }
+
+    private static <R> CompletionStage<R> submit(Executor executor, Callable<R> callable) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        executor.execute(() -> complete(future, callable));
+        return future;
+    }
+
+    private static <R> void complete(CompletableFuture<R> future, Callable<R> callable) {
+        try {
+            future.complete(callable.call());
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+        }
+    }
+
+    private static <R> R await(FutureTask<R> task) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static RuntimeException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IllegalStateException("An error occurred while executing code inside the UI thread", cause);
+    }
+
+    private static ForkJoinPool createForkJoinPool(int parallelism) {
+        AtomicInteger counter = new AtomicInteger();
+        return new ForkJoinPool(Math.max(1, parallelism), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("threading-handler-parallel-" + counter.incrementAndGet());
+            return thread;
+        }, null, false);
+    }
+
+    private static ExecutorService createPlatformThreadExecutor(int poolSize) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "threading-handler-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return LaneScheduler.newPool(Math.max(1, poolSize), threadFactory);
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread per task, or returns {@code null} if the
+     * Java runtime does not support virtual threads.
+     */
+    static ExecutorService createVirtualThreadExecutor(String factoryMethod) {
+        try {
+            return (ExecutorService) Executors.class.getMethod(factoryMethod).invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
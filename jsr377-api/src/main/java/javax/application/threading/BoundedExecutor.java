@@ -0,0 +1,80 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.threading;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * Limits the number of tasks that may run concurrently on a shared executor.
+ * <p>
+ * Tasks exceeding the limit are queued instead of being submitted, thus waiting tasks do not occupy
+ * threads of the underlying executor.
+ *
+ * @author Andres Almiray
+ */
+final class BoundedExecutor implements Executor {
+    private final Executor executor;
+    private final int maxConcurrency;
+    private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+    private int running;
+
+    BoundedExecutor(Executor executor, int maxConcurrency) {
+        this.executor = executor;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        synchronized (this) {
+            if (running >= maxConcurrency) {
+                queue.addLast(task);
+                return;
+            }
+            running++;
+        }
+        submit(task);
+    }
+
+    private void submit(Runnable task) {
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    next();
+                }
+            });
+        } catch (RuntimeException e) {
+            next();
+            throw e;
+        }
+    }
+
+    private void next() {
+        Runnable task;
+        synchronized (this) {
+            task = queue.pollFirst();
+            if (task == null) {
+                running--;
+                return;
+            }
+        }
+        submit(task);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.threading;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Orders background tasks by {@link Threading.Lane}, with aging.
+ * <p>
+ * Each task is ranked by the time it was submitted plus a fixed offset that depends on its lane; the task with
+ * the lowest rank runs first. A task in a lower priority lane therefore overtakes tasks of higher priority lanes
+ * once it has waited longer than the difference between their offsets, which prevents starvation.
+ * <p>
+ * The time each task spends waiting in the queue is recorded per lane.
+ * <p>
+ * If a {@link SyncCallMonitor} is given, each task runs with the synchronous call that was running on the
+ * submitting thread as its parent.
+ *
+ * @author Andres Almiray
+ */
+final class LaneScheduler implements Executor {
+    private static final long[] AGING_OFFSETS = {
+        0L,                                 // INTERACTIVE
+        TimeUnit.MILLISECONDS.toNanos(100), // DEFAULT
+        TimeUnit.SECONDS.toNanos(1)         // BULK
+    };
+
+    private final ExecutorService executorService;
+    private final SyncCallMonitor syncCallMonitor;
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder[] totalLatency = new LongAdder[AGING_OFFSETS.length];
+    private final LongAdder[] taskCount = new LongAdder[AGING_OFFSETS.length];
+    private final AtomicLong[] maxLatency = new AtomicLong[AGING_OFFSETS.length];
+
+    LaneScheduler(ExecutorService executorService, SyncCallMonitor syncCallMonitor) {
+        this.executorService = executorService;
+        this.syncCallMonitor = syncCallMonitor;
+        for (int i = 0; i < AGING_OFFSETS.length; i++) {
+            totalLatency[i] = new LongAdder();
+            taskCount[i] = new LongAdder();
+            maxLatency[i] = new AtomicLong();
+        }
+    }
+
+    /**
+     * Creates a fixed size pool whose queue honors the ordering of this scheduler.
+     */
+    static ExecutorService newPool(int poolSize, ThreadFactory threadFactory) {
+        return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(), threadFactory);
+    }
+
+    ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        execute(Threading.Lane.DEFAULT, task);
+    }
+
+    void execute(Threading.Lane lane, Runnable task) {
+        executorService.execute(new LaneTask(lane, task, System.nanoTime(), sequence.getAndIncrement()));
+    }
+
+    long getAverageLatency(Threading.Lane lane, TimeUnit unit) {
+        long count = taskCount[lane.ordinal()].sum();
+        return count == 0 ? 0L : unit.convert(totalLatency[lane.ordinal()].sum() / count, TimeUnit.NANOSECONDS);
+    }
+
+    long getMaxLatency(Threading.Lane lane, TimeUnit unit) {
+        return unit.convert(maxLatency[lane.ordinal()].get(), TimeUnit.NANOSECONDS);
+    }
+
+    private void record(Threading.Lane lane, long latency) {
+        int index = lane.ordinal();
+        totalLatency[index].add(latency);
+        taskCount[index].increment();
+        AtomicLong max = maxLatency[index];
+        for (long current = max.get(); latency > current && !max.compareAndSet(current, latency); current = max.get()) {
+            // retry
+        }
+    }
+
+    private final class LaneTask implements Runnable, Comparable<LaneTask> {
+        private final Threading.Lane lane;
+        private final Runnable task;
+        private final long submitted;
+        private final long rank;
+        private final long sequence;
+        private final SyncCallMonitor.SyncCall<?> parentCall;
+
+        private LaneTask(Threading.Lane lane, Runnable task, long submitted, long sequence) {
+            this.lane = lane;
+            this.task = task;
+            this.submitted = submitted;
+            this.rank = submitted + AGING_OFFSETS[lane.ordinal()];
+            this.sequence = sequence;
+            this.parentCall = syncCallMonitor != null ? syncCallMonitor.currentCall() : null;
+        }
+
+        @Override
+        public void run() {
+            record(lane, System.nanoTime() - submitted);
+            if (parentCall != null) {
+                syncCallMonitor.runWithParent(parentCall, task);
+            } else {
+                task.run();
+            }
+        }
+
+        @Override
+        public int compareTo(LaneTask other) {
+            // nanoTime values must be compared by their difference
+            long difference = rank - other.rank;
+            if (difference != 0L) {
+                return difference < 0L ? -1 : 1;
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.threading;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Runs a {@code SplittableTask} on a {@code ForkJoinPool}.
+ * <p>
+ * Subtasks are forked, except the last one which is computed by the current worker; the results are joined
+ * in reverse order so that workers help with the most recently forked tasks first. Progress is accumulated by
+ * completed leaves and reported to the UI thread at most once per interval, replacing any pending report.
+ *
+ * @author Andres Almiray
+ */
+final class ParallelComputation<R> extends RecursiveTask<R> {
+    private static final long serialVersionUID = 1L;
+
+    private final transient SplittableTask<R> task;
+    private final transient Context context;
+
+    private ParallelComputation(SplittableTask<R> task, Context context) {
+        this.task = task;
+        this.context = context;
+    }
+
+    static <R> ParallelComputation<R> of(SplittableTask<R> task, CompletableFuture<R> result, AbstractThreadingHandler threadingHandler,
+                                         DoubleConsumer progressListener, long progressIntervalNanos) {
+        return new ParallelComputation<>(task, new Context(result, threadingHandler, progressListener,
+            Math.max(1L, task.size()), progressIntervalNanos));
+    }
+
+    @Override
+    protected R compute() {
+        if (context.result.isDone()) {
+            throw new CancellationException();
+        }
+
+        if (!task.isSplittable()) {
+            R value = task.compute();
+            context.completed(task.size());
+            return value;
+        }
+
+        List<? extends SplittableTask<R>> subtasks = task.split();
+        int count = subtasks.size();
+        if (count == 0) {
+            throw new IllegalStateException("Task " + task + " did not split into subtasks");
+        }
+        @SuppressWarnings("unchecked")
+        ParallelComputation<R>[] forked = (ParallelComputation<R>[]) new ParallelComputation<?>[count];
+        for (int i = 0; i < count - 1; i++) {
+            forked[i] = new ParallelComputation<>(subtasks.get(i), context);
+            forked[i].fork();
+        }
+
+        R value = new ParallelComputation<>(subtasks.get(count - 1), context).compute();
+        for (int i = count - 2; i >= 0; i--) {
+            value = task.merge(forked[i].join(), value);
+        }
+        return value;
+    }
+
+    private static final class Context {
+        private final CompletableFuture<?> result;
+        private final AbstractThreadingHandler threadingHandler;
+        private final DoubleConsumer progressListener;
+        private final long totalSize;
+        private final long progressIntervalNanos;
+        private final LongAdder completedSize = new LongAdder();
+        private final AtomicLong nextReport;
+
+        private Context(CompletableFuture<?> result, AbstractThreadingHandler threadingHandler, DoubleConsumer progressListener,
+                        long totalSize, long progressIntervalNanos) {
+            this.result = result;
+            this.threadingHandler = threadingHandler;
+            this.progressListener = progressListener;
+            this.totalSize = totalSize;
+            this.progressIntervalNanos = progressIntervalNanos;
+            this.nextReport = new AtomicLong(System.nanoTime() + progressIntervalNanos);
+        }
+
+        private void completed(long size) {
+            completedSize.add(size);
+            if (progressListener == null) {
+                return;
+            }
+
+            long now = System.nanoTime();
+            long next = nextReport.get();
+            if (now - next >= 0 && nextReport.compareAndSet(next, now + progressIntervalNanos)) {
+                double progress = Math.min(1d, completedSize.sum() / (double) totalSize);
+                threadingHandler.executeInsideUIAsync(this, () -> progressListener.accept(progress));
+            }
+        }
+    }
+}
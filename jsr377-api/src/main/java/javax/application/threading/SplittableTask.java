@@ -0,0 +1,92 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.threading;
+
+import java.util.List;
+
+/**
+ * A CPU bound computation that can be divided into smaller computations whose results are merged.
+ * <p>
+ * Tasks are split recursively while {@link #isSplittable()} returns {@code true}; the remaining tasks are
+ * computed in parallel on a work stealing pool and their results are merged pairwise, preserving the order
+ * returned by {@link #split()}. For example, summing an array
+ * <pre>
+ * class Sum implements SplittableTask&lt;Long&gt; {
+ *     private final long[] values;
+ *     private final int from, to;
+ *
+ *     public long size() { return to - from; }
+ *     public boolean isSplittable() { return to - from &gt; 10_000; }
+ *     public List&lt;Sum&gt; split() {
+ *         int middle = (from + to) &gt;&gt;&gt; 1;
+ *         return Arrays.asList(new Sum(values, from, middle), new Sum(values, middle, to));
+ *     }
+ *     public Long compute() {
+ *         long sum = 0;
+ *         for (int i = from; i &lt; to; i++) sum += values[i];
+ *         return sum;
+ *     }
+ *     public Long merge(Long left, Long right) { return left + right; }
+ * }
+ * </pre>
+ *
+ * @param <R> the type of the result
+ *
+ * @author Andres Almiray
+ * @see AbstractThreadingHandler#executeParallelAsync(SplittableTask, java.util.function.DoubleConsumer)
+ */
+public interface SplittableTask<R> {
+    /**
+     * Returns the amount of work of this task, in arbitrary units. Used to report progress; the size of a task
+     * should be equal to the sum of the sizes of the tasks it splits into.
+     *
+     * @return a number equal or greater than {@code 0}.
+     */
+    long size();
+
+    /**
+     * Finds out if this task is large enough to be worth splitting.
+     *
+     * @return {@code true} if this task should be split, {@code false} if it should be computed directly.
+     */
+    boolean isSplittable();
+
+    /**
+     * Divides this task into smaller tasks. Called only if {@link #isSplittable()} returns {@code true}.
+     *
+     * @return the subtasks, in the order their results must be merged. Never returns {@code null} nor an empty list.
+     */
+    List<? extends SplittableTask<R>> split();
+
+    /**
+     * Computes the result of this task directly. Called only if {@link #isSplittable()} returns {@code false}.
+     *
+     * @return the result of this task.
+     */
+    R compute();
+
+    /**
+     * Merges the results of two adjacent subtasks.
+     *
+     * @param left  the result of the earlier subtask.
+     * @param right the result of the later subtask.
+     *
+     * @return the merged result.
+     */
+    R merge(R left, R right);
+}
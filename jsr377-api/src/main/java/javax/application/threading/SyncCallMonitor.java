@@ -0,0 +1,239 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.threading;
+
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MonitorInfo;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Diagnoses calls to {@code executeInsideUISync}.
+ * <p>
+ * Every call records the thread that made it and the call it is nested in, if any, forming a chain that is
+ * included in every report. Background tasks capture the call that is running on the thread that submits them,
+ * so a synchronous call made by such a task is linked to that call even though it starts on another thread.
+ * A caller that waits longer than the stall threshold triggers a report with the
+ * stack of the UI thread and the locks held by the caller; from then on the lock owners of the UI thread are
+ * followed on every threshold interval, reporting a deadlock if they lead back to a thread waiting on a
+ * synchronous call. Calls that complete within the threshold pay for a timed wait and two map updates only.
+ *
+ * @author Andres Almiray
+ */
+final class SyncCallMonitor {
+    private static final Logger LOG = Logger.getLogger(AbstractThreadingHandler.class.getName());
+    private static final int MAX_LOCK_CHAIN = 32;
+
+    private final long stallThresholdNanos;
+    private final Map<Long, SyncCall<?>> waitingCalls = new ConcurrentHashMap<>();
+    private final ThreadLocal<SyncCall<?>> currentCall = new ThreadLocal<>();
+    private final LongAdder stalledCalls = new LongAdder();
+    private volatile Thread uiThread;
+
+    SyncCallMonitor(long stallThresholdNanos) {
+        this.stallThresholdNanos = stallThresholdNanos;
+    }
+
+    long getStalledCallCount() {
+        return stalledCalls.sum();
+    }
+
+    /**
+     * Returns the call that is running on the current thread, or that the current background task was
+     * submitted from. Returns {@code null} if there is none.
+     */
+    SyncCall<?> currentCall() {
+        return currentCall.get();
+    }
+
+    /**
+     * Runs a background task with the given call as the parent of every synchronous call the task makes.
+     */
+    void runWithParent(SyncCall<?> parent, Runnable task) {
+        SyncCall<?> previous = currentCall.get();
+        currentCall.set(parent);
+        try {
+            task.run();
+        } finally {
+            if (previous == null) {
+                currentCall.remove();
+            } else {
+                currentCall.set(previous);
+            }
+        }
+    }
+
+    <R> SyncCall<R> newCall(Callable<R> callable, boolean insideUIThread) {
+        SyncCall<?> parent = currentCall.get();
+        SyncCall<R> call = new SyncCall<>(callable, Thread.currentThread(), parent);
+        if (insideUIThread) {
+            uiThread = Thread.currentThread();
+            if (parent != null && LOG.isLoggable(Level.FINE)) {
+                LOG.fine("Re-entrant synchronous call inside the UI thread: " + call.describeChain());
+            }
+        }
+        return call;
+    }
+
+    <R> R await(SyncCall<R> call) throws ExecutionException {
+        long threadId = call.caller.getId();
+        waitingCalls.put(threadId, call);
+        boolean interrupted = false;
+        boolean stalled = false;
+        boolean deadlocked = false;
+        long start = System.nanoTime();
+        try {
+            while (true) {
+                try {
+                    return call.get(stallThresholdNanos, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (TimeoutException e) {
+                    if (!stalled) {
+                        stalled = true;
+                        stalledCalls.increment();
+                        reportStall(call, System.nanoTime() - start);
+                    }
+                    if (!deadlocked) {
+                        deadlocked = detectWaitCycle(call);
+                    }
+                }
+            }
+        } finally {
+            waitingCalls.remove(threadId);
+            if (stalled && LOG.isLoggable(Level.INFO)) {
+                LOG.info("Synchronous call completed after " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+                    + " ms: " + call.describeChain());
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void reportStall(SyncCall<?> call, long elapsedNanos) {
+        if (!LOG.isLoggable(Level.WARNING)) {
+            return;
+        }
+
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        StringBuilder message = new StringBuilder("Synchronous call has been waiting for the UI thread for ")
+            .append(TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+            .append(" ms: ")
+            .append(call.describeChain())
+            .append(call.isStarted() ? " (running)" : " (queued)");
+
+        ThreadInfo callerInfo = threadMXBean.getThreadInfo(new long[]{call.caller.getId()},
+            threadMXBean.isObjectMonitorUsageSupported(), threadMXBean.isSynchronizerUsageSupported())[0];
+        if (callerInfo != null) {
+            for (MonitorInfo monitor : callerInfo.getLockedMonitors()) {
+                message.append("\n\tcaller holds monitor ").append(monitor).append(" locked at ").append(monitor.getLockedStackFrame());
+            }
+            for (LockInfo lock : callerInfo.getLockedSynchronizers()) {
+                message.append("\n\tcaller holds lock ").append(lock);
+            }
+        }
+
+        Thread ui = uiThread;
+        if (ui != null) {
+            ThreadInfo uiInfo = threadMXBean.getThreadInfo(ui.getId(), Integer.MAX_VALUE);
+            if (uiInfo != null) {
+                message.append("\nUI thread '").append(uiInfo.getThreadName()).append("' is ").append(uiInfo.getThreadState());
+                if (uiInfo.getLockName() != null) {
+                    message.append(" on ").append(uiInfo.getLockName());
+                }
+                for (StackTraceElement element : uiInfo.getStackTrace()) {
+                    message.append("\n\tat ").append(element);
+                }
+            }
+        }
+        LOG.warning(message.toString());
+    }
+
+    /**
+     * Follows the owners of the locks the UI thread is blocked on. Returns {@code true} if a cycle was found.
+     */
+    private boolean detectWaitCycle(SyncCall<?> call) {
+        Thread ui = uiThread;
+        if (ui == null) {
+            return false;
+        }
+
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        StringBuilder chain = new StringBuilder(call.caller.getName()).append(" -> ").append(ui.getName());
+        long threadId = ui.getId();
+        for (int i = 0; i < MAX_LOCK_CHAIN; i++) {
+            ThreadInfo info = threadMXBean.getThreadInfo(threadId);
+            if (info == null || info.getLockOwnerId() < 0) {
+                return false;
+            }
+            threadId = info.getLockOwnerId();
+            chain.append(" -[").append(info.getLockName()).append("]-> ").append(info.getLockOwnerName());
+            if (waitingCalls.containsKey(threadId)) {
+                LOG.severe("Deadlock detected, the UI thread waits on a thread that waits on the UI thread: " + chain);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    final class SyncCall<R> extends FutureTask<R> {
+        private final Thread caller;
+        private final SyncCall<?> parent;
+        private volatile boolean started;
+
+        private SyncCall(Callable<R> callable, Thread caller, SyncCall<?> parent) {
+            super(callable);
+            this.caller = caller;
+            this.parent = parent;
+        }
+
+        private boolean isStarted() {
+            return started;
+        }
+
+        @Override
+        public void run() {
+            started = true;
+            uiThread = Thread.currentThread();
+            runWithParent(this, super::run);
+        }
+
+        private String describeChain() {
+            StringBuilder chain = new StringBuilder();
+            for (SyncCall<?> call = this; call != null; call = call.parent) {
+                if (chain.length() > 0) {
+                    chain.append(" <- ");
+                }
+                chain.append(call.caller.getName());
+            }
+            return chain.toString();
+        }
+    }
+}
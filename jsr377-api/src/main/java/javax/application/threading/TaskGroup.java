@@ -0,0 +1,202 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.threading;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A group of related background tasks whose results are joined on the UI thread.
+ * <p>
+ * Tasks are forked on background threads. The group fails as soon as any task fails or the group's deadline
+ * expires; when that happens every other task is cancelled, interrupting those that are already running, and
+ * no further tasks are started. For example
+ * <pre>
+ * TaskGroup&lt;Image&gt; group = threadingHandler.newTaskGroup(5, TimeUnit.SECONDS);
+ * for (Path path : paths) {
+ *     group.fork(() -&gt; loadThumbnail(path));
+ * }
+ * group.join(images -&gt; images)
+ *     .thenAccept(gallery::setImages);
+ * </pre>
+ *
+ * @param <T> the type of the results of the tasks
+ *
+ * @author Andres Almiray
+ * @see AbstractThreadingHandler#newTaskGroup(long, TimeUnit)
+ */
+public final class TaskGroup<T> {
+    private final ThreadingHandler threadingHandler;
+    private final Executor executor;
+    private final List<FutureTask<T>> tasks = new ArrayList<>();
+    private final List<CompletableFuture<T>> results = new ArrayList<>();
+    private final ScheduledFuture<?> timeout;
+    private Throwable failure;
+    private boolean joined;
+
+    TaskGroup(ThreadingHandler threadingHandler, Executor executor, ScheduledExecutorService scheduler, long timeout, TimeUnit unit) {
+        this.threadingHandler = threadingHandler;
+        this.executor = executor;
+        this.timeout = timeout > 0 ? scheduler.schedule(
+            () -> fail(new TimeoutException("Task group did not complete within " + timeout + " " + unit)), timeout, unit) : null;
+    }
+
+    /**
+     * Starts a task on a background thread.
+     *
+     * @param callable the task to be executed. Must not be {@code null}.
+     *
+     * @return a {@code CompletionStage} with the result of the task. Never returns {@code null}.
+     *
+     * @throws IllegalStateException if the group has been joined already.
+     */
+    public CompletionStage<T> fork(Callable<? extends T> callable) {
+        requireNonNull(callable, "callable");
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        FutureTask<T> task = new FutureTask<T>(callable::call) {
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    result.cancel(false);
+                    return;
+                }
+                try {
+                    result.complete(get());
+                } catch (ExecutionException e) {
+                    result.completeExceptionally(e.getCause());
+                    fail(e.getCause());
+                } catch (InterruptedException | CancellationException e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        };
+
+        synchronized (this) {
+            if (joined) {
+                throw new IllegalStateException("Can not fork tasks after the group has been joined");
+            }
+            tasks.add(task);
+            results.add(result);
+            if (failure != null) {
+                task.cancel(false);
+                return result;
+            }
+        }
+
+        executor.execute(task);
+        return result;
+    }
+
+    /**
+     * Waits for all tasks without blocking and delivers their aggregated results on the UI thread.
+     * No more tasks may be forked once this method has been called.
+     *
+     * @param aggregator combines the results of all tasks, in the order they were forked. Must not be {@code null}.
+     *
+     * @return a {@code CompletionStage} that is completed on the UI thread, either with the aggregated result or with
+     * the cause of the first failure. Never returns {@code null}.
+     */
+    public <R> CompletionStage<R> join(Function<? super List<T>, ? extends R> aggregator) {
+        requireNonNull(aggregator, "aggregator");
+
+        List<CompletableFuture<T>> snapshot;
+        synchronized (this) {
+            joined = true;
+            snapshot = new ArrayList<>(results);
+        }
+
+        CompletableFuture<R> joinedResult = new CompletableFuture<>();
+        CompletableFuture.allOf(snapshot.toArray(new CompletableFuture<?>[0])).whenComplete((ignored, throwable) -> {
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+
+            Throwable cause = getFailure();
+            R value = null;
+            if (cause == null && throwable != null) {
+                cause = throwable;
+            }
+            if (cause == null) {
+                try {
+                    List<T> values = new ArrayList<>(snapshot.size());
+                    for (CompletableFuture<T> result : snapshot) {
+                        values.add(result.join());
+                    }
+                    value = aggregator.apply(values);
+                } catch (Throwable t) {
+                    cause = t;
+                }
+            }
+
+            Throwable error = cause;
+            R aggregated = value;
+            threadingHandler.executeInsideUIAsync(() -> {
+                if (error != null) {
+                    joinedResult.completeExceptionally(error);
+                } else {
+                    joinedResult.complete(aggregated);
+                }
+            });
+        });
+        return joinedResult;
+    }
+
+    /**
+     * Cancels all tasks of this group, interrupting those that are already running.
+     */
+    public void cancel() {
+        fail(new CancellationException("Task group was cancelled"));
+    }
+
+    private synchronized Throwable getFailure() {
+        return failure;
+    }
+
+    private void fail(Throwable cause) {
+        List<FutureTask<T>> siblings;
+        synchronized (this) {
+            if (failure != null) {
+                return;
+            }
+            failure = cause;
+            siblings = new ArrayList<>(tasks);
+        }
+
+        if (timeout != null) {
+            timeout.cancel(false);
+        }
+        for (FutureTask<T> task : siblings) {
+            task.cancel(true);
+        }
+    }
+}
@@ -38,6 +38,11 @@ public @interface Threading {
      */
     Policy value() default Policy.OUTSIDE_UITHREAD;
 
+    /**
+     * Defines the lane used to schedule the annotated element when it is executed on a background thread.
+     */
+    Lane lane() default Lane.DEFAULT;
+
     /**
      * Indicates the type of threading management for a method or property.</p>
      * The following values apply
@@ -74,4 +79,27 @@ public @interface Threading {
          */
         INSIDE_UITHREAD_ASYNC
     }
+
+    /**
+     * Indicates the priority of background work.</p>
+     * Work in a higher priority lane overtakes pending work of lower priority lanes. Pending work gains priority
+     * as it waits, thus work in lower priority lanes is never starved.
+     *
+     * @author Andres Almiray
+     * @see Threading
+     */
+    enum Lane {
+        /**
+         * Work triggered directly by the user that should complete as soon as possible
+         */
+        INTERACTIVE,
+        /**
+         * Regular background work
+         */
+        DEFAULT,
+        /**
+         * Throughput oriented work, such as indexing or prefetching
+         */
+        BULK
+    }
 }
@@ -20,6 +20,8 @@ package javax.application.threading;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionStage;
 
+import static java.util.Objects.requireNonNull;
+
 /**
  * @author Andres Almiray
  */
@@ -89,4 +91,28 @@ public interface ThreadingHandler {
      * @return a {@code CompletionStage} that can be used to signal the resolution or rejection of the code block. Never returns {@code null}.
      */
     <R> CompletionStage<R> executeInsideUIAsync(Callable<R> callable);
+
+    /**
+     * Executes a code block on a background thread, always, scheduled according to the given lane.
+     *
+     * @param lane     the priority lane of the code block. Must not be {@code null}.
+     * @param runnable block of code that must be executed. Must not be {@code null}.
+     */
+    default void executeOutsideUIAsync(Threading.Lane lane, Runnable runnable) {
+        requireNonNull(lane, "lane");
+        executeOutsideUIAsync(runnable);
+    }
+
+    /**
+     * Executes a code block on a background thread, always, scheduled according to the given lane.
+     *
+     * @param lane     the priority lane of the code block. Must not be {@code null}.
+     * @param callable block of code that must be executed. Must not be {@code null}.
+     *
+     * @return a {@code CompletionStage} that can be used to signal the resolution or rejection of the code block. Never returns {@code null}.
+     */
+    default <R> CompletionStage<R> executeOutsideUIAsync(Threading.Lane lane, Callable<R> callable) {
+        requireNonNull(lane, "lane");
+        return executeOutsideUIAsync(callable);
+    }
 }
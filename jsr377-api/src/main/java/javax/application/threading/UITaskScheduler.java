@@ -0,0 +1,129 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.threading;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Queues tasks for the UI thread and runs them in batches, one batch per frame.
+ * <p>
+ * A single frame task is posted to the UI toolkit at a time. Each frame runs queued tasks until the queue is
+ * empty or the time budget is exhausted, in which case the remaining tasks are deferred to the next frame.
+ * At least one task runs per frame. Tasks submitted with a coalescing key replace any pending task with the
+ * same key while keeping its position in the queue.
+ *
+ * @author Andres Almiray
+ */
+final class UITaskScheduler {
+    private final Consumer<Runnable> poster;
+    private final long budgetNanos;
+    private final ArrayDeque<Object> queue = new ArrayDeque<>();
+    private final Map<Object, Runnable> coalescedTasks = new HashMap<>();
+    private final LongAdder deferredTasks = new LongAdder();
+    private boolean frameScheduled;
+
+    UITaskScheduler(Consumer<Runnable> poster, long budgetNanos) {
+        this.poster = poster;
+        this.budgetNanos = budgetNanos;
+    }
+
+    long getDeferredTaskCount() {
+        return deferredTasks.sum();
+    }
+
+    void execute(Runnable task) {
+        synchronized (this) {
+            queue.addLast(task);
+            if (!scheduleFrame()) {
+                return;
+            }
+        }
+        poster.accept(this::runFrame);
+    }
+
+    void execute(Object key, Runnable task) {
+        synchronized (this) {
+            if (coalescedTasks.put(key, task) != null) {
+                return;
+            }
+            queue.addLast(new CoalescingKey(key));
+            if (!scheduleFrame()) {
+                return;
+            }
+        }
+        poster.accept(this::runFrame);
+    }
+
+    /**
+     * Returns {@code true} if the caller must post a new frame. Must be called while holding the lock.
+     */
+    private boolean scheduleFrame() {
+        if (frameScheduled) {
+            return false;
+        }
+        frameScheduled = true;
+        return true;
+    }
+
+    private void runFrame() {
+        long deadline = System.nanoTime() + budgetNanos;
+        while (true) {
+            Runnable task;
+            synchronized (this) {
+                Object element = queue.pollFirst();
+                if (element == null) {
+                    frameScheduled = false;
+                    return;
+                }
+                task = element instanceof CoalescingKey ? coalescedTasks.remove(((CoalescingKey) element).key) : (Runnable) element;
+            }
+
+            try {
+                task.run();
+            } catch (RuntimeException | Error e) {
+                // a failing task must not prevent the rest of the frame from running
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+
+            if (System.nanoTime() - deadline >= 0) {
+                synchronized (this) {
+                    if (queue.isEmpty()) {
+                        frameScheduled = false;
+                        return;
+                    }
+                    deferredTasks.add(queue.size());
+                }
+                poster.accept(this::runFrame);
+                return;
+            }
+        }
+    }
+
+    private static final class CoalescingKey {
+        private final Object key;
+
+        private CoalescingKey(Object key) {
+            this.key = key;
+        }
+    }
+}
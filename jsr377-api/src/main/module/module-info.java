@@ -17,8 +17,12 @@
  */
 
 module javax.application {
+    requires java.logging;
+    requires transitive java.management;
+
     exports javax.application;
     exports javax.application.action;
+    exports javax.application.action.spi;
     exports javax.application.configuration;
     exports javax.application.converter;
     exports javax.application.converter.spi;
@@ -26,4 +30,6 @@ module javax.application {
     exports javax.application.i18n;
     exports javax.application.resources;
     exports javax.application.threading;
+
+    uses javax.application.action.spi.ActionMetadataProvider;
 }
\ No newline at end of file
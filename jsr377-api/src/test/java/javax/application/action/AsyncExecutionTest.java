@@ -0,0 +1,219 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.action;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.application.configuration.DefaultConfiguration;
+import javax.application.threading.AbstractThreadingHandler;
+import javax.application.threading.Threading;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Andres Almiray
+ */
+public class AsyncExecutionTest {
+    private final QueuedUIThreadingHandler threadingHandler = new QueuedUIThreadingHandler();
+    private final DefaultActionManager actionManager = new DefaultActionManager(threadingHandler);
+    private final StatusRecorder recorder = new StatusRecorder();
+    private final AsyncActions owner = new AsyncActions();
+    private final Map<String, Action> actions;
+
+    public AsyncExecutionTest() {
+        actionManager.addActionInterceptor(recorder);
+        actions = actionManager.createActions(owner);
+    }
+
+    @AfterEach
+    public void shutdown() {
+        threadingHandler.shutdown();
+    }
+
+    @Test
+    public void actionsReturningAStageCompleteWhenTheStageCompletes() throws Exception {
+        CompletableFuture<Object> future = actions.get("load").executeAsync().toCompletableFuture();
+
+        assertFalse(future.isDone());
+        assertEquals(Collections.emptyList(), recorder.statuses);
+
+        owner.loading.complete("loaded");
+
+        assertEquals("loaded", future.get(10, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList(ActionExecutionStatus.OK), recorder.statuses);
+        assertEquals(Collections.singletonList("loaded"), recorder.results);
+    }
+
+    @Test
+    public void stagesCompletedExceptionallyReachTheInterceptorsAndTheCaller() {
+        CompletableFuture<Object> future = actions.get("load").executeAsync().toCompletableFuture();
+        IOException failure = new IOException("unreachable");
+
+        owner.loading.completeExceptionally(failure);
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+        assertSame(failure, e.getCause());
+        assertEquals(Collections.singletonList(failure), recorder.exceptions);
+        assertEquals(Collections.singletonList(ActionExecutionStatus.EXCEPTION), recorder.statuses);
+    }
+
+    @Test
+    public void cancellingTheExecutionCancelsTheReturnedStage() {
+        CompletableFuture<Object> future = actions.get("load").executeAsync().toCompletableFuture();
+
+        assertTrue(future.cancel(true));
+
+        assertTrue(owner.loading.isCancelled());
+        assertEquals(Collections.singletonList(ActionExecutionStatus.CANCELLED), recorder.statuses);
+        assertEquals(Collections.emptyList(), recorder.exceptions);
+    }
+
+    @Test
+    public void returnedStagesThatAreCancelledReportCancellation() {
+        CompletableFuture<Object> future = actions.get("load").executeAsync().toCompletableFuture();
+
+        owner.loading.cancel(false);
+
+        assertTrue(future.isCancelled());
+        assertThrows(CancellationException.class, future::join);
+        assertEquals(Collections.singletonList(ActionExecutionStatus.CANCELLED), recorder.statuses);
+    }
+
+    @Test
+    public void executionsCancelledBeforeTheyStartNeverRun() {
+        CompletableFuture<Object> cancelled = actions.get("refresh").executeAsync().toCompletableFuture();
+        CompletableFuture<Object> executed = actions.get("refresh").executeAsync().toCompletableFuture();
+        assertEquals(0, owner.refreshes.get());
+
+        assertTrue(cancelled.cancel(true));
+        threadingHandler.runUITasks();
+
+        assertEquals(1, owner.refreshes.get());
+        assertEquals(1, executed.join());
+        assertTrue(cancelled.isCancelled());
+        assertEquals(Collections.singletonList(ActionExecutionStatus.OK), recorder.statuses);
+    }
+
+    @Test
+    public void abortedExecutionsCompleteWithoutRunning() throws Exception {
+        recorder.abort = true;
+
+        CompletableFuture<Object> future = actions.get("load").executeAsync().toCompletableFuture();
+
+        assertNull(future.get(10, TimeUnit.SECONDS));
+        assertFalse(owner.invoked);
+        assertEquals(Collections.singletonList(ActionExecutionStatus.ABORTED), recorder.statuses);
+    }
+
+    public static class AsyncActions {
+        private final CompletableFuture<Object> loading = new CompletableFuture<>();
+        private final AtomicInteger refreshes = new AtomicInteger();
+        private volatile boolean invoked;
+
+        @ActionHandler
+        public CompletableFuture<Object> load() {
+            invoked = true;
+            return loading;
+        }
+
+        @Threading(Threading.Policy.INSIDE_UITHREAD_ASYNC)
+        @ActionHandler
+        public int refresh() {
+            return refreshes.incrementAndGet();
+        }
+    }
+
+    private static final class StatusRecorder implements ActionInterceptor {
+        private final List<ActionExecutionStatus> statuses = new ArrayList<>();
+        private final List<Object> results = new ArrayList<>();
+        private final List<Exception> exceptions = new ArrayList<>();
+        private boolean abort;
+
+        @Override
+        public void update(Action action) {
+        }
+
+        @Override
+        public void configure(Action action, Method method) {
+        }
+
+        @Override
+        public Object[] before(Action action, Object[] args) {
+            if (abort) {
+                throw new AbortActionExecution();
+            }
+            return args;
+        }
+
+        @Override
+        public Object after(ActionExecutionStatus status, Action action, Object[] args, Object result) {
+            statuses.add(status);
+            results.add(result);
+            return result;
+        }
+
+        @Override
+        public boolean exception(Exception exception, Action action, Object[] args) {
+            exceptions.add(exception);
+            return false;
+        }
+    }
+
+    private static final class QueuedUIThreadingHandler extends AbstractThreadingHandler {
+        private final Queue<Runnable> uiTasks = new ArrayDeque<>();
+
+        private QueuedUIThreadingHandler() {
+            super(new DefaultConfiguration(Collections.emptyMap()));
+        }
+
+        private void runUITasks() {
+            for (Runnable task = uiTasks.poll(); task != null; task = uiTasks.poll()) {
+                task.run();
+            }
+        }
+
+        @Override
+        protected void postToUIThread(Runnable runnable) {
+            uiTasks.add(runnable);
+        }
+
+        @Override
+        public boolean isUIThread() {
+            return false;
+        }
+    }
+}
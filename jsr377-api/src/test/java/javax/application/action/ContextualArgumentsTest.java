@@ -0,0 +1,135 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.action;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * @author Andres Almiray
+ */
+public class ContextualArgumentsTest {
+    private final DefaultActionManager actionManager = new DefaultActionManager();
+    private final AtomicReference<Selection> selection = new AtomicReference<>(new Selection("first"));
+
+    @Test
+    public void reusedArgumentsSeeTheCurrentContextValue() {
+        actionManager.getActionContext().bind(Selection.class, selection::get, "selection");
+        Action action = actionManager.createActions(new ClipboardActions()).get("paste");
+        Object[] args = {"text", null};
+
+        action.execute(args);
+        selection.set(new Selection("second"));
+        actionManager.stateChanged("selection");
+        action.execute(args);
+
+        assertArrayEquals(new Object[]{"text", null}, args);
+        assertEquals("text@second", ((ClipboardActions) action.getOwner()).pasted.get());
+    }
+
+    @Test
+    public void nonContextualArgumentsAreNotModified() {
+        actionManager.getActionContext().bind(Selection.class, selection::get, "selection");
+        Action action = actionManager.createActions(new ClipboardActions()).get("paste");
+        Object[] args = {"text"};
+
+        action.execute(args);
+
+        assertArrayEquals(new Object[]{"text"}, args);
+        assertEquals("text@first", ((ClipboardActions) action.getOwner()).pasted.get());
+    }
+
+    @Test
+    public void argumentsAreCopiedOnlyWhenAContextValueIsMissing() {
+        ArgumentsRecorder recorder = new ArgumentsRecorder();
+        actionManager.addActionInterceptor(recorder);
+        actionManager.getActionContext().bind(Selection.class, selection::get, "selection");
+        Action action = actionManager.createActions(new ClipboardActions()).get("paste");
+        Object[] supplied = {"text", new Selection("supplied")};
+        Object[] missing = {"text", null};
+
+        action.execute(supplied);
+        assertSame(supplied, recorder.arguments);
+        assertEquals("text@supplied", ((ClipboardActions) action.getOwner()).pasted.get());
+
+        action.execute(missing);
+        assertNotSame(missing, recorder.arguments);
+        assertEquals("text@first", ((ClipboardActions) action.getOwner()).pasted.get());
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.PARAMETER)
+    public @interface Contextual {
+    }
+
+    public static final class Selection {
+        private final String name;
+
+        private Selection(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class ArgumentsRecorder implements ActionInterceptor {
+        private Object[] arguments;
+
+        @Override
+        public void update(Action action) {
+        }
+
+        @Override
+        public void configure(Action action, Method method) {
+        }
+
+        @Override
+        public Object[] before(Action action, Object[] args) {
+            arguments = args;
+            return args;
+        }
+
+        @Override
+        public Object after(ActionExecutionStatus status, Action action, Object[] args, Object result) {
+            return result;
+        }
+
+        @Override
+        public boolean exception(Exception exception, Action action, Object[] args) {
+            return false;
+        }
+    }
+
+    public static class ClipboardActions {
+        private final AtomicReference<String> pasted = new AtomicReference<>();
+
+        @ActionHandler
+        public void paste(String text, @Contextual Selection selection) {
+            pasted.set(text + "@" + selection.name);
+        }
+    }
+}
@@ -0,0 +1,499 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.action;
+
+import org.junit.jupiter.api.Test;
+
+import javax.application.action.spi.ActionDescriptor;
+import javax.application.action.spi.ActionMetadataProvider;
+import javax.application.configuration.DefaultConfiguration;
+import javax.application.threading.AbstractThreadingHandler;
+import javax.application.threading.Threading;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Andres Almiray
+ */
+public class DefaultActionManagerTest {
+    @Test
+    public void stateChangesAreFoldedIntoOneBatchOnTheUIThread() {
+        QueuedUIThreadingHandler threadingHandler = new QueuedUIThreadingHandler();
+        try {
+            DefaultActionManager actionManager = new DefaultActionManager(threadingHandler);
+            UpdateCounter counter = new UpdateCounter();
+            actionManager.addActionInterceptor(counter);
+            actionManager.createActions(new StatefulActions());
+            counter.updates.clear();
+
+            actionManager.stateChanged("selection");
+            actionManager.stateChanged("document");
+            actionManager.stateChanged("selection", "document");
+            assertEquals(0, counter.count("copy") + counter.count("save") + counter.count("connect"));
+
+            threadingHandler.runUITasks();
+            assertEquals(1, counter.count("copy"));
+            assertEquals(1, counter.count("save"));
+            assertEquals(0, counter.count("connect"));
+
+            actionManager.stateChanged("network");
+            threadingHandler.runUITasks();
+            assertEquals(1, counter.count("copy"));
+            assertEquals(1, counter.count("connect"));
+        } finally {
+            threadingHandler.shutdown();
+        }
+    }
+
+    @Test
+    public void stateChangesUpdateOnTheCallingThreadWithoutAThreadingHandler() {
+        DefaultActionManager actionManager = new DefaultActionManager();
+        UpdateCounter counter = new UpdateCounter();
+        actionManager.addActionInterceptor(counter);
+        actionManager.createActions(new StatefulActions());
+        counter.updates.clear();
+
+        actionManager.stateChanged("document");
+
+        assertEquals(0, counter.count("copy"));
+        assertEquals(1, counter.count("save"));
+    }
+
+    @Test
+    public void onlyActionsDependingOnTheChangedStateAreUpdated() {
+        DefaultActionManager actionManager = new DefaultActionManager();
+        UpdateCounter counter = new UpdateCounter();
+        actionManager.addActionInterceptor(counter);
+        StatefulActions first = new StatefulActions();
+        actionManager.createActions(first);
+        actionManager.createActions(new StatefulActions());
+        actionManager.createActions(new ExecutableActions());
+        counter.updates.clear();
+
+        actionManager.stateChanged("network");
+        assertEquals(2, counter.count("connect"));
+        assertEquals(0, counter.count("copy") + counter.count("save") + counter.count("add"));
+
+        actionManager.removeActions(first);
+        actionManager.stateChanged("network", "unknown");
+        assertEquals(3, counter.count("connect"));
+        assertEquals(0, counter.count("copy") + counter.count("save") + counter.count("add"));
+    }
+
+    @Test
+    public void unreferencedActionsAreNotKeptByTheStateIndex() throws InterruptedException {
+        DefaultActionManager actionManager = new DefaultActionManager();
+        UpdateCounter counter = new UpdateCounter();
+        actionManager.addActionInterceptor(counter);
+        WeakReference<Object> owner = new WeakReference<>(createAndForget(actionManager));
+
+        for (int i = 0; i < 100 && owner.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(owner.get());
+
+        counter.updates.clear();
+        actionManager.stateChanged("selection", "document", "network");
+        assertEquals(0, counter.count("copy") + counter.count("save") + counter.count("connect"));
+    }
+
+    @Test
+    public void interceptorsThatDoNotApplyAreLeftOutOfExecutionButStillUpdated() {
+        DefaultActionManager actionManager = new DefaultActionManager();
+        SelectiveInterceptor interceptor = new SelectiveInterceptor("copy");
+        actionManager.addActionInterceptor(interceptor);
+        Map<String, Action> actions = actionManager.createActions(new StatefulActions());
+
+        actions.get("copy").execute();
+        actions.get("save").execute();
+        actions.get("connect").execute();
+        assertEquals(Collections.singletonList("copy"), interceptor.executions);
+
+        interceptor.updates.clear();
+        actionManager.stateChanged("selection");
+        Collections.sort(interceptor.updates);
+        assertEquals(Arrays.asList("copy", "save"), interceptor.updates);
+    }
+
+    @Test
+    public void providersAreLocatedThroughTheClassLoaderOfTheOwner() throws Exception {
+        Path services = registerProviders(PluginActionsProvider.class);
+        try (PluginClassLoader pluginClassLoader = new PluginClassLoader(services.toUri().toURL())) {
+            Object owner = pluginClassLoader.loadClass(PluginActions.class.getName()).getDeclaredConstructor().newInstance();
+
+            // the provider describes no actions, scanning the owner would have found one
+            assertTrue(new DefaultActionManager().createActions(owner).isEmpty());
+            assertEquals(1, new DefaultActionManager().createActions(new PluginActions()).size());
+        } finally {
+            deleteProviders(services);
+        }
+    }
+
+    @Test
+    public void describedMethodsAreLookedUpOnlyWhenNeeded() throws Exception {
+        Path services = registerProviders(PluginActionsProvider.class, PluginActionsRenamedProvider.class);
+        try (PluginClassLoader pluginClassLoader = new PluginClassLoader(services.toUri().toURL())) {
+            Object owner = pluginClassLoader.loadClass(PluginActionsRenamed.class.getName()).getDeclaredConstructor().newInstance();
+
+            // the described method no longer exists, actions can still be created and executed from the descriptor
+            Action action = new DefaultActionManager().createActions(owner).get("open");
+            assertEquals("target", action.getActionMetadata().getParameters()[0].getName());
+            assertEquals("opened file", action.executeAsync("file").toCompletableFuture().get(10, TimeUnit.SECONDS));
+
+            // interceptors configure actions with their method
+            DefaultActionManager actionManager = new DefaultActionManager();
+            actionManager.addActionInterceptor(new UpdateCounter());
+            IllegalStateException e = assertThrows(IllegalStateException.class, () -> actionManager.createActions(owner));
+            assertTrue(e.getMessage().contains("is out of date"), e.getMessage());
+        } finally {
+            deleteProviders(services);
+        }
+    }
+
+    @Test
+    public void executionReturnsTheResultOfTheMethod() throws Exception {
+        Map<String, Action> actions = new DefaultActionManager().createActions(new ExecutableActions());
+
+        assertEquals(3, actions.get("add").executeAsync(1, 2).toCompletableFuture().get(10, TimeUnit.SECONDS));
+        assertEquals(1, actions.get("add").executeAsync(1, null).toCompletableFuture().get(10, TimeUnit.SECONDS));
+        // primitive parameters accept any wrapper that widens to them
+        assertEquals(7L, actions.get("widen").executeAsync((short) 7).toCompletableFuture().get(10, TimeUnit.SECONDS));
+        assertNull(actions.get("fail").executeAsync(false).toCompletableFuture().get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void invalidArgumentsAreReportedWithTheActionName() {
+        Action add = new DefaultActionManager().createActions(new ExecutableActions()).get("add");
+        String name = add.getActionMetadata().getFullyQualifiedName();
+
+        IllegalArgumentException arity = assertThrows(IllegalArgumentException.class, () -> add.execute(1));
+        assertEquals("Action " + name + " requires 2 arguments but received 1", arity.getMessage());
+
+        IllegalArgumentException nulls = assertThrows(IllegalArgumentException.class, () -> add.execute(null, 2));
+        assertTrue(nulls.getMessage().endsWith("of action " + name + " must not be null"), nulls.getMessage());
+
+        IllegalArgumentException mismatch = assertThrows(IllegalArgumentException.class, () -> add.execute(1, "2"));
+        assertTrue(mismatch.getMessage().endsWith("of action " + name + " must be of type java.lang.Integer but was java.lang.String"),
+            mismatch.getMessage());
+
+        mismatch = assertThrows(IllegalArgumentException.class, () -> add.execute(1L, 2));
+        assertTrue(mismatch.getMessage().endsWith("must be of type int but was java.lang.Long"), mismatch.getMessage());
+    }
+
+    @Test
+    public void exceptionsThrownByTheMethodReachTheCaller() {
+        Map<String, Action> actions = new DefaultActionManager().createActions(new ExecutableActions());
+
+        IllegalStateException unchecked = assertThrows(IllegalStateException.class, () -> actions.get("fail").execute(true));
+        assertEquals("unchecked", unchecked.getMessage());
+
+        IllegalStateException checked = assertThrows(IllegalStateException.class, () -> actions.get("load").execute());
+        assertTrue(checked.getCause() instanceof IOException, String.valueOf(checked.getCause()));
+        assertTrue(checked.getMessage().contains(actions.get("load").getActionMetadata().getFullyQualifiedName()), checked.getMessage());
+
+        // a ClassCastException thrown by the method itself is not mistaken for an argument mismatch
+        assertThrows(ClassCastException.class, () -> actions.get("cast").execute(1));
+    }
+
+    public static class PluginActions {
+        @ActionHandler
+        public void install() {
+        }
+    }
+
+    public static class ExecutableActions {
+        @ActionHandler
+        public int add(int a, @Nullable Integer b) {
+            return a + (b != null ? b : 0);
+        }
+
+        @ActionHandler
+        public long widen(long value) {
+            return value;
+        }
+
+        @ActionHandler
+        public void fail(boolean fail) {
+            if (fail) {
+                throw new IllegalStateException("unchecked");
+            }
+        }
+
+        @ActionHandler
+        public void load() throws IOException {
+            throw new IOException("checked");
+        }
+
+        @ActionHandler
+        public String cast(Object value) {
+            return (String) value;
+        }
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.PARAMETER)
+    public @interface Nullable {
+    }
+
+    public static class PluginActionsRenamed {
+        public String openFile(String target) {
+            return "opened " + target;
+        }
+    }
+
+    /**
+     * Describes a method that was renamed after the provider was generated.
+     */
+    public static class PluginActionsRenamedProvider implements ActionMetadataProvider {
+        @Override
+        public Class<?> getOwnerType() {
+            return PluginActionsRenamed.class;
+        }
+
+        @Override
+        public List<ActionDescriptor> getActionDescriptors() {
+            return Collections.singletonList(new ActionDescriptor("open", String.class,
+                new ActionDescriptor.Parameter[]{new ActionDescriptor.Parameter(String.class, "target", false, false)},
+                "open", "Open", true, ExecutionPolicy.NONE, 0L, 0, new String[0], null, Threading.Lane.DEFAULT,
+                (owner, args) -> ((PluginActionsRenamed) owner).openFile((String) args[0])));
+        }
+    }
+
+    public static class PluginActionsProvider implements ActionMetadataProvider {
+        @Override
+        public Class<?> getOwnerType() {
+            return PluginActions.class;
+        }
+
+        @Override
+        public List<ActionDescriptor> getActionDescriptors() {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Creates a directory that registers the given providers as services.
+     */
+    private static Path registerProviders(Class<?>... providerTypes) throws IOException {
+        Path services = Files.createTempDirectory("plugin");
+        Path registration = services.resolve("META-INF/services/" + ActionMetadataProvider.class.getName());
+        Files.createDirectories(registration.getParent());
+        StringBuilder entries = new StringBuilder();
+        for (Class<?> providerType : providerTypes) {
+            entries.append(providerType.getName()).append('\n');
+        }
+        Files.write(registration, entries.toString().getBytes(StandardCharsets.UTF_8));
+        return services;
+    }
+
+    private static void deleteProviders(Path services) throws IOException {
+        try (Stream<Path> paths = Files.walk(services)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Defines the plugin classes itself, the way a plugin class loader created after the action API would.
+     */
+    private static final class PluginClassLoader extends URLClassLoader {
+        private PluginClassLoader(URL services) {
+            super(new URL[]{services}, DefaultActionManagerTest.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.startsWith(PluginActions.class.getName())) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> type = findLoadedClass(name);
+                if (type == null) {
+                    byte[] bytes = readClass(name);
+                    type = defineClass(name, bytes, 0, bytes.length);
+                }
+                return type;
+            }
+        }
+
+        private byte[] readClass(String name) throws ClassNotFoundException {
+            try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                if (in == null) {
+                    throw new ClassNotFoundException(name);
+                }
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                    out.write(buffer, 0, read);
+                }
+                return out.toByteArray();
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+        }
+    }
+
+    private static Object createAndForget(DefaultActionManager actionManager) {
+        StatefulActions owner = new StatefulActions();
+        actionManager.createActions(owner);
+        return owner;
+    }
+
+    public static class StatefulActions {
+        @ActionHandler(dependsOn = "selection")
+        public void copy() {
+        }
+
+        @ActionHandler(dependsOn = {"selection", "document"})
+        public void save() {
+        }
+
+        @ActionHandler(dependsOn = "network")
+        public void connect() {
+        }
+    }
+
+    private static final class UpdateCounter implements ActionInterceptor {
+        private final Map<String, AtomicInteger> updates = new ConcurrentHashMap<>();
+
+        private int count(String actionId) {
+            AtomicInteger count = updates.get(actionId);
+            return count != null ? count.get() : 0;
+        }
+
+        @Override
+        public void update(Action action) {
+            updates.computeIfAbsent(action.getId(), k -> new AtomicInteger()).incrementAndGet();
+        }
+
+        @Override
+        public void configure(Action action, Method method) {
+        }
+
+        @Override
+        public Object[] before(Action action, Object[] args) {
+            return args;
+        }
+
+        @Override
+        public Object after(ActionExecutionStatus status, Action action, Object[] args, Object result) {
+            return result;
+        }
+
+        @Override
+        public boolean exception(Exception exception, Action action, Object[] args) {
+            return false;
+        }
+    }
+
+    private static final class SelectiveInterceptor implements ActionInterceptor {
+        private final String actionId;
+        private final List<String> executions = new ArrayList<>();
+        private final List<String> updates = new ArrayList<>();
+
+        private SelectiveInterceptor(String actionId) {
+            this.actionId = actionId;
+        }
+
+        @Override
+        public boolean appliesTo(Action action, Method method) {
+            return actionId.equals(action.getId());
+        }
+
+        @Override
+        public void update(Action action) {
+            updates.add(action.getId());
+        }
+
+        @Override
+        public void configure(Action action, Method method) {
+        }
+
+        @Override
+        public Object[] before(Action action, Object[] args) {
+            executions.add(action.getId());
+            return args;
+        }
+
+        @Override
+        public Object after(ActionExecutionStatus status, Action action, Object[] args, Object result) {
+            return result;
+        }
+
+        @Override
+        public boolean exception(Exception exception, Action action, Object[] args) {
+            return false;
+        }
+    }
+
+    private static final class QueuedUIThreadingHandler extends AbstractThreadingHandler {
+        private final Queue<Runnable> uiTasks = new ArrayDeque<>();
+
+        private QueuedUIThreadingHandler() {
+            super(new DefaultConfiguration(Collections.emptyMap()));
+        }
+
+        private void runUITasks() {
+            for (Runnable task = uiTasks.poll(); task != null; task = uiTasks.poll()) {
+                task.run();
+            }
+        }
+
+        @Override
+        protected void postToUIThread(Runnable runnable) {
+            uiTasks.add(runnable);
+        }
+
+        @Override
+        public boolean isUIThread() {
+            return false;
+        }
+    }
+}
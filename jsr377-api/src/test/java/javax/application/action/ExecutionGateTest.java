@@ -0,0 +1,210 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.action;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.application.configuration.DefaultConfiguration;
+import javax.application.threading.AbstractThreadingHandler;
+import javax.application.threading.Threading;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Andres Almiray
+ */
+public class ExecutionGateTest {
+    private final BackgroundThreadingHandler threadingHandler = new BackgroundThreadingHandler();
+    private final DefaultActionManager actionManager = new DefaultActionManager(threadingHandler);
+    private final GatedActions owner = new GatedActions();
+    private final Map<String, Action> actions = actionManager.createActions(owner);
+
+    @AfterEach
+    public void shutdown() {
+        owner.release.countDown();
+        threadingHandler.shutdown();
+    }
+
+    @Test
+    public void throttleDropsTriggersBeyondTheRate() {
+        Action action = actions.get("throttled");
+        for (int i = 0; i < 5; i++) {
+            action.execute();
+        }
+
+        assertEquals(1, owner.throttled.get());
+        assertEquals(4L, ((DefaultAction) action).getSuppressedExecutionCount());
+        assertTrue(action.executeAsync().toCompletableFuture().isCancelled());
+    }
+
+    @Test
+    public void throttleAllowsBurstsUpToTheRate() throws Exception {
+        Action action = actions.get("burst");
+        for (int i = 0; i < 5; i++) {
+            action.execute();
+        }
+
+        assertEquals(3, owner.burst.get());
+        assertEquals(2L, ((DefaultAction) action).getSuppressedExecutionCount());
+
+        // a permit is refilled every third of a second
+        Thread.sleep(400L);
+        action.execute();
+        assertEquals(4, owner.burst.get());
+    }
+
+    @Test
+    public void synchronousSingleFlightTriggersDoNotWaitForTheRunningExecution() throws Exception {
+        Action action = actions.get("singleFlight");
+        CompletableFuture<Object> first = action.executeAsync().toCompletableFuture();
+        assertTrue(owner.started.await(10, TimeUnit.SECONDS));
+
+        action.execute();
+        assertFalse(first.isDone());
+        owner.release.countDown();
+
+        assertEquals(1, first.get(10, TimeUnit.SECONDS));
+        assertEquals(1L, actionManager.getSuppressedExecutionCount());
+    }
+
+    @Test
+    public void singleFlightCallersJoinTheRunningExecution() throws Exception {
+        Action action = actions.get("singleFlight");
+        CompletableFuture<Object> first = action.executeAsync().toCompletableFuture();
+        assertTrue(owner.started.await(10, TimeUnit.SECONDS));
+        CompletableFuture<Object> second = action.executeAsync().toCompletableFuture();
+        owner.release.countDown();
+
+        assertNotSame(first, second);
+        assertEquals(1, first.get(10, TimeUnit.SECONDS));
+        assertEquals(1, second.get(10, TimeUnit.SECONDS));
+        assertEquals(1L, actionManager.getSuppressedExecutionCount());
+    }
+
+    @Test
+    public void cancellingAJoinedSingleFlightDoesNotCancelTheExecution() throws Exception {
+        Action action = actions.get("singleFlight");
+        CompletableFuture<Object> first = action.executeAsync().toCompletableFuture();
+        assertTrue(owner.started.await(10, TimeUnit.SECONDS));
+        CompletableFuture<Object> second = action.executeAsync().toCompletableFuture();
+
+        assertTrue(second.cancel(true));
+        owner.release.countDown();
+
+        assertEquals(1, first.get(10, TimeUnit.SECONDS));
+        assertFalse(first.isCancelled());
+    }
+
+    @Test
+    public void debounceExecutesOnceWithTheLastArgumentsOnTheThreadingHandler() throws Exception {
+        Action action = actions.get("debounced");
+        CompletableFuture<Object> first = action.executeAsync("a").toCompletableFuture();
+        CompletableFuture<Object> second = action.executeAsync("b").toCompletableFuture();
+        CompletableFuture<Object> third = action.executeAsync("c").toCompletableFuture();
+
+        assertEquals("c", third.get(10, TimeUnit.SECONDS));
+        assertEquals("c", first.get(10, TimeUnit.SECONDS));
+        assertEquals("c", second.get(10, TimeUnit.SECONDS));
+        assertEquals(1, owner.debounced.get());
+        assertEquals(2L, actionManager.getSuppressedExecutionCount());
+        assertTrue(owner.debouncedThread.startsWith("threading-handler-"), owner.debouncedThread);
+    }
+
+    @Test
+    public void debounceWithoutAThreadingHandlerDoesNotRunOnTheSchedulerThread() throws Exception {
+        GatedActions owner = new GatedActions();
+        Action action = new DefaultActionManager().createActions(owner).get("debounced");
+
+        assertEquals("a", action.executeAsync("a").toCompletableFuture().get(10, TimeUnit.SECONDS));
+        assertNotEquals("action-execution-policy", owner.debouncedThread);
+    }
+
+    @Test
+    public void cancellingADebouncedTriggerDoesNotCancelTheExecution() throws Exception {
+        Action action = actions.get("debounced");
+        CompletableFuture<Object> first = action.executeAsync("a").toCompletableFuture();
+        CompletableFuture<Object> second = action.executeAsync("b").toCompletableFuture();
+
+        assertTrue(first.cancel(true));
+
+        assertEquals("b", second.get(10, TimeUnit.SECONDS));
+        assertEquals(1, owner.debounced.get());
+    }
+
+    public static class GatedActions {
+        private final AtomicInteger throttled = new AtomicInteger();
+        private final AtomicInteger burst = new AtomicInteger();
+        private final AtomicInteger singleFlight = new AtomicInteger();
+        private final AtomicInteger debounced = new AtomicInteger();
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile String debouncedThread;
+
+        @ActionHandler(executionPolicy = ExecutionPolicy.THROTTLE, rate = 1)
+        public void throttled() {
+            throttled.incrementAndGet();
+        }
+
+        @ActionHandler(executionPolicy = ExecutionPolicy.THROTTLE, rate = 3)
+        public void burst() {
+            burst.incrementAndGet();
+        }
+
+        @Threading(Threading.Policy.OUTSIDE_UITHREAD_ASYNC)
+        @ActionHandler(executionPolicy = ExecutionPolicy.SINGLE_FLIGHT)
+        public int singleFlight() throws InterruptedException {
+            started.countDown();
+            release.await();
+            return singleFlight.incrementAndGet();
+        }
+
+        @ActionHandler(executionPolicy = ExecutionPolicy.DEBOUNCE, interval = 100L)
+        public String debounced(String value) {
+            debounced.incrementAndGet();
+            debouncedThread = Thread.currentThread().getName();
+            return value;
+        }
+    }
+
+    private static final class BackgroundThreadingHandler extends AbstractThreadingHandler {
+        private BackgroundThreadingHandler() {
+            super(new DefaultConfiguration(Collections.emptyMap()));
+        }
+
+        @Override
+        protected void postToUIThread(Runnable runnable) {
+            runnable.run();
+        }
+
+        @Override
+        public boolean isUIThread() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.action;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Andres Almiray
+ */
+public class TracingActionInterceptorTest {
+    private final TracingActionInterceptor tracer = new TracingActionInterceptor();
+    private final DefaultActionManager actionManager = new DefaultActionManager();
+
+    @Test
+    public void executionsCompletedOnAnotherThreadAreTimed() throws Exception {
+        actionManager.addActionInterceptor(tracer);
+        Action action = actionManager.createActions(new TracedActions()).get("load");
+
+        assertEquals("loaded", action.executeAsync().toCompletableFuture().get(10, TimeUnit.SECONDS));
+
+        ActionStatistics statistics = tracer.findActionStatistics(action.getActionMetadata());
+        assertEquals(1L, statistics.getOkCount());
+        assertEquals(1L, statistics.getTimedCount());
+        assertTrue(statistics.getMaxLatency() >= TimeUnit.MILLISECONDS.toNanos(50L), String.valueOf(statistics));
+    }
+
+    @Test
+    public void tracersTimeExecutionsWhenWrapped() {
+        actionManager.addActionInterceptor(tracer.wrap(tracer));
+        Action action = actionManager.createActions(new TracedActions()).get("save");
+
+        action.execute();
+
+        ActionStatistics statistics = tracer.findActionStatistics(action.getActionMetadata());
+        assertEquals(1L, statistics.getOkCount());
+        assertEquals(1L, statistics.getTimedCount());
+    }
+
+    @Test
+    public void everyInterceptorReceivesTheStartOfTheExecution() {
+        StartRecorder recorder = new StartRecorder();
+        actionManager.addActionInterceptor(recorder);
+        long before = System.nanoTime();
+
+        actionManager.createActions(new TracedActions()).get("save").execute();
+
+        assertTrue(recorder.startNanos - before >= 0L);
+        assertTrue(recorder.beforeNanos - recorder.startNanos >= 0L);
+    }
+
+    @Test
+    public void nestedExecutionsAreTimedIndependently() {
+        actionManager.addActionInterceptor(tracer);
+        TracedActions owner = new TracedActions();
+        owner.actions = actionManager.createActions(owner);
+
+        owner.actions.get("nest").execute(40);
+
+        ActionStatistics statistics = tracer.findActionStatistics(owner.actions.get("nest").getActionMetadata());
+        assertEquals(41L, statistics.getOkCount());
+        assertEquals(41L, statistics.getTimedCount());
+    }
+
+    @Test
+    public void overloadedActionsAreTracedSeparately() {
+        actionManager.addActionInterceptor(tracer);
+        Map<String, Action> actions = actionManager.createActions(new TracedActions());
+
+        actions.get("save").execute();
+        actions.get("saveAs").execute("file");
+        actions.get("saveAs").execute("file");
+
+        String owner = TracedActions.class.getName();
+        assertEquals(1L, tracer.findActionStatistics(owner + ".save()").getOkCount());
+        assertEquals(2L, tracer.findActionStatistics(owner + ".save(java.lang.String)").getOkCount());
+    }
+
+    @Test
+    public void tracedActionsDoNotKeepTheirClassesReachable() throws Exception {
+        actionManager.addActionInterceptor(tracer);
+        WeakReference<ClassLoader> classLoader = new WeakReference<>(executeIsolatedAction());
+
+        for (int i = 0; i < 100 && classLoader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertNull(classLoader.get());
+        assertEquals(1L, tracer.findActionStatistics(IsolatedActions.class.getName() + ".run()").getOkCount());
+    }
+
+    @Test
+    public void tracersRegisterUnderNamesOfTheirOwn() throws Exception {
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        TracingActionInterceptor other = new TracingActionInterceptor("main, editor");
+
+        ObjectName first = tracer.register(server);
+        ObjectName second = other.register(server);
+        try {
+            assertNotEquals(first, second);
+            assertEquals("ActionTracing", second.getKeyProperty("type"));
+            assertEquals("main, editor", ObjectName.unquote(second.getKeyProperty("name")));
+        } finally {
+            tracer.unregister(server);
+            other.unregister(server);
+        }
+        assertFalse(server.isRegistered(first));
+    }
+
+    private ClassLoader executeIsolatedAction() throws Exception {
+        IsolatingClassLoader classLoader = new IsolatingClassLoader();
+        Object owner = classLoader.loadClass(IsolatedActions.class.getName()).getDeclaredConstructor().newInstance();
+        actionManager.createActions(owner).get("run").execute();
+        return classLoader;
+    }
+
+    public static class IsolatedActions {
+        // the return type makes the metadata of the action reference the class
+        @ActionHandler
+        public IsolatedActions run() {
+            return this;
+        }
+    }
+
+    /**
+     * Defines {@code IsolatedActions} on its own, so that the class can be unloaded.
+     */
+    private static final class IsolatingClassLoader extends ClassLoader {
+        private IsolatingClassLoader() {
+            super(TracingActionInterceptorTest.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.equals(IsolatedActions.class.getName())) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> type = findLoadedClass(name);
+                if (type == null) {
+                    byte[] bytes = readClass(name);
+                    type = defineClass(name, bytes, 0, bytes.length);
+                }
+                return type;
+            }
+        }
+
+        private byte[] readClass(String name) throws ClassNotFoundException {
+            try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                if (in == null) {
+                    throw new ClassNotFoundException(name);
+                }
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                    out.write(buffer, 0, read);
+                }
+                return out.toByteArray();
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+        }
+    }
+
+    private static final class StartRecorder implements ActionInterceptor {
+        private long beforeNanos;
+        private long startNanos;
+
+        @Override
+        public void update(Action action) {
+        }
+
+        @Override
+        public void configure(Action action, Method method) {
+        }
+
+        @Override
+        public Object[] before(Action action, Object[] args) {
+            beforeNanos = System.nanoTime();
+            return args;
+        }
+
+        @Override
+        public Object after(ActionExecutionStatus status, Action action, Object[] args, Object result) {
+            throw new AssertionError("The start of the execution was not supplied");
+        }
+
+        @Override
+        public Object after(ActionExecutionStatus status, Action action, Object[] args, Object result, long startNanos) {
+            this.startNanos = startNanos;
+            return result;
+        }
+
+        @Override
+        public boolean exception(Exception exception, Action action, Object[] args) {
+            return false;
+        }
+    }
+
+    public static class TracedActions {
+        private Map<String, Action> actions;
+
+        @ActionHandler
+        public CompletionStage<String> load() {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    Thread.sleep(50L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "loaded";
+            });
+        }
+
+        @ActionHandler
+        public void save() {
+        }
+
+        @ActionHandler("saveAs")
+        public void save(String target) {
+        }
+
+        @ActionHandler
+        public void nest(int depth) {
+            if (depth > 0) {
+                actions.get("nest").execute(depth - 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.configuration;
+
+import org.junit.jupiter.api.Test;
+
+import javax.application.converter.ConversionException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Andres Almiray
+ */
+public class DefaultConfigurationTest {
+    private final Configuration configuration = new DefaultConfiguration(values());
+
+    private static Map<String, Object> values() {
+        Map<String, Object> values = new HashMap<>();
+        values.put("size", "abc");
+        values.put("ratio", 1.0d);
+        values.put("half", 1.5d);
+        values.put("scaled", "1e3");
+        values.put("huge", 3e10d);
+        values.put("count", "7");
+        return values;
+    }
+
+    @Test
+    public void defaultValuesApplyToAbsentKeysOnly() {
+        assertEquals(5, configuration.getAsInt("missing", 5));
+        assertEquals(5, configuration.getConverted("missing", Integer.class, 5).intValue());
+        assertThrows(ConversionException.class, () -> configuration.getAsInt("size", 5));
+        assertThrows(ConversionException.class, () -> configuration.getConverted("size", Integer.class, 5));
+        assertEquals("abc", configuration.getAsString("size", "default"));
+    }
+
+    @Test
+    public void wholeFloatingPointValuesAreIntegral() {
+        assertEquals(1, configuration.getAsInt("ratio"));
+        assertEquals(1L, configuration.getAsLong("ratio"));
+        assertEquals(1, configuration.getConverted("ratio", Integer.class).intValue());
+        assertEquals(1000, configuration.getAsInt("scaled"));
+        assertEquals(30_000_000_000L, configuration.getAsLong("huge"));
+        assertEquals(1.5d, configuration.getAsDouble("half"), 0d);
+    }
+
+    @Test
+    public void fractionalOrOutOfRangeValuesAreNotIntegral() {
+        assertThrows(ConversionException.class, () -> configuration.getAsInt("half"));
+        assertThrows(ConversionException.class, () -> configuration.getAsLong("half"));
+        assertThrows(ConversionException.class, () -> configuration.getAsInt("huge"));
+    }
+
+    @Test
+    public void formatsAreIgnored() {
+        assertEquals(7, configuration.getConverted("count", Integer.class, "#,##0").intValue());
+        assertEquals(5, configuration.getConverted("missing", Integer.class, "#,##0", 5).intValue());
+    }
+}
@@ -0,0 +1,546 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.event;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Andres Almiray
+ */
+public class DefaultEventBusTest {
+    private static final List<String> FILTER_EVALUATIONS = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    public void asynchronousEventsAreDeliveredInPublicationOrder() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            DefaultEventBus bus = new DefaultEventBus(executor);
+            RecordingHandler handler = new RecordingHandler(1000);
+            bus.subscribe(handler);
+
+            for (int i = 0; i < 1000; i++) {
+                bus.publishEventAsync(i);
+            }
+
+            assertTrue(handler.latch.await(10, TimeUnit.SECONDS));
+            List<Object> expected = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                expected.add(i);
+            }
+            assertEquals(expected, handler.events);
+            assertEquals(0L, bus.getPendingEventCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void eventsSharingAKeyAreDeliveredInPublicationOrder() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            DefaultEventBus bus = new DefaultEventBus(executor);
+            KeyedHandler handler = new KeyedHandler(400);
+            bus.subscribe(handler);
+
+            for (int i = 0; i < 100; i++) {
+                for (String key : Arrays.asList("a", "b", "c", "d")) {
+                    bus.publishEventAsyncOrdered(key, key + ":" + i);
+                }
+            }
+
+            assertTrue(handler.latch.await(10, TimeUnit.SECONDS));
+            for (String key : Arrays.asList("a", "b", "c", "d")) {
+                List<Integer> sequence = handler.sequences.get(key);
+                for (int i = 0; i < 100; i++) {
+                    assertEquals(i, (int) sequence.get(i));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void dropNewestDiscardsEventsPublishedToAFullQueue() {
+        ManualExecutor executor = new ManualExecutor();
+        DefaultEventBus bus = new DefaultEventBus(executor, DefaultEventBus.InvocationMode.METHOD_HANDLE, 2, DefaultEventBus.OverflowPolicy.DROP_NEWEST);
+        RecordingHandler handler = new RecordingHandler(0);
+        bus.subscribe(handler);
+
+        for (int i = 0; i < 5; i++) {
+            bus.publishEventAsync(i);
+        }
+        assertEquals(2L, bus.getPendingEventCount());
+        assertEquals(3L, bus.getDroppedEventCount());
+
+        executor.runAll();
+        assertEquals(Arrays.asList(0, 1), handler.events);
+        assertEquals(0L, bus.getPendingEventCount());
+    }
+
+    @Test
+    public void subscriptionsReportTheirOwnQueueDepthAndDrops() {
+        ManualExecutor executor = new ManualExecutor();
+        DefaultEventBus bus = new DefaultEventBus(executor, DefaultEventBus.InvocationMode.METHOD_HANDLE, 2, DefaultEventBus.OverflowPolicy.DROP_NEWEST);
+        Subscription all = bus.subscribeFor(new RecordingHandler(0));
+        Subscription strings = bus.subscribeFor(new KeyedHandler(0));
+
+        for (int i = 0; i < 5; i++) {
+            bus.publishEventAsync(i);
+        }
+        bus.publishEventAsync("a:1");
+
+        assertEquals(2L, all.getPendingEventCount());
+        assertEquals(4L, all.getDroppedEventCount());
+        assertEquals(1L, strings.getPendingEventCount());
+        assertEquals(0L, strings.getDroppedEventCount());
+
+        executor.runAll();
+        assertEquals(0L, all.getPendingEventCount());
+        assertEquals(0L, strings.getPendingEventCount());
+        assertEquals(4L, all.getDroppedEventCount());
+    }
+
+    @Test
+    public void dropOldestDiscardsThePendingEventsPublishedFirst() {
+        ManualExecutor executor = new ManualExecutor();
+        DefaultEventBus bus = new DefaultEventBus(executor, DefaultEventBus.InvocationMode.METHOD_HANDLE, 2, DefaultEventBus.OverflowPolicy.DROP_OLDEST);
+        RecordingHandler handler = new RecordingHandler(0);
+        bus.subscribe(handler);
+
+        for (int i = 0; i < 5; i++) {
+            bus.publishEventAsync(i);
+        }
+        assertEquals(3L, bus.getDroppedEventCount());
+
+        executor.runAll();
+        assertEquals(Arrays.asList(3, 4), handler.events);
+    }
+
+    @Test
+    public void orderedEventsAreSubjectToTheOverflowPolicy() {
+        ManualExecutor executor = new ManualExecutor();
+        DefaultEventBus bus = new DefaultEventBus(executor, DefaultEventBus.InvocationMode.METHOD_HANDLE, 2, DefaultEventBus.OverflowPolicy.DROP_NEWEST);
+        RecordingHandler handler = new RecordingHandler(0);
+        bus.subscribe(handler);
+
+        for (int i = 0; i < 5; i++) {
+            bus.publishEventAsyncOrdered("key", i);
+        }
+        assertEquals(2L, bus.getPendingEventCount());
+        assertEquals(3L, bus.getDroppedEventCount());
+
+        executor.runAll();
+        assertEquals(Arrays.asList(0, 1), handler.events);
+        assertEquals(0L, bus.getPendingEventCount());
+    }
+
+    @Test
+    public void queuesAreRescheduledAfterTheExecutorRejectedTheirDrainTask() {
+        ManualExecutor executor = new ManualExecutor();
+        AtomicBoolean reject = new AtomicBoolean(true);
+        DefaultEventBus bus = new DefaultEventBus(task -> {
+            if (reject.get()) {
+                throw new RejectedExecutionException();
+            }
+            executor.execute(task);
+        });
+        RecordingHandler handler = new RecordingHandler(0);
+        bus.subscribe(handler);
+
+        assertThrows(RejectedExecutionException.class, () -> bus.publishEventAsync(1));
+        assertThrows(RejectedExecutionException.class, () -> bus.publishEventAsyncOrdered("key", 2));
+
+        reject.set(false);
+        bus.publishEventAsync(3);
+        bus.publishEventAsyncOrdered("key", 4);
+        executor.runAll();
+        assertEquals(Arrays.asList(1, 3, 2, 4), handler.events);
+        assertEquals(0L, bus.getPendingEventCount());
+    }
+
+    @Test
+    public void coalesceReplacesThePendingEventOfTheSameType() {
+        ManualExecutor executor = new ManualExecutor();
+        DefaultEventBus bus = new DefaultEventBus(executor, DefaultEventBus.InvocationMode.METHOD_HANDLE, 2, DefaultEventBus.OverflowPolicy.COALESCE);
+        RecordingHandler handler = new RecordingHandler(0);
+        bus.subscribe(handler);
+
+        bus.publishEventAsync(1);
+        bus.publishEventAsync("a");
+        bus.publishEventAsync(2);
+        bus.publishEventAsync(3L);
+
+        // the Long has no pending event of its type to replace
+        assertEquals(2L, bus.getDroppedEventCount());
+        executor.runAll();
+        assertEquals(Arrays.asList("a", 2), handler.events);
+    }
+
+    @Test
+    public void blockWaitsUntilTheSubscriberHasRoom() throws Exception {
+        ManualExecutor executor = new ManualExecutor();
+        DefaultEventBus bus = new DefaultEventBus(executor, DefaultEventBus.InvocationMode.METHOD_HANDLE, 1, DefaultEventBus.OverflowPolicy.BLOCK);
+        RecordingHandler handler = new RecordingHandler(0);
+        bus.subscribe(handler);
+
+        bus.publishEventAsync(1);
+        Thread publisher = new Thread(() -> bus.publishEventAsync(2));
+        publisher.start();
+        publisher.join(200L);
+        assertTrue(publisher.isAlive(), "publisher should be blocked");
+
+        executor.runAll();
+        publisher.join(5000L);
+        assertFalse(publisher.isAlive());
+        executor.runAll();
+
+        assertEquals(Arrays.asList(1, 2), handler.events);
+        assertEquals(0L, bus.getDroppedEventCount());
+    }
+
+    @Test
+    public void coalescingKeysOfDifferentEventTypesDoNotCollide() {
+        ManualExecutor executor = new ManualExecutor();
+        DefaultEventBus bus = new DefaultEventBus(executor);
+        RecordingHandler handler = new RecordingHandler(0);
+        bus.subscribe(handler);
+
+        bus.publishEventAsync("a", e -> "key");
+        bus.publishEventAsync(1, e -> "key");
+        bus.publishEventAsync("b", e -> "key");
+
+        executor.runAll();
+        assertEquals(Arrays.asList("b", 1), handler.events);
+    }
+
+    @Test
+    public void coalescedEventsAreSubjectToTheOverflowPolicy() {
+        ManualExecutor executor = new ManualExecutor();
+        DefaultEventBus bus = new DefaultEventBus(executor, DefaultEventBus.InvocationMode.METHOD_HANDLE, 1, DefaultEventBus.OverflowPolicy.DROP_NEWEST);
+        RecordingHandler handler = new RecordingHandler(0);
+        bus.subscribe(handler);
+
+        for (int i = 0; i < 3; i++) {
+            bus.publishEventAsync(i, e -> e);
+        }
+
+        executor.runAll();
+        assertEquals(Collections.singletonList(0), handler.events);
+        assertEquals(2L, bus.getDroppedEventCount());
+    }
+
+    @Test
+    public void weakHandlersAreFoundByInstance() {
+        DefaultEventBus bus = new DefaultEventBus(new ManualExecutor());
+        RecordingHandler handler = new RecordingHandler(0);
+        Subscription subscription = bus.subscribeWeakly(handler);
+        assertSame(subscription, bus.subscribeWeakly(handler));
+        assertSame(subscription, bus.subscribeFor(handler));
+
+        bus.unsubscribe(handler);
+        assertFalse(subscription.isActive());
+        bus.publishEvent(1);
+        assertTrue(handler.events.isEmpty());
+    }
+
+    @Test
+    public void reclaimedWeakHandlersAreExpungedOnPublish() throws Exception {
+        DefaultEventBus bus = new DefaultEventBus(new ManualExecutor());
+        RecordingHandler strong = new RecordingHandler(0);
+        bus.subscribe(strong);
+        Subscription subscription = bus.subscribeWeakly(new RecordingHandler(0));
+        assertEquals(2, bus.getDispatchTable().getSubscribers(Integer.class).length);
+
+        for (int i = 0; i < 50 && subscription.isActive(); i++) {
+            System.gc();
+            Thread.sleep(20L);
+        }
+        assertFalse(subscription.isActive());
+
+        bus.publishEvent(1);
+        assertEquals(1, bus.getDispatchTable().getSubscribers(Integer.class).length);
+        assertEquals(Collections.singletonList(1), strong.events);
+    }
+
+    @Test
+    public void eventsAreDeliveredToHandlersOfTheirSupertypesAndInterfaces() {
+        DefaultEventBus bus = new DefaultEventBus(new ManualExecutor());
+        PolymorphicHandler handler = new PolymorphicHandler();
+        bus.subscribe(handler);
+
+        bus.publishEvent(1);
+        bus.publishEvent(2L);
+        bus.publishEvent("a");
+        assertEquals(Collections.singletonList(1), handler.integers);
+        assertEquals(Arrays.asList(1, 2L), handler.numbers);
+        assertEquals(Arrays.asList(1, 2L, "a"), handler.comparables);
+
+        // subscribing invalidates the subscribers resolved for Integer by the previous snapshot
+        RecordingHandler late = new RecordingHandler(0);
+        bus.subscribe(late);
+        bus.publishEvent(3);
+        assertEquals(Arrays.asList(1, 3), handler.integers);
+        assertEquals(Collections.singletonList(3), late.events);
+
+        bus.unsubscribe(late);
+        bus.publishEvent(4);
+        assertEquals(Collections.singletonList(3), late.events);
+        assertEquals(Arrays.asList(1, 3, 4), handler.integers);
+    }
+
+    @Test
+    public void batchHandlersReceiveAllMatchingEventsOfAPublicationInOneCall() {
+        DefaultEventBus bus = new DefaultEventBus(new ManualExecutor());
+        BatchHandler handler = new BatchHandler();
+        bus.subscribe(handler);
+
+        bus.publishEvents(Arrays.asList("a", 1, "b", 2L));
+        assertEquals(Collections.singletonList(Arrays.asList("a", "b")), handler.batches);
+        assertEquals(Arrays.asList("a", "b"), handler.strings);
+
+        bus.publishEvent("c");
+        assertEquals(Arrays.asList(Arrays.asList("a", "b"), Collections.singletonList("c")), handler.batches);
+
+        bus.publishEvents(Arrays.asList(1, 2));
+        assertEquals(2, handler.batches.size());
+    }
+
+    @Test
+    public void filtersAreEvaluatedInAscendingOrderOfCost() {
+        DefaultEventBus bus = new DefaultEventBus(new ManualExecutor());
+        FilteredHandler handler = new FilteredHandler();
+        bus.subscribe(handler);
+        FILTER_EVALUATIONS.clear();
+
+        bus.publishEvent(1);
+        assertEquals(Collections.singletonList("cheap"), FILTER_EVALUATIONS);
+        assertTrue(handler.events.isEmpty());
+
+        FILTER_EVALUATIONS.clear();
+        bus.publishEvent(2);
+        assertEquals(Arrays.asList("cheap", "expensive"), FILTER_EVALUATIONS);
+        assertEquals(Collections.singletonList(2), handler.events);
+    }
+
+    @Test
+    public void statelessFiltersAreSharedByAllHandlerMethods() {
+        DefaultEventBus bus = new DefaultEventBus(new ManualExecutor());
+        SharingHandler first = new SharingHandler();
+        SharingHandler second = new SharingHandler();
+        bus.subscribe(first);
+        bus.subscribe(second);
+
+        // SharedFilter is declared by four handler methods, StatefulFilter by two
+        assertEquals(1, SharedFilter.INSTANCES.get());
+        assertEquals(2, StatefulFilter.INSTANCES.get());
+
+        bus.publishEvent("a");
+        assertEquals(Arrays.asList("a", "a"), first.events);
+        assertEquals(Arrays.asList("a", "a"), second.events);
+    }
+
+    public static class RecordingHandler {
+        final List<Object> events = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch latch;
+
+        RecordingHandler(int expectedEvents) {
+            this.latch = new CountDownLatch(expectedEvents);
+        }
+
+        @EventHandler
+        public void onEvent(Object event) {
+            events.add(event);
+            latch.countDown();
+        }
+    }
+
+    public static class PolymorphicHandler {
+        final List<Object> integers = new ArrayList<>();
+        final List<Object> numbers = new ArrayList<>();
+        final List<Object> comparables = new ArrayList<>();
+
+        @EventHandler
+        public void onInteger(Integer event) {
+            integers.add(event);
+        }
+
+        @EventHandler
+        public void onNumber(Number event) {
+            numbers.add(event);
+        }
+
+        @EventHandler
+        public void onComparable(Comparable<?> event) {
+            comparables.add(event);
+        }
+    }
+
+    public static class BatchHandler {
+        final List<List<String>> batches = new ArrayList<>();
+        final List<String> strings = new ArrayList<>();
+
+        @EventHandler
+        public void onStrings(List<String> events) {
+            batches.add(new ArrayList<>(events));
+        }
+
+        @EventHandler
+        public void onString(String event) {
+            strings.add(event);
+        }
+    }
+
+    public static class FilteredHandler {
+        final List<Object> events = new ArrayList<>();
+
+        @EventHandler(filters = {ExpensiveFilter.class, EvenFilter.class})
+        public void onEvent(Integer event) {
+            events.add(event);
+        }
+    }
+
+    public static class EvenFilter implements EventFilter<Integer> {
+        @Override
+        public Boolean apply(EventMetadata<Integer> metadata) {
+            FILTER_EVALUATIONS.add("cheap");
+            return metadata.getEvent() % 2 == 0;
+        }
+
+        @Override
+        public int getCost() {
+            return 1;
+        }
+    }
+
+    public static class ExpensiveFilter implements EventFilter<Integer> {
+        @Override
+        public Boolean apply(EventMetadata<Integer> metadata) {
+            FILTER_EVALUATIONS.add("expensive");
+            return true;
+        }
+
+        @Override
+        public int getCost() {
+            return 10;
+        }
+    }
+
+    public static class SharingHandler {
+        final List<Object> events = new ArrayList<>();
+
+        @EventHandler(filters = {SharedFilter.class, StatefulFilter.class})
+        public void onString(String event) {
+            events.add(event);
+        }
+
+        @EventHandler(filters = SharedFilter.class)
+        public void onCharSequence(CharSequence event) {
+            events.add(event);
+        }
+    }
+
+    public static class SharedFilter implements EventFilter<Object> {
+        static final AtomicInteger INSTANCES = new AtomicInteger();
+
+        public SharedFilter() {
+            INSTANCES.incrementAndGet();
+        }
+
+        @Override
+        public Boolean apply(EventMetadata<Object> metadata) {
+            return true;
+        }
+    }
+
+    public static class StatefulFilter implements EventFilter<Object> {
+        static final AtomicInteger INSTANCES = new AtomicInteger();
+
+        private int evaluations;
+
+        public StatefulFilter() {
+            INSTANCES.incrementAndGet();
+        }
+
+        @Override
+        public Boolean apply(EventMetadata<Object> metadata) {
+            return ++evaluations > 0;
+        }
+    }
+
+    public static class KeyedHandler {
+        final Map<String, List<Integer>> sequences = new ConcurrentHashMap<>();
+        final CountDownLatch latch;
+
+        KeyedHandler(int expectedEvents) {
+            this.latch = new CountDownLatch(expectedEvents);
+        }
+
+        @EventHandler
+        public void onEvent(String event) {
+            String[] parts = event.split(":");
+            sequences.computeIfAbsent(parts[0], k -> Collections.synchronizedList(new ArrayList<>())).add(Integer.valueOf(parts[1]));
+            latch.countDown();
+        }
+    }
+
+    /**
+     * Runs submitted tasks on the calling thread, on demand.
+     */
+    static final class ManualExecutor implements Executor {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public synchronized void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            for (Runnable task = poll(); task != null; task = poll()) {
+                task.run();
+            }
+        }
+
+        private synchronized Runnable poll() {
+            return tasks.poll();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.threading;
+
+import org.junit.jupiter.api.Test;
+
+import javax.application.configuration.Configuration;
+import javax.application.configuration.DefaultConfiguration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Andres Almiray
+ */
+public class AbstractThreadingHandlerTest {
+    @Test
+    public void missingVirtualThreadFactoryYieldsNoExecutor() {
+        assertNull(AbstractThreadingHandler.createVirtualThreadExecutor("newUnsupportedThreadPerTaskExecutor"));
+    }
+
+    @Test
+    public void virtualThreadRequestFallsBackToPlatformThreadsWhenUnsupported() throws Exception {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put(AbstractThreadingHandler.KEY_VIRTUAL_THREADS, true);
+        settings.put(AbstractThreadingHandler.KEY_POOL_SIZE, 2);
+        InlineThreadingHandler handler = new InlineThreadingHandler(new DefaultConfiguration(settings),
+            "newUnsupportedThreadPerTaskExecutor");
+        try {
+            assertFalse(handler.isVirtualThreads());
+
+            String threadName = handler.executeOutsideUIAsync(() -> Thread.currentThread().getName())
+                .toCompletableFuture().get(10, TimeUnit.SECONDS);
+            assertTrue(threadName.startsWith("threading-handler-"), threadName);
+        } finally {
+            handler.shutdown();
+        }
+    }
+
+    @Test
+    public void platformThreadsAreUsedUnlessVirtualThreadsAreRequested() throws Exception {
+        InlineThreadingHandler handler = new InlineThreadingHandler(new DefaultConfiguration(new HashMap<>()),
+            AbstractThreadingHandler.VIRTUAL_THREAD_FACTORY_METHOD);
+        try {
+            assertFalse(handler.isVirtualThreads());
+            assertEquals(Boolean.FALSE, handler.executeOutsideUIAsync(() -> handler.isUIThread())
+                .toCompletableFuture().get(10, TimeUnit.SECONDS));
+        } finally {
+            handler.shutdown();
+        }
+    }
+
+    private static final class InlineThreadingHandler extends AbstractThreadingHandler {
+        private InlineThreadingHandler(Configuration configuration, String virtualThreadFactoryMethod) {
+            super(configuration, virtualThreadFactoryMethod);
+        }
+
+        @Override
+        protected void postToUIThread(Runnable runnable) {
+            runnable.run();
+        }
+
+        @Override
+        public boolean isUIThread() {
+            return false;
+        }
+    }
+}
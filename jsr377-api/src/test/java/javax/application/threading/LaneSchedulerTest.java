@@ -0,0 +1,111 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.threading;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Andres Almiray
+ */
+public class LaneSchedulerTest {
+    private final List<Threading.Lane> executed = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    public void waitingTasksRunInLanePriorityOrder() throws Exception {
+        LaneScheduler scheduler = newScheduler();
+        try {
+            CountDownLatch gate = occupyWorker(scheduler);
+            CountDownLatch done = new CountDownLatch(3);
+            scheduler.execute(Threading.Lane.BULK, record(Threading.Lane.BULK, done));
+            scheduler.execute(Threading.Lane.DEFAULT, record(Threading.Lane.DEFAULT, done));
+            scheduler.execute(Threading.Lane.INTERACTIVE, record(Threading.Lane.INTERACTIVE, done));
+            gate.countDown();
+
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertEquals(Arrays.asList(Threading.Lane.INTERACTIVE, Threading.Lane.DEFAULT, Threading.Lane.BULK), executed);
+        } finally {
+            scheduler.getExecutorService().shutdownNow();
+        }
+    }
+
+    @Test
+    public void tasksThatWaitedLongEnoughOvertakeHigherPriorityLanes() throws Exception {
+        LaneScheduler scheduler = newScheduler();
+        try {
+            CountDownLatch gate = occupyWorker(scheduler);
+            CountDownLatch done = new CountDownLatch(2);
+            scheduler.execute(Threading.Lane.BULK, record(Threading.Lane.BULK, done));
+            // the aging offset of BULK over INTERACTIVE is one second
+            Thread.sleep(1100L);
+            scheduler.execute(Threading.Lane.INTERACTIVE, record(Threading.Lane.INTERACTIVE, done));
+            gate.countDown();
+
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertEquals(Arrays.asList(Threading.Lane.BULK, Threading.Lane.INTERACTIVE), executed);
+            assertTrue(scheduler.getMaxLatency(Threading.Lane.BULK, TimeUnit.MILLISECONDS) >= 1100L);
+            assertTrue(scheduler.getAverageLatency(Threading.Lane.INTERACTIVE, TimeUnit.MILLISECONDS) < 1100L);
+        } finally {
+            scheduler.getExecutorService().shutdownNow();
+        }
+    }
+
+    private static LaneScheduler newScheduler() {
+        ExecutorService pool = LaneScheduler.newPool(1, runnable -> {
+            Thread thread = new Thread(runnable, "lane-scheduler-test");
+            thread.setDaemon(true);
+            return thread;
+        });
+        return new LaneScheduler(pool, null);
+    }
+
+    /**
+     * Blocks the only worker thread until the returned latch is released, so that further tasks queue up.
+     */
+    private static CountDownLatch occupyWorker(LaneScheduler scheduler) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        scheduler.execute(Threading.Lane.INTERACTIVE, () -> {
+            started.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await();
+        return gate;
+    }
+
+    private Runnable record(Threading.Lane lane, CountDownLatch done) {
+        return () -> {
+            executed.add(lane);
+            done.countDown();
+        };
+    }
+}
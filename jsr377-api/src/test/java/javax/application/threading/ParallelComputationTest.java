@@ -0,0 +1,174 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.threading;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.application.configuration.Configuration;
+import javax.application.configuration.DefaultConfiguration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Andres Almiray
+ */
+public class ParallelComputationTest {
+    private InlineThreadingHandler threadingHandler;
+
+    @BeforeEach
+    public void setup() {
+        threadingHandler = new InlineThreadingHandler(new DefaultConfiguration(
+            Collections.singletonMap(AbstractThreadingHandler.KEY_PARALLELISM, 4)));
+    }
+
+    @AfterEach
+    public void cleanup() {
+        threadingHandler.shutdown();
+    }
+
+    @Test
+    public void tasksAreSplitUntilTheyAreBelowTheThreshold() throws Exception {
+        List<Integer> leafSizes = Collections.synchronizedList(new ArrayList<>());
+        Range range = new Range(0, 1000, 64, leafSizes);
+
+        List<Integer> result = await(threadingHandler.executeParallelAsync(range));
+
+        assertEquals(IntStream.range(0, 1000).boxed().collect(Collectors.toList()), result);
+        // 1000 halves down to 16 leaves of 62 or 63 elements
+        assertEquals(16, leafSizes.size());
+        for (int size : leafSizes) {
+            assertTrue(size <= 64 && size > 32, String.valueOf(size));
+        }
+        assertEquals(1000, leafSizes.stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    public void tasksBelowTheThresholdAreComputedDirectly() throws Exception {
+        List<Integer> leafSizes = Collections.synchronizedList(new ArrayList<>());
+
+        List<Integer> result = await(threadingHandler.executeParallelAsync(new Range(0, 10, 64, leafSizes)));
+
+        assertEquals(IntStream.range(0, 10).boxed().collect(Collectors.toList()), result);
+        assertEquals(Collections.singletonList(10), leafSizes);
+    }
+
+    @Test
+    public void completionIsReportedAsFullProgress() throws Exception {
+        List<Double> progress = Collections.synchronizedList(new ArrayList<>());
+
+        await(threadingHandler.executeParallelAsync(new Range(0, 1000, 64, new ArrayList<>()), progress::add));
+
+        assertEquals(1d, progress.get(progress.size() - 1), 0d);
+    }
+
+    @Test
+    public void aTaskThatDoesNotSplitFailsTheComputation() {
+        Range range = new Range(0, 1000, 64, new ArrayList<>()) {
+            @Override
+            public List<Range> split() {
+                return Collections.emptyList();
+            }
+        };
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> await(threadingHandler.executeParallelAsync(range)));
+        assertTrue(e.getCause() instanceof IllegalStateException, String.valueOf(e.getCause()));
+    }
+
+    private static <R> R await(CompletionStage<R> stage) throws Exception {
+        return stage.toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Collects the integers of a range, recording the size of each range that is computed directly.
+     */
+    private static class Range implements SplittableTask<List<Integer>> {
+        private final int from;
+        private final int to;
+        private final int threshold;
+        private final List<Integer> leafSizes;
+
+        private Range(int from, int to, int threshold, List<Integer> leafSizes) {
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+            this.leafSizes = leafSizes;
+        }
+
+        @Override
+        public long size() {
+            return to - from;
+        }
+
+        @Override
+        public boolean isSplittable() {
+            return to - from > threshold;
+        }
+
+        @Override
+        public List<Range> split() {
+            int middle = (from + to) >>> 1;
+            return Arrays.asList(new Range(from, middle, threshold, leafSizes), new Range(middle, to, threshold, leafSizes));
+        }
+
+        @Override
+        public List<Integer> compute() {
+            leafSizes.add(to - from);
+            List<Integer> values = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                values.add(i);
+            }
+            return values;
+        }
+
+        @Override
+        public List<Integer> merge(List<Integer> left, List<Integer> right) {
+            List<Integer> merged = new ArrayList<>(left);
+            merged.addAll(right);
+            return merged;
+        }
+    }
+
+    private static final class InlineThreadingHandler extends AbstractThreadingHandler {
+        private InlineThreadingHandler(Configuration configuration) {
+            super(configuration);
+        }
+
+        @Override
+        protected void postToUIThread(Runnable runnable) {
+            runnable.run();
+        }
+
+        @Override
+        public boolean isUIThread() {
+            return false;
+        }
+    }
+}
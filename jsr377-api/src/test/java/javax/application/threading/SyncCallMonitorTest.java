@@ -0,0 +1,127 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.threading;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.application.configuration.Configuration;
+import javax.application.configuration.DefaultConfiguration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Andres Almiray
+ */
+public class SyncCallMonitorTest {
+    private static final Logger LOG = Logger.getLogger(AbstractThreadingHandler.class.getName());
+
+    private final List<String> warnings = new CopyOnWriteArrayList<>();
+    private final Handler logHandler = new Handler() {
+        @Override
+        public void publish(LogRecord record) {
+            if (record.getLevel() == Level.WARNING) {
+                warnings.add(record.getMessage());
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @BeforeEach
+    public void addLogHandler() {
+        LOG.addHandler(logHandler);
+    }
+
+    @AfterEach
+    public void removeLogHandler() {
+        LOG.removeHandler(logHandler);
+    }
+
+    @Test
+    public void callsFromBackgroundTasksAreLinkedToTheCallThatSubmittedThem() throws Exception {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put(AbstractThreadingHandler.KEY_UI_SYNC_DIAGNOSTICS, true);
+        settings.put(AbstractThreadingHandler.KEY_UI_SYNC_STALL_THRESHOLD, 10L);
+        SingleThreadUIHandler handler = new SingleThreadUIHandler(new DefaultConfiguration(settings));
+        try {
+            CompletionStage<String> nested = handler.executeInsideUISync(() ->
+                handler.executeOutsideUIAsync(() -> handler.executeInsideUISync(() -> {
+                    Thread.sleep(200L);
+                    return "done";
+                })));
+
+            assertEquals("done", nested.toCompletableFuture().get(10, TimeUnit.SECONDS));
+            String chain = " <- " + Thread.currentThread().getName();
+            assertTrue(warnings.stream().anyMatch(message -> message.contains("threading-handler-") && message.contains(chain)),
+                String.valueOf(warnings));
+        } finally {
+            handler.shutdown();
+        }
+    }
+
+    private static final class SingleThreadUIHandler extends AbstractThreadingHandler {
+        private final ExecutorService uiExecutor;
+        private volatile Thread uiThread;
+
+        private SingleThreadUIHandler(Configuration configuration) {
+            super(configuration);
+            this.uiExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                uiThread = new Thread(runnable, "ui");
+                uiThread.setDaemon(true);
+                return uiThread;
+            });
+        }
+
+        @Override
+        protected void postToUIThread(Runnable runnable) {
+            uiExecutor.execute(runnable);
+        }
+
+        @Override
+        public boolean isUIThread() {
+            return Thread.currentThread() == uiThread;
+        }
+
+        @Override
+        public void shutdown() {
+            super.shutdown();
+            uiExecutor.shutdown();
+        }
+    }
+}
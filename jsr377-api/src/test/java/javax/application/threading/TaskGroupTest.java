@@ -0,0 +1,159 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.threading;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.application.configuration.Configuration;
+import javax.application.configuration.DefaultConfiguration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Andres Almiray
+ */
+public class TaskGroupTest {
+    private InlineThreadingHandler threadingHandler;
+
+    @BeforeEach
+    public void setup() {
+        threadingHandler = new InlineThreadingHandler(new DefaultConfiguration(
+            Collections.singletonMap(AbstractThreadingHandler.KEY_POOL_SIZE, 4)));
+    }
+
+    @AfterEach
+    public void cleanup() {
+        threadingHandler.shutdown();
+    }
+
+    @Test
+    public void resultsAreJoinedInForkOrderOnTheUIThread() throws Exception {
+        TaskGroup<Integer> group = threadingHandler.newTaskGroup();
+        CountDownLatch last = new CountDownLatch(1);
+        group.fork(() -> {
+            last.await();
+            return 1;
+        });
+        group.fork(() -> {
+            last.countDown();
+            return 2;
+        });
+
+        List<Integer> results = await(group.join(values -> values));
+        assertEquals(Arrays.asList(1, 2), results);
+        assertEquals(1, threadingHandler.uiTasks);
+    }
+
+    @Test
+    public void aFailingTaskCancelsItsSiblings() throws Exception {
+        TaskGroup<Integer> group = threadingHandler.newTaskGroup();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CompletionStage<Integer> sibling = group.fork(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return 1;
+        });
+        started.await();
+        group.fork(() -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+        assertThrows(CancellationException.class, () -> await(sibling));
+
+        // no further tasks are started once the group failed
+        assertTrue(group.fork(() -> 3).toCompletableFuture().isCancelled());
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> await(group.join(values -> values)));
+        assertEquals("boom", e.getCause().getMessage());
+    }
+
+    @Test
+    public void cancellingTheGroupFailsTheJoin() {
+        TaskGroup<Integer> group = threadingHandler.newTaskGroup();
+        group.fork(() -> {
+            Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+            return 1;
+        });
+        group.cancel();
+
+        // CompletableFuture.get() rethrows cancellation as is
+        assertThrows(CancellationException.class, () -> await(group.join(values -> values)));
+    }
+
+    @Test
+    public void theDeadlineCancelsPendingTasks() {
+        TaskGroup<Integer> group = threadingHandler.newTaskGroup(100L, TimeUnit.MILLISECONDS);
+        CompletionStage<Integer> task = group.fork(() -> {
+            Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+            return 1;
+        });
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> await(group.join(values -> values)));
+        assertTrue(e.getCause() instanceof TimeoutException, String.valueOf(e.getCause()));
+        assertThrows(CancellationException.class, () -> await(task));
+    }
+
+    @Test
+    public void tasksCanNotBeForkedAfterJoin() {
+        TaskGroup<Integer> group = threadingHandler.newTaskGroup();
+        group.join(values -> values);
+        assertThrows(IllegalStateException.class, () -> group.fork(() -> 1));
+    }
+
+    private static <R> R await(CompletionStage<R> stage) throws Exception {
+        return stage.toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+
+    private static final class InlineThreadingHandler extends AbstractThreadingHandler {
+        private volatile int uiTasks;
+
+        private InlineThreadingHandler(Configuration configuration) {
+            super(configuration);
+        }
+
+        @Override
+        protected void postToUIThread(Runnable runnable) {
+            uiTasks++;
+            runnable.run();
+        }
+
+        @Override
+        public boolean isUIThread() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.threading;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Andres Almiray
+ */
+public class UITaskSchedulerTest {
+    private final Queue<Runnable> frames = new ArrayDeque<>();
+    private final List<String> executed = new ArrayList<>();
+
+    @Test
+    public void tasksSubmittedBeforeAFrameRunsShareThatFrame() {
+        UITaskScheduler scheduler = new UITaskScheduler(frames::add, TimeUnit.SECONDS.toNanos(10));
+        scheduler.execute(record("a"));
+        scheduler.execute(record("b"));
+        scheduler.execute(record("c"));
+        assertEquals(1, frames.size());
+
+        runFrame();
+        assertEquals(Arrays.asList("a", "b", "c"), executed);
+        assertEquals(0, frames.size());
+        assertEquals(0L, scheduler.getDeferredTaskCount());
+    }
+
+    @Test
+    public void tasksBeyondTheFrameBudgetAreDeferredToTheNextFrame() {
+        // a zero budget is exhausted by the first task of every frame
+        UITaskScheduler scheduler = new UITaskScheduler(frames::add, 0L);
+        scheduler.execute(record("a"));
+        scheduler.execute(record("b"));
+        scheduler.execute(record("c"));
+
+        runFrame();
+        assertEquals(Arrays.asList("a"), executed);
+        assertEquals(2L, scheduler.getDeferredTaskCount());
+        assertEquals(1, frames.size());
+
+        runFrame();
+        runFrame();
+        assertEquals(Arrays.asList("a", "b", "c"), executed);
+        assertEquals(3L, scheduler.getDeferredTaskCount());
+        assertEquals(0, frames.size());
+    }
+
+    @Test
+    public void coalescedTasksReplacePendingTasksInPlace() {
+        UITaskScheduler scheduler = new UITaskScheduler(frames::add, TimeUnit.SECONDS.toNanos(10));
+        scheduler.execute("key", record("first"));
+        scheduler.execute(record("other"));
+        scheduler.execute("key", record("second"));
+        scheduler.execute("key", record("third"));
+
+        runFrame();
+        assertEquals(Arrays.asList("third", "other"), executed);
+
+        // once run, the key may be queued again
+        scheduler.execute("key", record("fourth"));
+        runFrame();
+        assertEquals(Arrays.asList("third", "other", "fourth"), executed);
+    }
+
+    @Test
+    public void aFailingTaskDoesNotAbortTheFrame() {
+        UITaskScheduler scheduler = new UITaskScheduler(frames::add, TimeUnit.SECONDS.toNanos(10));
+        List<Throwable> failures = new ArrayList<>();
+        Thread thread = Thread.currentThread();
+        Thread.UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+        thread.setUncaughtExceptionHandler((t, e) -> failures.add(e));
+        try {
+            scheduler.execute(() -> {
+                throw new IllegalStateException("boom");
+            });
+            scheduler.execute(record("after"));
+            runFrame();
+        } finally {
+            thread.setUncaughtExceptionHandler(handler);
+        }
+
+        assertEquals(1, failures.size());
+        assertEquals(Arrays.asList("after"), executed);
+    }
+
+    private Runnable record(String name) {
+        return () -> executed.add(name);
+    }
+
+    private void runFrame() {
+        frames.remove().run();
+    }
+}
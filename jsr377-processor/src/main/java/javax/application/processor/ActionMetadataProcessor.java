@@ -0,0 +1,343 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.application.action.ActionHandler;
+import javax.application.action.ExecutionPolicy;
+import javax.application.threading.Threading;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Generates an {@code ActionMetadataProvider} for every class that declares {@link ActionHandler} methods, thus
+ * {@code DefaultActionManager} needs not scan those classes nor look up their methods, parameters, or
+ * {@code Threading} annotations at runtime.
+ * <p>
+ * For every class {@code Foo} declaring methods annotated with {@code @ActionHandler}, or with an annotation that
+ * is itself annotated with {@code @ActionHandler}, a class named {@code Foo_ActionMetadataProvider} is generated
+ * in the same package. It describes every handler method declared by {@code Foo}, including its return type,
+ * parameters, and threading policy, and invokes them with plain method calls. Parameters are described as
+ * contextual or nullable following the rules of {@code DefaultActionManager}, thus only annotations retained at
+ * runtime are taken into account. All generated providers are listed in
+ * {@code META-INF/services/javax.application.action.spi.ActionMetadataProvider}, entries of previous
+ * compilations are kept.
+ * <p>
+ * Static handler methods, duplicate action ids, and debounced or throttled actions without a positive
+ * {@code interval} or {@code rate} are reported as errors. Classes that cannot be accessed from their own
+ * package, or that declare private handler methods, are reported with a warning and left to be scanned at
+ * runtime.
+ *
+ * @author Andres Almiray
+ */
+@SupportedAnnotationTypes("*")
+public class ActionMetadataProcessor extends AbstractProcessor {
+    public static final String SUFFIX = "_ActionMetadataProvider";
+
+    private static final String PROVIDER = "javax.application.action.spi.ActionMetadataProvider";
+    private static final String DESCRIPTOR = "javax.application.action.spi.ActionDescriptor";
+    private static final String THREADING = "javax.application.threading.Threading";
+    private static final String SERVICES = "META-INF/services/" + PROVIDER;
+
+    private final Set<String> providers = new LinkedHashSet<>();
+    private final Set<TypeElement> originatingTypes = new LinkedHashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            if (!providers.isEmpty()) {
+                writeServices();
+            }
+            return false;
+        }
+
+        Set<TypeElement> types = new LinkedHashSet<>();
+        for (TypeElement annotation : annotations) {
+            if (!ActionHandler.class.getName().equals(annotation.getQualifiedName().toString()) &&
+                annotation.getAnnotation(ActionHandler.class) == null) {
+                continue;
+            }
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.METHOD && element.getEnclosingElement().getKind() == ElementKind.CLASS) {
+                    types.add((TypeElement) element.getEnclosingElement());
+                }
+            }
+        }
+
+        for (TypeElement type : types) {
+            generateProvider(type);
+        }
+        return false;
+    }
+
+    private void generateProvider(TypeElement type) {
+        if (!checkType(type)) {
+            return;
+        }
+
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        String simpleName = providerName(type);
+        String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        String ownerType = processingEnv.getTypeUtils().erasure(type.asType()).toString();
+
+        boolean valid = true;
+        Set<String> actionIds = new HashSet<>();
+        StringJoiner descriptors = new StringJoiner(",\n", "", "\n");
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            ActionHandler handler = findActionHandler(method);
+            if (handler != null) {
+                String descriptor = describe(type, ownerType, method, handler, actionIds);
+                if (descriptor == null) {
+                    valid = false;
+                } else {
+                    descriptors.add(descriptor);
+                }
+            }
+        }
+
+        if (!valid) {
+            return;
+        }
+
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()) {
+            if (!packageName.isEmpty()) {
+                writer.write("package " + packageName + ";\n\n");
+            }
+            writer.write("// Generated by " + getClass().getName() + ", do not edit\n");
+            writer.write("public final class " + simpleName + " implements " + PROVIDER + " {\n");
+            writer.write("    @Override\n");
+            writer.write("    public Class<?> getOwnerType() {\n");
+            writer.write("        return " + ownerType + ".class;\n");
+            writer.write("    }\n\n");
+            writer.write("    @Override\n");
+            writer.write("    @SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+            writer.write("    public java.util.List<" + DESCRIPTOR + "> getActionDescriptors() {\n");
+            writer.write("        return java.util.Arrays.asList(\n");
+            writer.write(descriptors.toString());
+            writer.write("        );\n");
+            writer.write("    }\n");
+            writer.write("}\n");
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not generate " + qualifiedName + ": " + e.getMessage(), type);
+            return;
+        }
+
+        providers.add(qualifiedName);
+        originatingTypes.add(type);
+    }
+
+    private boolean checkType(TypeElement type) {
+        String reason = null;
+        if (type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+            reason = "is a local or anonymous class";
+        } else if (!isAccessible(type)) {
+            reason = "is private";
+        } else {
+            for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+                if (method.getModifiers().contains(Modifier.PRIVATE) && findActionHandler(method) != null) {
+                    reason = "declares private action handler methods";
+                    break;
+                }
+            }
+        }
+
+        if (reason != null) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                "Class " + type.getQualifiedName() + " " + reason + ", its actions will be resolved with reflection", type);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isAccessible(TypeElement type) {
+        for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+            if (e.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ActionHandler findActionHandler(ExecutableElement method) {
+        ActionHandler handler = method.getAnnotation(ActionHandler.class);
+        if (handler != null) {
+            return handler;
+        }
+        for (AnnotationMirror annotation : method.getAnnotationMirrors()) {
+            handler = annotation.getAnnotationType().asElement().getAnnotation(ActionHandler.class);
+            if (handler != null) {
+                return handler;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Renders the {@code ActionDescriptor} of the given method, {@code null} if the method is not a valid handler.
+     */
+    private String describe(TypeElement type, String ownerType, ExecutableElement method, ActionHandler handler, Set<String> actionIds) {
+        String methodName = method.getSimpleName().toString();
+        if (method.getModifiers().contains(Modifier.STATIC)) {
+            return error(method, "must not be static");
+        }
+        if (handler.executionPolicy() == ExecutionPolicy.DEBOUNCE && handler.interval() <= 0L) {
+            return error(method, "must define a positive interval to be debounced");
+        }
+        if (handler.executionPolicy() == ExecutionPolicy.THROTTLE && handler.rate() <= 0) {
+            return error(method, "must define a positive rate to be throttled");
+        }
+        String actionId = handler.value().isEmpty() ? methodName : handler.value();
+        if (!actionIds.add(actionId)) {
+            return error(method, "defines action id '" + actionId + "' more than once in its class");
+        }
+
+        List<? extends VariableElement> parameters = method.getParameters();
+        StringJoiner described = new StringJoiner(",\n", "new " + DESCRIPTOR + ".Parameter[]{\n", "}");
+        described.setEmptyValue("new " + DESCRIPTOR + ".Parameter[0]");
+        StringJoiner arguments = new StringJoiner(", ");
+        for (int i = 0; i < parameters.size(); i++) {
+            VariableElement parameter = parameters.get(i);
+            String erasure = processingEnv.getTypeUtils().erasure(parameter.asType()).toString();
+            boolean nullable = !parameter.asType().getKind().isPrimitive() && isAnnotatedWith(parameter, "Nullable");
+            described.add("                    new " + DESCRIPTOR + ".Parameter(" + erasure + ".class, " +
+                literal(parameter.getSimpleName().toString()) + ", " + isAnnotatedWith(parameter, "Contextual") + ", " + nullable + ")");
+            arguments.add(Object.class.getName().equals(erasure) ? "args[" + i + "]" : "(" + erasure + ") args[" + i + "]");
+        }
+
+        StringJoiner dependsOn = new StringJoiner(", ", "new String[]{", "}");
+        for (String key : handler.dependsOn()) {
+            dependsOn.add(literal(key));
+        }
+
+        // the annotation of the method takes precedence, the one of the class may be inherited
+        Threading threading = method.getAnnotation(Threading.class);
+        if (threading == null) {
+            threading = type.getAnnotation(Threading.class);
+        }
+        String threadingPolicy = threading != null ? THREADING + ".Policy." + threading.value().name() : "null";
+        String threadingLane = THREADING + ".Lane." + (threading != null ? threading.lane() : Threading.Lane.DEFAULT).name();
+
+        String call = "((" + ownerType + ") owner)." + methodName + "(" + arguments + ")";
+        String invocation = method.getReturnType().getKind() == TypeKind.VOID
+            ? "(owner, args) -> {\n                    " + call + ";\n                    return null;\n                }"
+            : "(owner, args) -> " + call;
+        String returnType = processingEnv.getTypeUtils().erasure(method.getReturnType()).toString();
+
+        return "            new " + DESCRIPTOR + "(" + literal(methodName) + ", " + returnType + ".class, " + described + ",\n" +
+            "                " + literal(actionId) + ", " + literal(handler.name().isEmpty() ? methodName : handler.name()) + ", " +
+            handler.enabled() + ", " + ExecutionPolicy.class.getCanonicalName() + "." + handler.executionPolicy().name() + ", " +
+            handler.interval() + "L, " + handler.rate() + ", " + dependsOn + ",\n" +
+            "                " + threadingPolicy + ", " + threadingLane + ",\n" +
+            "                " + invocation + ")";
+    }
+
+    /**
+     * Finds out if the given element has an annotation with the given simple name that is retained at runtime, the
+     * way {@code DefaultActionManager} matches the annotations it finds with reflection.
+     */
+    private static boolean isAnnotatedWith(Element element, String simpleName) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            Element annotationType = annotation.getAnnotationType().asElement();
+            Retention retention = annotationType.getAnnotation(Retention.class);
+            if (annotationType.getSimpleName().contentEquals(simpleName) && retention != null &&
+                retention.value() == RetentionPolicy.RUNTIME) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String error(ExecutableElement method, String reason) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+            "Action handler method " + method.getSimpleName() + " " + reason, method);
+        return null;
+    }
+
+    private void writeServices() {
+        Filer filer = processingEnv.getFiler();
+        Set<String> entries = new LinkedHashSet<>();
+        try {
+            // keep the providers generated by previous, possibly incremental, compilations
+            FileObject existing = filer.getResource(StandardLocation.CLASS_OUTPUT, "", SERVICES);
+            try (BufferedReader reader = new BufferedReader(existing.openReader(true))) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    line = line.trim();
+                    if (!line.isEmpty() && !line.startsWith("#")) {
+                        entries.add(line);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // no services file yet
+        }
+        entries.addAll(providers);
+
+        try (Writer writer = filer.createResource(StandardLocation.CLASS_OUTPUT, "", SERVICES,
+            originatingTypes.toArray(new Element[0])).openWriter()) {
+            for (String entry : entries) {
+                writer.write(entry + "\n");
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not generate " + SERVICES + ": " + e.getMessage());
+        }
+    }
+
+    private String literal(String value) {
+        return processingEnv.getElementUtils().getConstantExpression(value);
+    }
+
+    private static String providerName(TypeElement type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        for (Element e = type.getEnclosingElement(); e instanceof TypeElement; e = e.getEnclosingElement()) {
+            name.insert(0, '_').insert(0, e.getSimpleName());
+        }
+        return name.append(SUFFIX).toString();
+    }
+}
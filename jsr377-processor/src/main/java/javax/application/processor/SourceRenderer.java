@@ -0,0 +1,124 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.processor;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Renders elements and types as Java source code.
+ *
+ * @author Andres Almiray
+ */
+final class SourceRenderer {
+    private SourceRenderer() {
+        // prevent instantiation
+    }
+
+    static String visibility(Set<Modifier> modifiers) {
+        if (modifiers.contains(Modifier.PUBLIC)) {
+            return "public ";
+        }
+        if (modifiers.contains(Modifier.PROTECTED)) {
+            return "protected ";
+        }
+        return "";
+    }
+
+    static String typeParameters(List<? extends TypeParameterElement> typeParameters) {
+        if (typeParameters.isEmpty()) {
+            return "";
+        }
+
+        StringJoiner joiner = new StringJoiner(", ", "<", ">");
+        for (TypeParameterElement typeParameter : typeParameters) {
+            StringJoiner bounds = new StringJoiner(" & ", typeParameter.getSimpleName() + " extends ", "");
+            bounds.setEmptyValue(typeParameter.getSimpleName());
+            for (TypeMirror bound : typeParameter.getBounds()) {
+                if (!Object.class.getName().equals(bound.toString())) {
+                    bounds.add(bound.toString());
+                }
+            }
+            joiner.add(bounds.toString());
+        }
+        return joiner.toString();
+    }
+
+    static String typeParameterPrefix(List<? extends TypeParameterElement> typeParameters) {
+        return typeParameters.isEmpty() ? "" : typeParameters(typeParameters) + " ";
+    }
+
+    static String typeArguments(List<? extends TypeParameterElement> typeParameters) {
+        if (typeParameters.isEmpty()) {
+            return "";
+        }
+
+        StringJoiner joiner = new StringJoiner(", ", "<", ">");
+        for (TypeParameterElement typeParameter : typeParameters) {
+            joiner.add(typeParameter.getSimpleName());
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * Renders the parameters of a method or constructor. Parameters keep their names unless a prefix is given,
+     * in which case they are named after the prefix and their position.
+     */
+    static String parameters(ExecutableElement executable, List<? extends TypeMirror> types, String prefix) {
+        List<? extends VariableElement> parameters = executable.getParameters();
+        StringJoiner joiner = new StringJoiner(", ");
+        for (int i = 0; i < parameters.size(); i++) {
+            TypeMirror type = types.get(i);
+            String name = prefix != null ? prefix + i : parameters.get(i).getSimpleName().toString();
+            if (executable.isVarArgs() && i == parameters.size() - 1 && type.getKind() == TypeKind.ARRAY) {
+                joiner.add(((ArrayType) type).getComponentType() + "... " + name);
+            } else {
+                joiner.add(type + " " + name);
+            }
+        }
+        return joiner.toString();
+    }
+
+    static String arguments(List<? extends VariableElement> parameters, String prefix) {
+        StringJoiner joiner = new StringJoiner(", ");
+        for (int i = 0; i < parameters.size(); i++) {
+            joiner.add(prefix != null ? prefix + i : parameters.get(i).getSimpleName());
+        }
+        return joiner.toString();
+    }
+
+    static String throwsClause(List<? extends TypeMirror> thrownTypes) {
+        if (thrownTypes.isEmpty()) {
+            return "";
+        }
+
+        StringJoiner joiner = new StringJoiner(", ", " throws ", "");
+        for (TypeMirror thrownType : thrownTypes) {
+            joiner.add(thrownType.toString());
+        }
+        return joiner.toString();
+    }
+}
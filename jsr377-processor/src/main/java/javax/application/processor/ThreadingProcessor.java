@@ -0,0 +1,358 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.application.threading.Threading;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static java.util.stream.Collectors.toList;
+import static javax.application.processor.SourceRenderer.arguments;
+import static javax.application.processor.SourceRenderer.parameters;
+import static javax.application.processor.SourceRenderer.throwsClause;
+import static javax.application.processor.SourceRenderer.typeParameterPrefix;
+import static javax.application.processor.SourceRenderer.typeArguments;
+import static javax.application.processor.SourceRenderer.typeParameters;
+import static javax.application.processor.SourceRenderer.visibility;
+
+/**
+ * Generates threading wrappers for classes that use {@link Threading}.
+ * <p>
+ * For every class {@code Foo} that is annotated with {@code @Threading}, or that declares methods annotated with
+ * {@code @Threading}, a subclass named {@code Foo_Threading} is generated in the same package. Its constructors
+ * take a {@code ThreadingHandler} as first argument followed by the arguments of the matching constructor of
+ * {@code Foo}. Every overridable method whose policy is not {@code SKIP} is overridden to dispatch the call to
+ * {@code super} through the {@code ThreadingHandler}, thus no annotations are read at runtime. A method's own
+ * annotation takes precedence over the annotation of the class.
+ * <p>
+ * The policy of a class only applies to the methods it can wrap. Methods that break the rules below, as well as
+ * methods declared by or overriding {@code java.lang.Object}, such as {@code toString()}, are silently left
+ * alone unless they carry their own annotation. The following rules are checked at compile time for methods
+ * annotated with {@code @Threading}
+ * <ul>
+ * <li>{@code OUTSIDE_UITHREAD} may only be applied to methods returning {@code void}.</li>
+ * <li>{@code OUTSIDE_UITHREAD_ASYNC} and {@code INSIDE_UITHREAD_ASYNC} may only be applied to methods returning
+ * {@code void} or {@code CompletionStage}; the latter complete once the stage returned by the method completes.</li>
+ * <li>Methods dispatched through a {@code Runnable} may not declare checked exceptions. Checked exceptions thrown
+ * by methods dispatched through a {@code Callable} are reported as defined by the {@code ThreadingHandler}.</li>
+ * <li>Annotated methods must be overridable, and annotated classes must be non-final top level or static
+ * nested classes with at least one non-private constructor.</li>
+ * </ul>
+ *
+ * @author Andres Almiray
+ */
+@SupportedAnnotationTypes("javax.application.threading.Threading")
+public class ThreadingProcessor extends AbstractProcessor {
+    public static final String SUFFIX = "_Threading";
+
+    private static final String THREADING_HANDLER = "javax.application.threading.ThreadingHandler";
+    private static final String COMPLETION_STAGE = "java.util.concurrent.CompletionStage";
+
+    private final Set<String> generatedTypes = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Set<TypeElement> types = new LinkedHashSet<>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(Threading.class)) {
+            if (element.getKind() == ElementKind.CLASS) {
+                types.add((TypeElement) element);
+            } else if (element.getKind() == ElementKind.METHOD && element.getEnclosingElement().getKind() == ElementKind.CLASS) {
+                types.add((TypeElement) element.getEnclosingElement());
+            }
+        }
+
+        for (TypeElement type : types) {
+            // generated wrappers inherit the annotation of their superclass
+            if (!generatedTypes.contains(type.getQualifiedName().toString())) {
+                generateWrapper(type);
+            }
+        }
+        return true;
+    }
+
+    private void generateWrapper(TypeElement type) {
+        if (!checkType(type)) {
+            return;
+        }
+
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        String simpleName = wrapperName(type);
+        String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        generatedTypes.add(qualifiedName);
+
+        StringBuilder body = new StringBuilder();
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (!constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                writeConstructor(body, simpleName, constructor);
+            }
+        }
+
+        boolean valid = true;
+        Threading typeThreading = type.getAnnotation(Threading.class);
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            Threading threading = method.getAnnotation(Threading.class);
+            boolean explicit = threading != null;
+            if (!explicit) {
+                threading = typeThreading;
+            }
+            if (threading == null || threading.value() == Threading.Policy.SKIP || !isCandidate(method, pkg, explicit)) {
+                continue;
+            }
+            if (!explicit && overridesObjectMethod(type, method)) {
+                continue;
+            }
+            valid &= writeMethod(body, type, method, threading, explicit);
+        }
+
+        if (!valid) {
+            return;
+        }
+
+        String typeParameters = typeParameters(type.getTypeParameters());
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()) {
+            if (!packageName.isEmpty()) {
+                writer.write("package " + packageName + ";\n\n");
+            }
+            writer.write("// Generated by " + getClass().getName() + ", do not edit\n");
+            writer.write(visibility(type.getModifiers()) + (type.getModifiers().contains(Modifier.ABSTRACT) ? "abstract " : "") + "class " +
+                simpleName + typeParameters + " extends " + type.getQualifiedName() + typeArguments(type.getTypeParameters()) + " {\n");
+            writer.write("    private final " + THREADING_HANDLER + " threadingHandler;\n");
+            writer.write(body.toString());
+            writer.write("}\n");
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not generate " + qualifiedName + ": " + e.getMessage(), type);
+        }
+    }
+
+    private boolean checkType(TypeElement type) {
+        String reason = null;
+        if (type.getModifiers().contains(Modifier.FINAL)) {
+            reason = "must not be final";
+        } else if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)) {
+            reason = "must be a top level or static nested class";
+        } else if (type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+            reason = "must be a top level or static nested class";
+        } else if (!isAccessible(type)) {
+            reason = "must not be private";
+        } else if (ElementFilter.constructorsIn(type.getEnclosedElements()).stream()
+            .allMatch(c -> c.getModifiers().contains(Modifier.PRIVATE))) {
+            reason = "must have a non-private constructor";
+        }
+
+        if (reason != null) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                "Class " + type.getQualifiedName() + " " + reason + " to generate its @Threading wrapper", type);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isAccessible(TypeElement type) {
+        for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+            if (e.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isCandidate(ExecutableElement method, PackageElement pkg, boolean explicit) {
+        Element owner = method.getEnclosingElement();
+        if (owner.getKind() != ElementKind.CLASS || Object.class.getName().equals(((TypeElement) owner).getQualifiedName().toString())) {
+            return false;
+        }
+
+        Set<Modifier> modifiers = method.getModifiers();
+        if (modifiers.contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+        if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.FINAL) || modifiers.contains(Modifier.PRIVATE)) {
+            if (explicit) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "@Threading may only be applied to methods that can be overridden", method);
+            }
+            return false;
+        }
+
+        boolean packagePrivate = !modifiers.contains(Modifier.PUBLIC) && !modifiers.contains(Modifier.PROTECTED);
+        return !packagePrivate || processingEnv.getElementUtils().getPackageOf(method).equals(pkg);
+    }
+
+    private void writeConstructor(StringBuilder body, String simpleName, ExecutableElement constructor) {
+        List<? extends VariableElement> parameters = constructor.getParameters();
+        body.append('\n')
+            .append("    ").append(visibility(constructor.getModifiers()))
+            .append(typeParameterPrefix(constructor.getTypeParameters()))
+            .append(simpleName).append('(').append(THREADING_HANDLER).append(" threadingHandler");
+        if (!parameters.isEmpty()) {
+            body.append(", ").append(parameters(constructor, constructor.getParameters().stream()
+                .map(VariableElement::asType).collect(toList()), "arg"));
+        }
+        body.append(')').append(throwsClause(constructor.getThrownTypes())).append(" {\n")
+            .append("        super(").append(arguments(parameters, "arg")).append(");\n")
+            .append("        this.threadingHandler = java.util.Objects.requireNonNull(threadingHandler, \"threadingHandler\");\n")
+            .append("    }\n");
+    }
+
+    private boolean overridesObjectMethod(TypeElement type, ExecutableElement method) {
+        TypeElement object = processingEnv.getElementUtils().getTypeElement(Object.class.getName());
+        for (ExecutableElement candidate : ElementFilter.methodsIn(object.getEnclosedElements())) {
+            if (processingEnv.getElementUtils().overrides(method, candidate, type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the override of a method. Methods the policy can not wrap are reported if the method is annotated,
+     * otherwise they are skipped.
+     *
+     * @return {@code false} if an error was reported.
+     */
+    private boolean writeMethod(StringBuilder body, TypeElement type, ExecutableElement method, Threading threading, boolean explicit) {
+        ExecutableType signature = (ExecutableType) processingEnv.getTypeUtils().asMemberOf((DeclaredType) type.asType(), method);
+        TypeMirror returnType = signature.getReturnType();
+        boolean isVoid = returnType.getKind() == TypeKind.VOID;
+        boolean isStage = isCompletionStage(returnType);
+        boolean throwsChecked = throwsCheckedExceptions(signature.getThrownTypes());
+        Threading.Policy policy = threading.value();
+
+        String call = "super." + method.getSimpleName() + "(" + arguments(method.getParameters(), null) + ")";
+        String dispatch;
+        switch (policy) {
+            case OUTSIDE_UITHREAD:
+                if (!isVoid) {
+                    return reject(method, policy, explicit, "must return void");
+                }
+                dispatch = "this.threadingHandler.executeOutsideUI(() -> " + call + ");";
+                break;
+            case OUTSIDE_UITHREAD_ASYNC:
+                String lane = Threading.class.getCanonicalName() + ".Lane." + threading.lane().name();
+                if (isStage) {
+                    dispatch = "return this.threadingHandler.executeOutsideUIAsync(" + lane + ", () -> " + call +
+                        ").thenCompose(java.util.function.Function.identity());";
+                } else if (isVoid) {
+                    dispatch = "this.threadingHandler.executeOutsideUIAsync(" + lane + ", () -> " + call + ");";
+                } else {
+                    return reject(method, policy, explicit, "must return void or CompletionStage");
+                }
+                break;
+            case INSIDE_UITHREAD_SYNC:
+                if (isVoid && throwsChecked) {
+                    dispatch = "this.threadingHandler.executeInsideUISync(() -> {\n            " + call + ";\n            return null;\n        });";
+                } else if (isVoid) {
+                    dispatch = "this.threadingHandler.executeInsideUISync(() -> " + call + ");";
+                } else {
+                    dispatch = "return this.threadingHandler.executeInsideUISync(() -> " + call + ");";
+                }
+                break;
+            case INSIDE_UITHREAD_ASYNC:
+                if (isStage) {
+                    dispatch = "return this.threadingHandler.executeInsideUIAsync(() -> " + call +
+                        ").thenCompose(java.util.function.Function.identity());";
+                } else if (isVoid) {
+                    dispatch = "this.threadingHandler.executeInsideUIAsync(() -> " + call + ");";
+                } else {
+                    return reject(method, policy, explicit, "must return void or CompletionStage");
+                }
+                break;
+            default:
+                return true;
+        }
+
+        if (throwsChecked && !isStage && policy != Threading.Policy.INSIDE_UITHREAD_SYNC) {
+            return reject(method, policy, explicit, "must not declare checked exceptions");
+        }
+
+        body.append('\n')
+            .append("    @Override\n")
+            .append("    ").append(visibility(method.getModifiers()))
+            .append(typeParameterPrefix(method.getTypeParameters()))
+            .append(returnType).append(' ').append(method.getSimpleName())
+            .append('(').append(parameters(method, signature.getParameterTypes(), null)).append(')')
+            .append(throwsClause(signature.getThrownTypes())).append(" {\n")
+            .append("        ").append(dispatch).append('\n')
+            .append("    }\n");
+        return true;
+    }
+
+    private boolean reject(ExecutableElement method, Threading.Policy policy, boolean explicit, String reason) {
+        if (explicit) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                "Method " + method.getSimpleName() + " " + reason + " to use threading policy " + policy, method);
+        }
+        return !explicit;
+    }
+
+    private boolean isCompletionStage(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+        return COMPLETION_STAGE.equals(element.getQualifiedName().toString());
+    }
+
+    private boolean throwsCheckedExceptions(List<? extends TypeMirror> thrownTypes) {
+        TypeMirror runtimeException = processingEnv.getElementUtils().getTypeElement(RuntimeException.class.getName()).asType();
+        TypeMirror error = processingEnv.getElementUtils().getTypeElement(Error.class.getName()).asType();
+        for (TypeMirror thrownType : thrownTypes) {
+            if (!processingEnv.getTypeUtils().isSubtype(thrownType, runtimeException) &&
+                !processingEnv.getTypeUtils().isSubtype(thrownType, error)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String wrapperName(TypeElement type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        for (Element e = type.getEnclosingElement(); e instanceof TypeElement; e = e.getEnclosingElement()) {
+            name.insert(0, '_').insert(0, e.getSimpleName());
+        }
+        return name.append(SUFFIX).toString();
+    }
+}
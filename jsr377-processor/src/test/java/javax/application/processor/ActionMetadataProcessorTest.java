@@ -0,0 +1,213 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.processor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.application.action.Action;
+import javax.application.action.ActionMetadata;
+import javax.application.action.DefaultActionManager;
+import javax.application.action.ExecutionPolicy;
+import javax.application.action.spi.ActionDescriptor;
+import javax.application.action.spi.ActionMetadataProvider;
+import javax.application.threading.Threading;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Andres Almiray
+ */
+public class ActionMetadataProcessorTest {
+    private static final String PROVIDER = "sample.Editor" + ActionMetadataProcessor.SUFFIX;
+    private static final String SERVICES = "META-INF/services/" + ActionMetadataProvider.class.getName();
+
+    private static final String[] SOURCES = {
+        "sample.Contextual",
+        "package sample;\n" +
+        "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n" +
+        "public @interface Contextual { }\n",
+        "sample.Nullable",
+        "package sample;\n" +
+        "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n" +
+        "public @interface Nullable { }\n",
+        "sample.lint.Nullable",
+        "package sample.lint;\n" +
+        "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.CLASS)\n" +
+        "public @interface Nullable { }\n",
+        "sample.Editor",
+        "package sample;\n" +
+        "import javax.application.action.ActionHandler;\n" +
+        "import javax.application.action.ExecutionPolicy;\n" +
+        "import javax.application.threading.Threading;\n" +
+        "@Threading(Threading.Policy.INSIDE_UITHREAD_ASYNC)\n" +
+        "public class Editor {\n" +
+        "    @ActionHandler(dependsOn = \"document\")\n" +
+        "    public String save(String target, @Nullable String encoding, @Contextual Object selection) {\n" +
+        "        return target + \"/\" + encoding;\n" +
+        "    }\n" +
+        "    @Threading(value = Threading.Policy.OUTSIDE_UITHREAD_ASYNC, lane = Threading.Lane.BULK)\n" +
+        "    @ActionHandler(value = \"shutdown\", name = \"Close\", executionPolicy = ExecutionPolicy.THROTTLE, rate = 2)\n" +
+        "    public void close(int times, @sample.lint.Nullable String reason) { }\n" +
+        "}\n"
+    };
+
+    private TestCompiler.Result result;
+
+    @AfterEach
+    public void cleanup() {
+        if (result != null) {
+            result.cleanup();
+        }
+    }
+
+    @Test
+    public void providersAreGeneratedAndListedAsServices() {
+        result = TestCompiler.compile(new ActionMetadataProcessor(), SOURCES);
+
+        assertTrue(result.isSuccess(), String.valueOf(result.getErrors()));
+        String source = result.getGeneratedSource(PROVIDER);
+        assertNotNull(source);
+        assertTrue(source.contains("public final class Editor_ActionMetadataProvider implements " +
+            ActionMetadataProvider.class.getName()), source);
+        assertTrue(source.contains("((sample.Editor) owner).save((java.lang.String) args[0], (java.lang.String) args[1], args[2])"), source);
+        assertEquals(PROVIDER + "\n", result.getGeneratedResource(SERVICES));
+    }
+
+    @Test
+    public void descriptorsDescribeMethodsCompletely() throws Exception {
+        result = TestCompiler.compile(new ActionMetadataProcessor(), SOURCES);
+        ActionMetadataProvider provider = loadProvider();
+
+        assertEquals("sample.Editor", provider.getOwnerType().getName());
+        List<ActionDescriptor> descriptors = provider.getActionDescriptors();
+        assertEquals(2, descriptors.size());
+
+        ActionDescriptor save = descriptors.get(0);
+        assertEquals("save", save.getActionId());
+        assertSame(String.class, save.getReturnType());
+        assertArrayEquals(new Class<?>[]{String.class, String.class, Object.class}, save.getParameterTypes());
+        assertEquals("target", save.getParameters()[0].getName());
+        assertEquals("encoding", save.getParameters()[1].getName());
+        assertEquals("selection", save.getParameters()[2].getName());
+        assertFalse(save.getParameters()[0].isNullable());
+        assertTrue(save.getParameters()[1].isNullable());
+        assertTrue(save.getParameters()[2].isContextual());
+        assertArrayEquals(new String[]{"document"}, save.getStateDependencies());
+        // the policy of the class applies to methods without one of their own
+        assertEquals(Threading.Policy.INSIDE_UITHREAD_ASYNC, save.getThreadingPolicy());
+        assertEquals(Threading.Lane.DEFAULT, save.getThreadingLane());
+
+        ActionDescriptor close = descriptors.get(1);
+        assertEquals("close", close.getMethodName());
+        assertEquals("shutdown", close.getActionId());
+        assertEquals("Close", close.getActionName());
+        assertSame(void.class, close.getReturnType());
+        assertArrayEquals(new Class<?>[]{int.class, String.class}, close.getParameterTypes());
+        // annotations that are not retained at runtime are not seen by reflection either
+        assertFalse(close.getParameters()[1].isNullable());
+        assertEquals(ExecutionPolicy.THROTTLE, close.getExecutionPolicy());
+        assertEquals(2, close.getExecutionRate());
+        assertEquals(Threading.Policy.OUTSIDE_UITHREAD_ASYNC, close.getThreadingPolicy());
+        assertEquals(Threading.Lane.BULK, close.getThreadingLane());
+    }
+
+    @Test
+    public void invocationsCallTheMethodsDirectly() throws Throwable {
+        result = TestCompiler.compile(new ActionMetadataProcessor(), SOURCES);
+        ActionMetadataProvider provider = loadProvider();
+        Object owner = provider.getOwnerType().getDeclaredConstructor().newInstance();
+
+        ActionDescriptor save = provider.getActionDescriptors().get(0);
+        ActionDescriptor close = provider.getActionDescriptors().get(1);
+
+        assertEquals("file/utf-8", save.getInvocation().invoke(owner, new Object[]{"file", "utf-8", null}));
+        assertNull(close.getInvocation().invoke(owner, new Object[]{1, "done"}));
+    }
+
+    @Test
+    public void actionManagersCreateActionsFromTheGeneratedProvider() throws Exception {
+        result = TestCompiler.compile(new ActionMetadataProcessor(), SOURCES);
+        Object owner = loadProvider().getOwnerType().getDeclaredConstructor().newInstance();
+
+        Map<String, Action> actions = new DefaultActionManager().createActions(owner);
+
+        // sources are compiled without -parameters, reflection would have named the parameters arg0, arg1, ...
+        ActionMetadata metadata = actions.get("save").getActionMetadata();
+        assertEquals("encoding", metadata.getParameters()[1].getName());
+        assertTrue(metadata.getParameters()[1].isNullable());
+        assertEquals(1, metadata.getParameters()[1].getAnnotations().length);
+        assertSame(String.class, metadata.getReturnType());
+        assertEquals("file/null", actions.get("save").executeAsync("file", null, "selection").toCompletableFuture().join());
+    }
+
+    @Test
+    public void invalidHandlerMethodsAreReported() {
+        result = TestCompiler.compile(new ActionMetadataProcessor(), "sample.Broken",
+            "package sample;\n" +
+            "import javax.application.action.ActionHandler;\n" +
+            "import javax.application.action.ExecutionPolicy;\n" +
+            "public class Broken {\n" +
+            "    @ActionHandler public static void reset() { }\n" +
+            "    @ActionHandler(\"open\") public void open() { }\n" +
+            "    @ActionHandler(\"open\") public void reopen() { }\n" +
+            "    @ActionHandler(executionPolicy = ExecutionPolicy.THROTTLE) public void scroll() { }\n" +
+            "    @ActionHandler(executionPolicy = ExecutionPolicy.DEBOUNCE) public void search() { }\n" +
+            "}\n");
+
+        assertFalse(result.isSuccess());
+        List<String> errors = result.getErrors();
+        assertEquals(4, errors.size(), String.valueOf(errors));
+        assertTrue(errors.contains("Action handler method reset must not be static"), String.valueOf(errors));
+        assertTrue(errors.contains("Action handler method reopen defines action id 'open' more than once in its class"), String.valueOf(errors));
+        assertTrue(errors.contains("Action handler method scroll must define a positive rate to be throttled"), String.valueOf(errors));
+        assertTrue(errors.contains("Action handler method search must define a positive interval to be debounced"), String.valueOf(errors));
+        assertNull(result.getGeneratedSource("sample.Broken" + ActionMetadataProcessor.SUFFIX));
+    }
+
+    @Test
+    public void inaccessibleHandlerMethodsAreLeftToReflection() {
+        result = TestCompiler.compile(new ActionMetadataProcessor(), "sample.Hidden",
+            "package sample;\n" +
+            "import javax.application.action.ActionHandler;\n" +
+            "public class Hidden {\n" +
+            "    @ActionHandler private void reveal() { }\n" +
+            "    public static class Nested {\n" +
+            "        @ActionHandler public void open() { }\n" +
+            "    }\n" +
+            "}\n");
+
+        assertTrue(result.isSuccess(), String.valueOf(result.getErrors()));
+        assertNull(result.getGeneratedSource("sample.Hidden" + ActionMetadataProcessor.SUFFIX));
+        assertNotNull(result.getGeneratedSource("sample.Hidden_Nested" + ActionMetadataProcessor.SUFFIX));
+        assertEquals("sample.Hidden_Nested" + ActionMetadataProcessor.SUFFIX + "\n", result.getGeneratedResource(SERVICES));
+    }
+
+    private ActionMetadataProvider loadProvider() throws Exception {
+        assertTrue(result.isSuccess(), String.valueOf(result.getErrors()));
+        return (ActionMetadataProvider) result.loadClass(PROVIDER).getDeclaredConstructor().newInstance();
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.processor;
+
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Andres Almiray
+ */
+public class SourceRendererTest {
+    private static final String SOURCE =
+        "package sample;\n" +
+        "public class Shapes {\n" +
+        "    @SafeVarargs\n" +
+        "    public final <T extends Comparable<T> & java.io.Serializable> T max(T first, T... others) { return first; }\n" +
+        "    protected void draw(java.util.List<String> names, int[] sizes) throws java.io.IOException, InterruptedException { }\n" +
+        "    <K, V extends Number> void index(K key, V value) { }\n" +
+        "    private void clear() { }\n" +
+        "}\n";
+
+    @Test
+    public void signaturesAreRenderedAsDeclared() {
+        Map<String, Rendering> renderings = render();
+
+        assertEquals("public <T extends java.lang.Comparable<T> & java.io.Serializable> max(T first, T... others)",
+            renderings.get("max").signature);
+        assertEquals("protected draw(java.util.List<java.lang.String> names, int[] sizes) throws java.io.IOException, java.lang.InterruptedException",
+            renderings.get("draw").signature);
+        assertEquals("<K, V extends java.lang.Number> index(K key, V value)", renderings.get("index").signature);
+        assertEquals("clear()", renderings.get("clear").signature);
+    }
+
+    @Test
+    public void parametersAreRenamedAfterAPrefix() {
+        Map<String, Rendering> renderings = render();
+
+        assertEquals("T arg0, T... arg1", renderings.get("max").prefixedParameters);
+        assertEquals("arg0, arg1", renderings.get("max").prefixedArguments);
+        assertEquals("first, others", renderings.get("max").arguments);
+    }
+
+    @Test
+    public void typeArgumentsNameTheTypeParameters() {
+        Map<String, Rendering> renderings = render();
+
+        assertEquals("<K, V>", renderings.get("index").typeArguments);
+        assertEquals("", renderings.get("clear").typeArguments);
+    }
+
+    private static Map<String, Rendering> render() {
+        RenderingProcessor processor = new RenderingProcessor();
+        TestCompiler.Result result = TestCompiler.compile(processor, "sample.Shapes", SOURCE);
+        try {
+            assertTrue(result.isSuccess(), String.valueOf(result.getErrors()));
+            return processor.renderings;
+        } finally {
+            result.cleanup();
+        }
+    }
+
+    private static final class Rendering {
+        private final String signature;
+        private final String prefixedParameters;
+        private final String arguments;
+        private final String prefixedArguments;
+        private final String typeArguments;
+
+        private Rendering(ExecutableElement method) {
+            List<TypeMirror> types = method.getParameters().stream().map(VariableElement::asType).collect(toList());
+            this.signature = SourceRenderer.visibility(method.getModifiers()) +
+                SourceRenderer.typeParameterPrefix(method.getTypeParameters()) + method.getSimpleName() +
+                "(" + SourceRenderer.parameters(method, types, null) + ")" + SourceRenderer.throwsClause(method.getThrownTypes());
+            this.prefixedParameters = SourceRenderer.parameters(method, types, "arg");
+            this.arguments = SourceRenderer.arguments(method.getParameters(), null);
+            this.prefixedArguments = SourceRenderer.arguments(method.getParameters(), "arg");
+            this.typeArguments = SourceRenderer.typeArguments(method.getTypeParameters());
+        }
+    }
+
+    /**
+     * Renders the methods of the compiled classes.
+     */
+    @SupportedAnnotationTypes("*")
+    private static final class RenderingProcessor extends AbstractProcessor {
+        private final Map<String, Rendering> renderings = new HashMap<>();
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return SourceVersion.latestSupported();
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+            for (Element element : roundEnv.getRootElements()) {
+                for (ExecutableElement method : ElementFilter.methodsIn(element.getEnclosedElements())) {
+                    renderings.put(method.getSimpleName().toString(), new Rendering(method));
+                }
+            }
+            return false;
+        }
+    }
+}
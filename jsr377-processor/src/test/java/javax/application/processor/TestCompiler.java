@@ -0,0 +1,169 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.processor;
+
+import javax.annotation.processing.Processor;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Compiles sample sources with an annotation processor, keeping the generated files for inspection.
+ *
+ * @author Andres Almiray
+ */
+final class TestCompiler {
+    private TestCompiler() {
+        // prevent instantiation
+    }
+
+    /**
+     * Compiles the given sources.
+     *
+     * @param processor the processor to run.
+     * @param sources   pairs of fully qualified class names and their source code.
+     */
+    static Result compile(Processor processor, String... sources) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try {
+            Path root = Files.createTempDirectory("jsr377-processor-test");
+            Path sourceInput = Files.createDirectories(root.resolve("src"));
+            Path sourceOutput = Files.createDirectories(root.resolve("generated"));
+            Path classOutput = Files.createDirectories(root.resolve("classes"));
+
+            List<File> files = new ArrayList<>();
+            for (int i = 0; i < sources.length; i += 2) {
+                Path file = sourceInput.resolve(sources[i].replace('.', File.separatorChar) + ".java");
+                Files.createDirectories(file.getParent());
+                Files.write(file, sources[i + 1].getBytes(StandardCharsets.UTF_8));
+                files.add(file.toFile());
+            }
+
+            try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, Locale.ROOT, StandardCharsets.UTF_8)) {
+                List<String> options = Arrays.asList(
+                    "-classpath", System.getProperty("java.class.path"),
+                    "-s", sourceOutput.toString(),
+                    "-d", classOutput.toString());
+                JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null,
+                    fileManager.getJavaFileObjectsFromFiles(files));
+                task.setProcessors(Arrays.asList(processor));
+                boolean success = task.call();
+                return new Result(success, diagnostics.getDiagnostics(), root, sourceOutput, classOutput);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static final class Result {
+        private final boolean success;
+        private final List<Diagnostic<? extends JavaFileObject>> diagnostics;
+        private final Path root;
+        private final Path sourceOutput;
+        private final Path classOutput;
+
+        private Result(boolean success, List<Diagnostic<? extends JavaFileObject>> diagnostics, Path root, Path sourceOutput, Path classOutput) {
+            this.success = success;
+            this.diagnostics = diagnostics;
+            this.root = root;
+            this.sourceOutput = sourceOutput;
+            this.classOutput = classOutput;
+        }
+
+        boolean isSuccess() {
+            return success;
+        }
+
+        /**
+         * Returns the messages of all reported errors.
+         */
+        List<String> getErrors() {
+            return diagnostics.stream()
+                .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+                .map(d -> d.getMessage(Locale.ROOT))
+                .collect(toList());
+        }
+
+        /**
+         * Returns the source of a generated class, or {@code null} if it was not generated.
+         */
+        String getGeneratedSource(String className) {
+            return read(sourceOutput.resolve(className.replace('.', File.separatorChar) + ".java"));
+        }
+
+        /**
+         * Returns the content of a generated resource, or {@code null} if it was not generated.
+         */
+        String getGeneratedResource(String path) {
+            return read(classOutput.resolve(path.replace('/', File.separatorChar)));
+        }
+
+        /**
+         * Loads a compiled class, delegating to the class loader of the test for everything else.
+         */
+        Class<?> loadClass(String className) throws ClassNotFoundException {
+            try {
+                return new URLClassLoader(new URL[]{classOutput.toUri().toURL()}, TestCompiler.class.getClassLoader()).loadClass(className);
+            } catch (MalformedURLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Deletes all files written by the compilation.
+         */
+        void cleanup() {
+            try (Stream<Path> paths = Files.walk(root)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).collect(toList())) {
+                    Files.delete(path);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private static String read(Path path) {
+            try {
+                return Files.exists(path) ? new String(Files.readAllBytes(path), StandardCharsets.UTF_8) : null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2015-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.application.processor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Andres Almiray
+ */
+public class ThreadingProcessorTest {
+    @Test
+    public void classPolicyOnlyWrapsTheMethodsItCanDispatch() {
+        TestCompiler.Result result = TestCompiler.compile(new ThreadingProcessor(), "sample.Service",
+            "package sample;\n" +
+            "import javax.application.threading.Threading;\n" +
+            "@Threading(Threading.Policy.OUTSIDE_UITHREAD_ASYNC)\n" +
+            "public class Service {\n" +
+            "    public void save() { }\n" +
+            "    public java.util.concurrent.CompletionStage<String> load() { return null; }\n" +
+            "    public String getName() { return \"service\"; }\n" +
+            "    public void export() throws java.io.IOException { }\n" +
+            "    @Override public String toString() { return getName(); }\n" +
+            "    @Override public int hashCode() { return 1; }\n" +
+            "}\n");
+        try {
+            assertTrue(result.isSuccess(), String.valueOf(result.getErrors()));
+            String source = result.getGeneratedSource("sample.Service_Threading");
+            assertNotNull(source);
+            assertTrue(source.contains("public void save()"), source);
+            assertTrue(source.contains("public java.util.concurrent.CompletionStage<java.lang.String> load()"), source);
+            assertFalse(source.contains("getName()"), source);
+            assertFalse(source.contains("export()"), source);
+            assertFalse(source.contains("toString()"), source);
+            assertFalse(source.contains("hashCode()"), source);
+        } finally {
+            result.cleanup();
+        }
+    }
+
+    @Test
+    public void objectMethodsAreNotWrappedByASynchronousClassPolicy() {
+        TestCompiler.Result result = TestCompiler.compile(new ThreadingProcessor(), "sample.View",
+            "package sample;\n" +
+            "import javax.application.threading.Threading;\n" +
+            "@Threading(Threading.Policy.INSIDE_UITHREAD_SYNC)\n" +
+            "public class View {\n" +
+            "    public String getTitle() { return \"title\"; }\n" +
+            "    @Override public boolean equals(Object o) { return this == o; }\n" +
+            "    @Override public int hashCode() { return 1; }\n" +
+            "    @Override public String toString() { return getTitle(); }\n" +
+            "}\n");
+        try {
+            assertTrue(result.isSuccess(), String.valueOf(result.getErrors()));
+            String source = result.getGeneratedSource("sample.View_Threading");
+            assertTrue(source.contains("return this.threadingHandler.executeInsideUISync(() -> super.getTitle());"), source);
+            assertFalse(source.contains("equals("), source);
+            assertFalse(source.contains("hashCode()"), source);
+            assertFalse(source.contains("toString()"), source);
+        } finally {
+            result.cleanup();
+        }
+    }
+
+    @Test
+    public void methodPolicyTakesPrecedenceOverClassPolicy() {
+        TestCompiler.Result result = TestCompiler.compile(new ThreadingProcessor(), "sample.Editor",
+            "package sample;\n" +
+            "import javax.application.threading.Threading;\n" +
+            "@Threading(Threading.Policy.INSIDE_UITHREAD_ASYNC)\n" +
+            "public class Editor {\n" +
+            "    public void refresh() { }\n" +
+            "    @Threading(Threading.Policy.SKIP)\n" +
+            "    public void close() { }\n" +
+            "    @Threading(Threading.Policy.INSIDE_UITHREAD_SYNC)\n" +
+            "    @Override public String toString() { return \"editor\"; }\n" +
+            "}\n");
+        try {
+            assertTrue(result.isSuccess(), String.valueOf(result.getErrors()));
+            String source = result.getGeneratedSource("sample.Editor_Threading");
+            assertTrue(source.contains("this.threadingHandler.executeInsideUIAsync(() -> super.refresh());"), source);
+            assertFalse(source.contains("close()"), source);
+            assertTrue(source.contains("return this.threadingHandler.executeInsideUISync(() -> super.toString());"), source);
+        } finally {
+            result.cleanup();
+        }
+    }
+
+    @Test
+    public void methodsThatCanNotBeDispatchedAreReportedWhenAnnotated() {
+        TestCompiler.Result result = TestCompiler.compile(new ThreadingProcessor(), "sample.Loader",
+            "package sample;\n" +
+            "import javax.application.threading.Threading;\n" +
+            "public class Loader {\n" +
+            "    @Threading\n" +
+            "    public String getName() { return \"loader\"; }\n" +
+            "    @Threading(Threading.Policy.OUTSIDE_UITHREAD_ASYNC)\n" +
+            "    public void load() throws java.io.IOException { }\n" +
+            "    @Threading\n" +
+            "    public final void reset() { }\n" +
+            "}\n");
+        try {
+            assertFalse(result.isSuccess());
+            assertEquals(3, result.getErrors().size(), String.valueOf(result.getErrors()));
+            assertTrue(result.getErrors().contains("Method getName must return void to use threading policy OUTSIDE_UITHREAD"), String.valueOf(result.getErrors()));
+            assertTrue(result.getErrors().contains("Method load must not declare checked exceptions to use threading policy OUTSIDE_UITHREAD_ASYNC"), String.valueOf(result.getErrors()));
+            assertTrue(result.getErrors().contains("@Threading may only be applied to methods that can be overridden"), String.valueOf(result.getErrors()));
+        } finally {
+            result.cleanup();
+        }
+    }
+
+    @Test
+    public void checkedExceptionsArePropagatedBySynchronousDispatch() {
+        TestCompiler.Result result = TestCompiler.compile(new ThreadingProcessor(), "sample.Store",
+            "package sample;\n" +
+            "import javax.application.threading.Threading;\n" +
+            "public class Store {\n" +
+            "    @Threading(Threading.Policy.INSIDE_UITHREAD_SYNC)\n" +
+            "    public void flush() throws java.io.IOException { }\n" +
+            "}\n");
+        try {
+            assertTrue(result.isSuccess(), String.valueOf(result.getErrors()));
+            String source = result.getGeneratedSource("sample.Store_Threading");
+            assertTrue(source.contains("public void flush() throws java.io.IOException"), source);
+            assertTrue(source.contains("return null;"), source);
+        } finally {
+            result.cleanup();
+        }
+    }
+
+    @Test
+    public void constructorsTakeTheThreadingHandlerFirst() throws Exception {
+        TestCompiler.Result result = TestCompiler.compile(new ThreadingProcessor(), "sample.Task",
+            "package sample;\n" +
+            "import javax.application.threading.Threading;\n" +
+            "@Threading\n" +
+            "public class Task {\n" +
+            "    private final String name;\n" +
+            "    public Task(String name) throws java.io.IOException { this.name = name; }\n" +
+            "    protected Task() { this.name = \"default\"; }\n" +
+            "    private Task(int ignored) { this.name = null; }\n" +
+            "    public void run() { }\n" +
+            "}\n");
+        try {
+            assertTrue(result.isSuccess(), String.valueOf(result.getErrors()));
+            Class<?> wrapper = result.loadClass("sample.Task_Threading");
+            assertEquals(2, wrapper.getDeclaredConstructors().length);
+            wrapper.getConstructor(javax.application.threading.ThreadingHandler.class, String.class);
+            wrapper.getDeclaredConstructor(javax.application.threading.ThreadingHandler.class);
+        } finally {
+            result.cleanup();
+        }
+    }
+
+    @Test
+    public void backgroundDispatchUsesTheLaneOfThePolicy() {
+        TestCompiler.Result result = TestCompiler.compile(new ThreadingProcessor(), "sample.Indexer",
+            "package sample;\n" +
+            "import javax.application.threading.Threading;\n" +
+            "@Threading(value = Threading.Policy.OUTSIDE_UITHREAD_ASYNC, lane = Threading.Lane.BULK)\n" +
+            "public class Indexer {\n" +
+            "    public void index() { }\n" +
+            "    @Threading(value = Threading.Policy.OUTSIDE_UITHREAD_ASYNC, lane = Threading.Lane.INTERACTIVE)\n" +
+            "    public void search() { }\n" +
+            "}\n");
+        try {
+            assertTrue(result.isSuccess(), String.valueOf(result.getErrors()));
+            String source = result.getGeneratedSource("sample.Indexer_Threading");
+            assertTrue(source.contains("executeOutsideUIAsync(javax.application.threading.Threading.Lane.BULK, () -> super.index());"), source);
+            assertTrue(source.contains("executeOutsideUIAsync(javax.application.threading.Threading.Lane.INTERACTIVE, () -> super.search());"), source);
+            assertEquals(Collections.emptyList(), result.getErrors());
+        } finally {
+            result.cleanup();
+        }
+    }
+}